@@ -17,7 +17,9 @@ package net.oneandone.troilus;
 
 
 
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.ExecutionInfo;
@@ -26,8 +28,12 @@ import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.policies.RetryPolicy;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 
 /**
@@ -120,6 +126,25 @@ abstract class AbstractQuery<Q> {
         return newQuery(ctx.withTtl(ttlSec));
     }
     
+    /**
+     * @param timeoutMillis  the deadline of the query in millis. If exceeded, the query fails with a 
+     *                       {@link DeadlineExceededException} and all its pending stages will be cancelled
+     * @return a cloned query instance with the modified behavior
+     */
+    public Q withTimeout(long timeoutMillis) {
+        return newQuery(ctx.withTimeout(timeoutMillis));
+    }
+    
+    /**
+     * @param percentile        the latency percentile of the table such as 95. If a read has not been completed within 
+     *                          this latency, a duplicate read will be sent and the first result will be used
+     * @param maxExtraRequests  the max number of duplicate reads per query
+     * @return a cloned query instance with the modified behavior
+     */
+    public Q withHedging(double percentile, int maxExtraRequests) {
+        return newQuery(ctx.withHedging(percentile, maxExtraRequests));
+    }
+    
     /**
      * @param consistencyLevel  the consistency level to use
      * @return a cloned query instance with the modified behavior
@@ -177,16 +202,93 @@ abstract class AbstractQuery<Q> {
         return ctx.getBeanMapper();
     }
     
+    /**
+     * @param tablename  the tablename the request refers to or null
+     * @param future     the request future
+     * @return the request future considering the deadline of the execution spec, if set
+     */
+    protected <T> ListenableFuture<T> withDeadline(Tablename tablename, ListenableFuture<T> future) {
+        return getDefaultDbSession().withDeadline(tablename, future, getExecutionSpec().getTimeoutMillis());
+    }
+    
+    /**
+     * @param tablename      the tablename the request refers to or null
+     * @param future         the request future
+     * @param deadlineNanos  the absolute deadline of the query, see {@link AbstractQuery#newDeadlineNanos()}
+     * @return the request future considering the remaining time of the deadline, if set
+     */
+    protected <T> ListenableFuture<T> withDeadline(Tablename tablename, ListenableFuture<T> future, Long deadlineNanos) {
+        return getDefaultDbSession().withAbsoluteDeadline(tablename, future, deadlineNanos);
+    }
+    
+    /**
+     * @return the absolute deadline in terms of {@link System#nanoTime()} of a query, which starts now, or null, if no timeout is set
+     */
+    Long newDeadlineNanos() {
+        final Long timeoutMillis = getExecutionSpec().getTimeoutMillis();
+        return (timeoutMillis == null) ? null : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+    
     /**
      * @param statementFuture  the statement to perform in an async way
+     * @return the result future. The request will not be hedged 
+     */
+    protected ListenableFuture<ResultSet> performAsync(DBSession dbSession, ListenableFuture<Statement> statementFuture) {
+        return performAsync(dbSession, statementFuture, false);
+    }
+    
+    /**
+     * @param statementSupplier  the statement to perform in an async way. The supplier is called once for 
+     *                           each hedged request, so that concurrent requests do not share a statement  
      * @return the result future 
      */
-    protected ListenableFuture<ResultSet> performAsync(final DBSession dbSession, ListenableFuture<Statement> statementFuture) {
+    protected ListenableFuture<ResultSet> performAsync(DBSession dbSession, Supplier<ListenableFuture<Statement>> statementSupplier) {
+        return performHedgedAsync(dbSession, statementSupplier, false);
+    }
+    
+    /**
+     * @param statementSupplier  the statement to query a further page of a result in an async way. The supplier 
+     *                           is called once for each hedged request, so that concurrent requests do not share a statement 
+     * @return the result future. The request is accounted as page fetch by the bulkhead 
+     */
+    protected ListenableFuture<ResultSet> performPageFetchAsync(DBSession dbSession, Supplier<ListenableFuture<Statement>> statementSupplier) {
+        return performHedgedAsync(dbSession, statementSupplier, true);
+    }
+    
+    private ListenableFuture<ResultSet> performHedgedAsync(final DBSession dbSession, final Supplier<ListenableFuture<Statement>> statementSupplier, final boolean isPageFetch) {
+        final HedgingPolicy hedgingPolicy = getExecutionSpec().getHedgingPolicy();
+        if ((hedgingPolicy == null) || !isHedgeable()) {
+            return performAsync(dbSession, statementSupplier.get(), isPageFetch);
+        }
+        
+        // hedged requests pass the circuit breaker, limiter and bulkhead like any other request
+        final Supplier<ListenableFuture<ResultSet>> request = new Supplier<ListenableFuture<ResultSet>>() {
+            
+            @Override
+            public ListenableFuture<ResultSet> get() {
+                return performAsync(dbSession, statementSupplier.get(), isPageFetch);
+            }
+        };
+        return hedgingPolicy.executeAsync(dbSession.getLatencyHistogram(getTablename()), request, getExecutor());
+    }
+    
+    private ListenableFuture<ResultSet> performAsync(final DBSession dbSession, ListenableFuture<Statement> statementFuture, final boolean isPageFetch) {
+        
+        // statement is already available (e.g. cached prepared statement), so execute it without additional hop 
+        if (statementFuture.isDone() && !statementFuture.isCancelled()) {
+            final Statement statement;
+            try {
+                statement = statementFuture.get();
+            } catch (InterruptedException | ExecutionException | RuntimeException e) {
+                return Futures.immediateFailedFuture(ListenableFutures.unwrapIfNecessary(e));
+            }
+            return performAsync(dbSession, statement, isPageFetch);
+        }
         
         Function<Statement, ListenableFuture<ResultSet>> statementToResultSetFuture = new Function<Statement, ListenableFuture<ResultSet>>() {
             @Override
             public ListenableFuture<ResultSet> apply(Statement statement) {
-                return performAsync(dbSession, statement);
+                return performAsync(dbSession, statement, isPageFetch);
             }
         };
         
@@ -200,6 +302,10 @@ abstract class AbstractQuery<Q> {
      * @return the result future 
      */
     protected ListenableFuture<ResultSet> performAsync(DBSession dbSession, Statement statement) {
+        return performAsync(dbSession, statement, false);
+    }
+    
+    private ListenableFuture<ResultSet> performAsync(final DBSession dbSession, final Statement statement, final boolean isPageFetch) {
         if (getExecutionSpec().getConsistencyLevel() != null) {
             statement.setConsistencyLevel(getExecutionSpec().getConsistencyLevel());
         }
@@ -208,7 +314,12 @@ abstract class AbstractQuery<Q> {
             statement.setDefaultTimestamp(getExecutionSpec().getWritetime());
         }
 
-        if (getExecutionSpec().getRetryPolicy() != null) {
+        if (getExecutionSpec().getRetryBudget() != null) {
+            final RetryPolicy retryPolicy = (getExecutionSpec().getRetryPolicy() == null) ? dbSession.getDefaultRetryPolicy() 
+                                                                                          : getExecutionSpec().getRetryPolicy();
+            statement.setRetryPolicy(getExecutionSpec().getRetryBudget().toBudgetedRetryPolicy(retryPolicy));
+            
+        } else if (getExecutionSpec().getRetryPolicy() != null) {
             statement.setRetryPolicy(getExecutionSpec().getRetryPolicy());
         }
 
@@ -220,7 +331,127 @@ abstract class AbstractQuery<Q> {
             }
         }
         
-        return dbSession.executeAsync(statement);
+        return executeAsync(dbSession, statement, isPageFetch);
+    }
+    
+    
+    private ListenableFuture<ResultSet> executeAsync(DBSession dbSession, Statement statement, boolean isPageFetch) {
+        final CircuitBreaker circuitBreaker = getExecutionSpec().getCircuitBreaker();
+        if ((circuitBreaker != null) && !circuitBreaker.tryAcquirePermission(getOperation())) {
+            return Futures.immediateFailedFuture(new CircuitBreakerOpenException("circuit of " + getOperation() + " operation is open"));
+        }
+        
+        final long startNanos = System.nanoTime();
+        final ListenableFuture<ResultSet> future = isPageFetch ? dbSession.executePageFetchAsync(statement, getExecutionSpec().getConcurrencyLimiter(), getExecutionSpec().getBulkhead())
+                                                               : dbSession.executeAsync(statement, getExecutionSpec().getConcurrencyLimiter(), getExecutionSpec().getBulkhead());
+        if ((circuitBreaker != null) || (getExecutionSpec().getRetryBudget() != null)) {
+            Futures.addCallback(future, new ResultRecorder(getOperation(), circuitBreaker, getExecutionSpec().getRetryBudget()));
+        }
+        
+        // each read of the table is recorded, including plain reads and cancelled hedged requests
+        if (isTableRead()) {
+            future.addListener(new LatencyRecorder(dbSession.getLatencyHistogram(getTablename()), future, startNanos), MoreExecutors.directExecutor());
+        }
+        
+        return future;
+    }
+    
+    
+    /**
+     * @return true, if the query is a read of a single table, which is not a lightweight transaction 
+     */
+    private boolean isHedgeable() {
+        final ConsistencyLevel consistencyLevel = getExecutionSpec().getConsistencyLevel();
+        return isTableRead() && 
+               (consistencyLevel != ConsistencyLevel.SERIAL) && (consistencyLevel != ConsistencyLevel.LOCAL_SERIAL);
+    }
+    
+    
+    /**
+     * @return true, if the query is a read of a single table
+     */
+    private boolean isTableRead() {
+        return "read".equals(getOperation()) && (getTablename() != null);
+    }
+    
+    
+    /**
+     * @return the operation name, which selects the circuit of the circuit breaker
+     */
+    String getOperation() {
+        return "read";
+    }
+    
+    
+    /**
+     * @return the tablename the query refers to or null, if the query spans several tables such as a batch
+     */
+    Tablename getTablename() {
+        return null;
+    }
+    
+    
+    private static final class ResultRecorder implements FutureCallback<ResultSet> {
+        private final String operation;
+        private final CircuitBreaker circuitBreaker;
+        private final RetryBudget retryBudget;
+        
+        ResultRecorder(String operation, CircuitBreaker circuitBreaker, RetryBudget retryBudget) {
+            this.operation = operation;
+            this.circuitBreaker = circuitBreaker;
+            this.retryBudget = retryBudget;
+        }
+        
+        @Override
+        public void onSuccess(ResultSet result) {
+            if (circuitBreaker != null) {
+                circuitBreaker.onSuccess(operation);
+            }
+            if (retryBudget != null) {
+                retryBudget.onSuccess();
+            }
+        }
+        
+        @Override
+        public void onFailure(Throwable t) {
+            if (circuitBreaker != null) {
+                circuitBreaker.onFailure(operation, t);
+            }
+        }
+    }
+    
+    
+    private static final class LatencyRecorder implements Runnable {
+        private final LatencyHistogram histogram;
+        private final ListenableFuture<ResultSet> future;
+        private final long startNanos;
+        
+        LatencyRecorder(LatencyHistogram histogram, ListenableFuture<ResultSet> future, long startNanos) {
+            this.histogram = histogram;
+            this.future = future;
+            this.startNanos = startNanos;
+        }
+        
+        @Override
+        public void run() {
+            // a cancelled request (e.g. hedging loser) is recorded with its elapsed time, which is a lower bound of its latency
+            if (future.isCancelled() || !isRejected()) {
+                histogram.record(System.nanoTime() - startNanos);
+            }
+        }
+        
+        private boolean isRejected() {
+            // a rejected request has not been sent to the database
+            try {
+                future.get();
+                return false;
+            } catch (ExecutionException ee) {
+                return (ee.getCause() instanceof BulkheadFullException) || 
+                       (ee.getCause() instanceof ConcurrencyLimitExceededException);
+            } catch (InterruptedException | RuntimeException e) {
+                return false;
+            }
+        }
     }
     
     
@@ -55,7 +55,7 @@ class BatchMutationQuery extends MutationQuery<BatchMutation> implements BatchMu
         }
     }
     
-    private BatchMutationQuery(Context ctx, Type type, ImmutableList<Batchable<?>> batchables) {
+    BatchMutationQuery(Context ctx, Type type, ImmutableList<Batchable<?>> batchables) {
         super(ctx);
         this.type = type;
         this.batchables = batchables;
@@ -0,0 +1,199 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.oneandone.troilus.java7.Batchable;
+import net.oneandone.troilus.java7.BulkWrite;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BatchStatement.Type;
+import com.datastax.driver.core.Statement;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+/**
+ * Bulk write query 
+ */
+class BulkWriteQuery implements BulkWrite {
+    
+    static final int DEFAULT_MAX_IN_FLIGHT_WRITES = 32;
+    
+    private final Context ctx;
+    private final Publisher<?> source;
+    private final Function<Object, Batchable<?>> mutationMapper;
+    private final int maxInFlightWrites;
+    private final int maxBatchSize;
+    private final BulkWriteErrorPolicy errorPolicy;
+    
+    
+    /**
+     * @param ctx             the context
+     * @param source          the source of mutations or entities
+     * @param mutationMapper  the mapper of the source elements to mutations
+     */
+    BulkWriteQuery(Context ctx, Publisher<?> source, Function<Object, Batchable<?>> mutationMapper) {
+        this(ctx, source, mutationMapper, DEFAULT_MAX_IN_FLIGHT_WRITES, 1, BulkWriteErrorPolicy.FAIL_FAST);
+    }
+    
+    private BulkWriteQuery(Context ctx, 
+                           Publisher<?> source, 
+                           Function<Object, Batchable<?>> mutationMapper, 
+                           int maxInFlightWrites, 
+                           int maxBatchSize, 
+                           BulkWriteErrorPolicy errorPolicy) {
+        this.ctx = ctx;
+        this.source = source;
+        this.mutationMapper = mutationMapper;
+        this.maxInFlightWrites = maxInFlightWrites;
+        this.maxBatchSize = maxBatchSize;
+        this.errorPolicy = errorPolicy;
+    }
+    
+    
+    @Override
+    public BulkWriteQuery withMaxInFlight(int maxInFlightWrites) {
+        if (maxInFlightWrites < 1) {
+            throw new IllegalArgumentException("max in-flight writes must be greater than 0");
+        }
+        return new BulkWriteQuery(ctx, source, mutationMapper, maxInFlightWrites, maxBatchSize, errorPolicy);
+    }
+    
+    @Override
+    public BulkWriteQuery withPartitionBatching(int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("max batch size must be greater than 0");
+        }
+        return new BulkWriteQuery(ctx, source, mutationMapper, maxInFlightWrites, maxBatchSize, errorPolicy);
+    }
+    
+    @Override
+    public BulkWriteQuery withErrorPolicy(BulkWriteErrorPolicy errorPolicy) {
+        return new BulkWriteQuery(ctx, source, mutationMapper, maxInFlightWrites, maxBatchSize, errorPolicy);
+    }
+    
+    
+    @Override
+    public BulkWriteSummary execute() {
+        return ListenableFutures.getUninterruptibly(executeAsync());
+    }
+    
+    @Override
+    public ListenableFuture<BulkWriteSummary> executeAsync() {
+        final SettableFuture<BulkWriteSummary> summaryFuture = SettableFuture.create();
+        subscribe(new DiscardingSubscriber(), summaryFuture);
+        return summaryFuture;
+    }
+    
+    @Override
+    public Publisher<Result> executeRx() {
+        final AtomicBoolean isSubscribed = new AtomicBoolean(false);
+        
+        return new Publisher<Result>() {
+            
+            @Override
+            public void subscribe(Subscriber<? super Result> subscriber) {
+                // https://github.com/reactive-streams/reactive-streams-jvm#1.9
+                if (subscriber == null) {  
+                    throw new NullPointerException("subscriber is null");
+                }
+                
+                // the mutations are written once only
+                if (isSubscribed.getAndSet(true)) {
+                    subscriber.onError(new IllegalStateException("subscription already exists. Multi-subscribe is not supported"));
+                } else {
+                    BulkWriteQuery.this.subscribe(subscriber, SettableFuture.<BulkWriteSummary>create());
+                }
+            }
+        };
+    }
+    
+    private void subscribe(Subscriber<? super Result> subscriber, SettableFuture<BulkWriteSummary> summaryFuture) {
+        new BulkWriteSubscription(ctx.getDefaultDbSession(), new StatementWriter(ctx), source, mutationMapper, maxInFlightWrites, maxBatchSize, errorPolicy, subscriber, summaryFuture, ctx.getTaskExecutor());
+    }
+    
+    
+    
+    private static final class StatementWriter implements BulkWriteSubscription.Writer {
+        private final Context ctx;
+        
+        StatementWriter(Context ctx) {
+            this.ctx = ctx;
+        }
+        
+        @Override
+        public ListenableFuture<Result> writeAsync(ImmutableList<Batchable<?>> mutations, ImmutableList<Statement> statements) {
+            // a single mutation is executed by its own query, which validates the result (e.g. of a conditional write)
+            if ((statements.size() == 1) && (mutations.get(0) instanceof MutationQuery)) {
+                return ((MutationQuery<?>) mutations.get(0)).executeAsync(statements.get(0));
+            }
+            
+            final Statement statement;
+            if (statements.size() == 1) {
+                statement = statements.get(0);
+            } else {
+                final BatchStatement batchStatement = new BatchStatement(Type.UNLOGGED);
+                batchStatement.addAll(statements);
+                statement = batchStatement;
+            }
+            
+            // conditional mutations are not coalesced. However, a custom mutation may contain a condition 
+            final Function<Result, Result> resultValidator = new Function<Result, Result>() {
+                
+                @Override
+                public Result apply(Result result) {
+                    if (!result.wasApplied()) {
+                        throw new IfConditionException(result, "if condition does not match");
+                    }
+                    return result;
+                }
+            };
+            return Futures.transform(new BatchMutationQuery(ctx, Type.UNLOGGED, mutations).executeAsync(statement), resultValidator);
+        }
+    }
+    
+    
+    private static final class DiscardingSubscriber implements Subscriber<Result> {
+        
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            // the writes are driven by the write budget only
+            subscription.request(Long.MAX_VALUE);
+        }
+        
+        @Override
+        public void onNext(Result result) {
+        }
+        
+        @Override
+        public void onError(Throwable t) {
+        }
+        
+        @Override
+        public void onComplete() {
+        }
+    }
+}
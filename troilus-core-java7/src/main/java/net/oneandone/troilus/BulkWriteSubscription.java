@@ -0,0 +1,594 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.oneandone.troilus.java7.Batchable;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.Statement;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+/**
+ * BulkWriteSubscription. It subscribes the source of mutations and emits a result for each
+ * written mutation. Like the {@link ResultListSubscription} all signals are processed by a 
+ * serialized drain loop running on the (shared) executor. The source signals and the write
+ * completions just enqueue and schedule the drain loop again.<br>
+ * <br>
+ * The source is requested as long as the mutations which are waiting, in-flight or waiting 
+ * for demand do not exceed the window (max in-flight writes x max batch size). If batching
+ * is activated, the statement of a received mutation is resolved in advance to get its 
+ * partition. Mutations waiting for a write slot are coalesced by partition. The resolved
+ * statements are passed to the writer as they are, so the mutations are not resolved twice
+ */
+class BulkWriteSubscription implements Subscription, Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(BulkWriteSubscription.class);
+    
+    // the max number of errors kept for the summary
+    static final int MAX_COLLECTED_ERRORS = 100;
+    
+    private final DBSession dbSession;
+    private final Writer writer;
+    private final Function<Object, Batchable<?>> mutationMapper;
+    private final int maxInFlightWrites;
+    private final int maxBatchSize;
+    private final BulkWriteErrorPolicy errorPolicy;
+    private final SettableFuture<BulkWriteSummary> summaryFuture;
+    private final Executor executor;
+    
+    // the subscriber will be dropped on termination or cancellation  
+    private volatile Subscriber<? super Result> subscriber;
+    
+    private final AtomicInteger numPendingDrains = new AtomicInteger();
+    private final AtomicLong numRequested = new AtomicLong();
+    
+    private volatile boolean isCancelled = false;
+    private volatile Throwable pendingError = null;
+    
+    // source signals
+    private volatile Subscription sourceSubscription = null;
+    private volatile boolean isSourceCompleted = false;
+    private volatile Throwable sourceError = null;
+    private final Queue<PendingMutation> receivedMutations = new ConcurrentLinkedQueue<>();
+    private final Queue<CompletedWrite> completedWrites = new ConcurrentLinkedQueue<>();
+    
+    // accessed by the drain loop only
+    private boolean isSubscribed = false;
+    private boolean isTerminated = false;
+    private final Deque<PendingMutation> pendingMutations = new ArrayDeque<>();
+    private final Deque<Result> results = new ArrayDeque<>();
+    private long numOutstandingMutations = 0;
+    private int numInFlightWrites = 0;
+    private int numInFlightMutations = 0;
+    private long numWritten = 0;
+    private long numFailed = 0;
+    private long numStatements = 0;
+    private final List<Throwable> errors = Lists.newArrayList();
+  
+
+    /**
+     * @param dbSession          the db session to resolve the statements and their partitions 
+     * @param writer             the writer of the resolved statements
+     * @param source             the source of mutations or entities
+     * @param mutationMapper     the mapper of the source elements to mutations
+     * @param maxInFlightWrites  the max number of in-flight statements
+     * @param maxBatchSize       the max number of mutations of a batch
+     * @param errorPolicy        the error policy
+     * @param subscriber         the subscriber of the results
+     * @param summaryFuture      the future to complete with the summary
+     * @param executor           the executor to process the signals
+     */
+    BulkWriteSubscription(DBSession dbSession,
+                          Writer writer,
+                          Publisher<?> source,
+                          Function<Object, Batchable<?>> mutationMapper,
+                          int maxInFlightWrites,
+                          int maxBatchSize,
+                          BulkWriteErrorPolicy errorPolicy,
+                          Subscriber<? super Result> subscriber, 
+                          SettableFuture<BulkWriteSummary> summaryFuture,
+                          Executor executor) {
+        this.dbSession = dbSession;
+        this.writer = writer;
+        this.mutationMapper = mutationMapper;
+        this.maxInFlightWrites = maxInFlightWrites;
+        this.maxBatchSize = maxBatchSize;
+        this.errorPolicy = errorPolicy;
+        this.subscriber = subscriber;
+        this.summaryFuture = summaryFuture;
+        this.executor = executor;
+        
+        scheduleDrain();
+        
+        try {
+            source.subscribe(new SourceSubscriber());
+        } catch (RuntimeException rt) {
+            sourceError = rt;
+            scheduleDrain();
+        }
+    }
+
+    
+    @Override
+    public void cancel() {
+        isCancelled = true;
+        
+        // let the drain loop cancel the source and drop the subscriber. Already sent writes can not be revoked 
+        scheduleDrain();
+    }
+    
+    
+    @Override
+    public void request(long n) {                
+        if (n <= 0) {
+            // https://github.com/reactive-streams/reactive-streams#3.9
+            pendingError = new IllegalArgumentException("Non-negative number of elements must be requested: https://github.com/reactive-streams/reactive-streams#3.9");
+        } else {
+            // https://github.com/reactive-streams/reactive-streams#3.17 
+            while (true) {
+                final long current = numRequested.get();
+                if (current == Long.MAX_VALUE) {
+                    break;
+                }
+                
+                long updated = current + n;
+                if (updated < 0) {
+                    updated = Long.MAX_VALUE;
+                }
+                if (numRequested.compareAndSet(current, updated)) {
+                    break;
+                }
+            }
+        }
+        
+        scheduleDrain();
+    }
+    
+    
+    private void scheduleDrain() {
+        // the drain loop is already scheduled or running? It will pick up the new state 
+        if (numPendingDrains.getAndIncrement() == 0) {
+            try {
+                executor.execute(this);
+            } catch (RuntimeException rt) {
+                // the executor does not work anyway. The calling thread runs the drain loop to terminate the subscription. 
+                // This signals onSubscribe first, if not done so far, and releases the pending drains
+                pendingError = rt;
+                run();
+            }
+        }
+    }
+    
+    
+    // main "event loop" 
+    @Override
+    public void run() {
+        int missed = 1;
+        
+        while (true) {
+            try {
+                drain();
+            } catch (RuntimeException rt) {
+                // https://github.com/reactive-streams/reactive-streams#2.13 subscriber has violated the spec 
+                LOG.warn("error occured by signaling subscriber. Cancelling subscription", rt);
+                cancel();
+                cancelSource();
+                summaryFuture.setException(rt);
+                terminate();
+            }
+            
+            missed = numPendingDrains.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+    
+    
+    private void drain() {
+        if (isTerminated) {
+            // a source subscribed after termination
+            cancelSource();
+            return;
+        }
+        
+        if (isCancelled) {
+            cancelSource();
+            summaryFuture.cancel(false);
+            terminate();
+            return;
+        }
+        
+        if (!isSubscribed) {
+            isSubscribed = true;
+            subscriber.onSubscribe(this);
+        }
+        
+        if (pendingError != null) {
+            signalError(pendingError);
+            return;
+        }
+        
+        
+        // collect the completed writes 
+        CompletedWrite completedWrite;
+        while ((completedWrite = completedWrites.poll()) != null) {
+            numInFlightWrites--;
+            numInFlightMutations -= completedWrite.numMutations;
+            numStatements++;
+            
+            if (completedWrite.error == null) {
+                numWritten += completedWrite.numMutations;
+                for (int i = 0; i < completedWrite.numMutations; i++) {
+                    results.add(completedWrite.result);
+                }
+            } else if (!onFailed(completedWrite.numMutations, completedWrite.error)) {
+                return;
+            }
+        }
+        
+        // take over the received mutations 
+        PendingMutation receivedMutation;
+        while ((receivedMutation = receivedMutations.poll()) != null) {
+            numOutstandingMutations--;
+            
+            if (receivedMutation.mappingError == null) {
+                pendingMutations.add(receivedMutation);
+            } else if (!onFailed(1, receivedMutation.mappingError)) {
+                return;
+            }
+        }
+        
+        
+        // emit the results
+        long requested = numRequested.get();
+        long emitted = 0;
+        while (!isCancelled && (emitted < requested) && !results.isEmpty()) {
+            subscriber.onNext(results.poll());
+            emitted++;
+        }
+        
+        if (isCancelled) {
+            cancelSource();
+            summaryFuture.cancel(false);
+            terminate();
+            return;
+        }
+        
+        if ((emitted > 0) && (requested != Long.MAX_VALUE)) {
+            numRequested.addAndGet(-emitted);
+        }
+        
+        
+        // start the writes. Mutations are taken in the order of receipt 
+        while ((numInFlightWrites < maxInFlightWrites) && !pendingMutations.isEmpty() && pendingMutations.peek().isResolved()) {
+            write(takeNextWrite());
+        }
+        
+        
+        if (sourceError != null) {
+            signalError(sourceError);
+            return;
+        }
+        
+        if (isSourceCompleted && receivedMutations.isEmpty() && pendingMutations.isEmpty() && (numInFlightWrites == 0) && results.isEmpty()) {
+            signalComplete();
+            return;
+        }
+        
+        // request more mutations, if the window is not exhausted 
+        final Subscription source = sourceSubscription;
+        if ((source != null) && !isSourceCompleted) {
+            final long window = (long) maxInFlightWrites * maxBatchSize;
+            final long occupied = numOutstandingMutations + pendingMutations.size() + numInFlightMutations + results.size();
+            if (occupied < window) {
+                numOutstandingMutations += (window - occupied);
+                source.request(window - occupied);
+            }
+        }
+    }
+    
+    
+    /**
+     * @return true, if the bulk write is continued
+     */
+    private boolean onFailed(int numMutations, Throwable error) {
+        numFailed += numMutations;
+        
+        if (errorPolicy == BulkWriteErrorPolicy.FAIL_FAST) {
+            signalError(error);
+            return false;
+            
+        } else {
+            LOG.debug("write failed", error);
+            if (errors.size() < MAX_COLLECTED_ERRORS) {
+                errors.add(error);
+            }
+            return true;
+        }
+    }
+    
+    
+    private ImmutableList<PendingMutation> takeNextWrite() {
+        final PendingMutation first = pendingMutations.poll();
+        final Object partition = first.getPartition();
+        if ((maxBatchSize <= 1) || (partition == null)) {
+            return ImmutableList.of(first);
+        }
+        
+        final List<PendingMutation> mutations = Lists.newArrayList();
+        mutations.add(first);
+        
+        final Iterator<PendingMutation> it = pendingMutations.iterator();
+        while (it.hasNext() && (mutations.size() < maxBatchSize)) {
+            final PendingMutation candidate = it.next();
+            if (candidate.isResolved() && partition.equals(candidate.getPartition())) {
+                mutations.add(candidate);
+                it.remove();
+            }
+        }
+        
+        return ImmutableList.copyOf(mutations);
+    }
+    
+    
+    private void write(ImmutableList<PendingMutation> mutations) {
+        final int numMutations = mutations.size();
+        numInFlightWrites++;
+        numInFlightMutations += numMutations;
+        
+        ListenableFuture<Result> future;
+        try {
+            if (mutations.get(0).statementFuture == null) {
+                future = mutations.get(0).mutation.executeAsync();
+                
+            } else {
+                // the statements have already been resolved 
+                final ImmutableList.Builder<Batchable<?>> batchables = ImmutableList.builder();
+                final ImmutableList.Builder<Statement> statements = ImmutableList.builder();
+                for (PendingMutation mutation : mutations) {
+                    batchables.add(mutation.mutation);
+                    statements.add(mutation.statementFuture.get());
+                }
+                future = writer.writeAsync(batchables.build(), statements.build());
+            }
+        } catch (InterruptedException | ExecutionException | RuntimeException e) {
+            future = Futures.immediateFailedFuture(ListenableFutures.unwrapIfNecessary(e));
+        }
+        
+        final FutureCallback<Result> completionHandler = new FutureCallback<Result>() {
+            
+            @Override
+            public void onSuccess(Result result) {
+                completedWrites.add(new CompletedWrite(numMutations, result, null));
+                scheduleDrain();
+            }
+            
+            @Override
+            public void onFailure(Throwable t) {
+                completedWrites.add(new CompletedWrite(numMutations, null, t));
+                scheduleDrain();
+            }
+        };
+        Futures.addCallback(future, completionHandler);
+    }
+    
+    
+    private void signalComplete() {
+        final Subscriber<? super Result> s = subscriber;
+        terminate();
+        summaryFuture.set(new BulkWriteSummary(numWritten, numFailed, numStatements, ImmutableList.copyOf(errors)));
+        s.onComplete();
+    }
+    
+    
+    private void signalError(Throwable error) {
+        LOG.debug("bulk write failed", error);
+        cancelSource();
+        final Subscriber<? super Result> s = subscriber;
+        terminate();
+        summaryFuture.setException(error);
+        try {
+            s.onError(error);
+        } catch (RuntimeException rt) {
+            LOG.warn("error occured by notifying error ", rt);
+        }
+    }
+    
+    
+    private void cancelSource() {
+        final Subscription source = sourceSubscription;
+        if (source != null) {
+            source.cancel();
+        }
+    }
+    
+    
+    // Once a terminal state has been signaled (onError, onComplete) it is REQUIRED that no further signals occur
+    private void terminate() {
+        isTerminated = true;
+        subscriber = null;
+    }
+    
+    
+    
+    private final class SourceSubscriber implements Subscriber<Object> {
+        
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            if (sourceSubscription == null) {
+                sourceSubscription = subscription;
+                scheduleDrain();
+            } else {
+                // https://github.com/reactive-streams/reactive-streams-jvm#2.5
+                subscription.cancel();
+            }
+        }
+        
+        @Override
+        public void onNext(Object element) {
+            if (element == null) {
+                // https://github.com/reactive-streams/reactive-streams-jvm#2.13
+                throw new NullPointerException("element is null");
+            }
+            
+            PendingMutation mutation;
+            try {
+                final Batchable<?> batchable = mutationMapper.apply(element);
+                if (batchable == null) {
+                    throw new NullPointerException("mutation of " + element + " is null");
+                }
+                mutation = new PendingMutation(batchable, (maxBatchSize > 1) ? batchable.getStatementAsync(dbSession) : null);
+            } catch (RuntimeException rt) {
+                mutation = new PendingMutation(rt);
+            }
+            receivedMutations.add(mutation);
+            
+            if (mutation.statementFuture != null) {
+                // the mutation can not be written before its partition is known
+                final Runnable resolvedListener = new Runnable() {
+                    
+                    @Override
+                    public void run() {
+                        scheduleDrain();
+                    }
+                };
+                mutation.statementFuture.addListener(resolvedListener, MoreExecutors.directExecutor());
+            } else {
+                scheduleDrain();
+            }
+        }
+        
+        @Override
+        public void onError(Throwable t) {
+            sourceError = t;
+            scheduleDrain();
+        }
+        
+        @Override
+        public void onComplete() {
+            isSourceCompleted = true;
+            scheduleDrain();
+        }
+    }
+    
+    
+    
+    private static boolean isConditional(Batchable<?> mutation) {
+        return (mutation instanceof MutationQuery) && ((MutationQuery<?>) mutation).isConditional();
+    }
+    
+    
+    private final class PendingMutation {
+        private final Batchable<?> mutation;
+        private final ListenableFuture<Statement> statementFuture;
+        private final RuntimeException mappingError;
+        
+        // accessed by the drain loop only
+        private boolean isPartitionComputed = false;
+        private Object partition = null;
+        
+        PendingMutation(Batchable<?> mutation, ListenableFuture<Statement> statementFuture) {
+            this.mutation = mutation;
+            this.statementFuture = statementFuture;
+            this.mappingError = null;
+        }
+        
+        PendingMutation(RuntimeException mappingError) {
+            this.mutation = null;
+            this.statementFuture = null;
+            this.mappingError = mappingError;
+        }
+        
+        boolean isResolved() {
+            return (statementFuture == null) || statementFuture.isDone();
+        }
+        
+        /**
+         * @return the partition or null, if unknown. A mutation of an unknown partition will be written alone. This
+         *         also applies to conditional mutations, which result has to be validated by their own query   
+         */
+        Object getPartition() {
+            if (!isPartitionComputed && (statementFuture != null) && !isConditional(mutation)) {
+                isPartitionComputed = true;
+                try {
+                    final Statement statement = statementFuture.get();
+                    final ByteBuffer routingKey = statement.getRoutingKey(dbSession.getProtocolVersion(), dbSession.getCodecRegistry());
+                    if (routingKey != null) {
+                        partition = Arrays.asList(statement.getKeyspace(), routingKey);
+                    }
+                } catch (InterruptedException | ExecutionException | RuntimeException e) {
+                    // the error will be reported by writing the mutation 
+                }
+            }
+            
+            return partition;
+        }
+    }
+    
+    
+    /**
+     * Writer of the resolved statements  
+     */
+    interface Writer {
+        
+        /**
+         * @param mutations   the mutations to write
+         * @param statements  the resolved statements of the mutations. Several statements belong to the same partition
+         * @return the result future
+         */
+        ListenableFuture<Result> writeAsync(ImmutableList<Batchable<?>> mutations, ImmutableList<Statement> statements);
+    }
+    
+    
+    private static final class CompletedWrite {
+        private final int numMutations;
+        private final Result result;
+        private final Throwable error;
+        
+        CompletedWrite(int numMutations, Result result, Throwable error) {
+            this.numMutations = numMutations;
+            this.result = result;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+
+
+/**
+ * The summary of a completed bulk write
+ */
+public final class BulkWriteSummary {
+
+    private final long numWritten;
+    private final long numFailed;
+    private final long numStatements;
+    private final ImmutableList<Throwable> errors;
+
+
+    /**
+     * @param numWritten     the number of written mutations
+     * @param numFailed      the number of failed mutations
+     * @param numStatements  the number of executed statements
+     * @param errors         the collected errors
+     */
+    BulkWriteSummary(long numWritten, long numFailed, long numStatements, ImmutableList<Throwable> errors) {
+        this.numWritten = numWritten;
+        this.numFailed = numFailed;
+        this.numStatements = numStatements;
+        this.errors = errors;
+    }
+
+
+    /**
+     * @return the number of written mutations
+     */
+    public long getNumWritten() {
+        return numWritten;
+    }
+
+    /**
+     * @return the number of failed mutations
+     */
+    public long getNumFailed() {
+        return numFailed;
+    }
+
+    /**
+     * @return the number of executed statements. Coalesced mutations are executed by a single batch statement
+     */
+    public long getNumStatements() {
+        return numStatements;
+    }
+
+    /**
+     * @return the collected errors. The number of collected errors is limited, so that it may be less than the number of failed mutations
+     */
+    public ImmutableList<Throwable> getErrors() {
+        return errors;
+    }
+
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("written", numWritten)
+                          .add("failed", numFailed)
+                          .add("statements", numStatements)
+                          .add("errors", errors)
+                          .toString();
+    }
+}
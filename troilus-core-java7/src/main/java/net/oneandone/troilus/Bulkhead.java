@@ -0,0 +1,348 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+/**
+ * Bulkhead, which isolates the requests of a Dao (typically of a table) from the other
+ * Daos sharing the same session. It limits the in-flight statements and the in-flight
+ * page fetches of iterators and publishers. A statement exceeding the limit is rejected
+ * immediately with a {@link BulkheadFullException}. A page fetch exceeding the limit
+ * belongs to a result which is already streamed. It waits for a free place instead, up to
+ * the max number of queued page fetches. Optionally, the Dao uses a dedicated executor to
+ * process its asynchronous stages
+ */
+public final class Bulkhead {
+
+    /**
+     * the default max number of page fetches waiting for a free place
+     */
+    public static final int DEFAULT_MAX_QUEUED_PAGE_FETCHES = 1000;
+
+    private final String name;
+    private final int maxInFlightStatements;
+    private final int maxInFlightPages;
+    private final int maxQueuedPages;
+    private final Executor executor;
+
+    private final AtomicInteger numInFlightStatements = new AtomicInteger();
+    private final AtomicLong numRejectedStatements = new AtomicLong();
+
+    private final Lock pageLock = new ReentrantLock();
+    private final Deque<PendingPageFetch<?>> pageQueue = new ArrayDeque<>();
+    private int numInFlightPages = 0;
+    private final AtomicLong numRejectedPages = new AtomicLong();
+
+
+    private Bulkhead(String name, int maxInFlightStatements, int maxInFlightPages, int maxQueuedPages, Executor executor) {
+        this.name = name;
+        this.maxInFlightStatements = maxInFlightStatements;
+        this.maxInFlightPages = maxInFlightPages;
+        this.maxQueuedPages = maxQueuedPages;
+        this.executor = executor;
+    }
+
+
+    /**
+     * @param name                   the name such as the tablename
+     * @param maxInFlightStatements  the max number of in-flight statements
+     * @param maxInFlightPages       the max number of in-flight page fetches
+     * @return a new bulkhead, which uses the executor of the session
+     */
+    public static Bulkhead newBulkhead(String name, int maxInFlightStatements, int maxInFlightPages) {
+        return newBulkhead(name, maxInFlightStatements, maxInFlightPages, null);
+    }
+
+    /**
+     * @param name                   the name such as the tablename
+     * @param maxInFlightStatements  the max number of in-flight statements
+     * @param maxInFlightPages       the max number of in-flight page fetches
+     * @param executor               the dedicated executor to process the asynchronous stages or null to use the executor of the session
+     * @return a new bulkhead
+     */
+    public static Bulkhead newBulkhead(String name, int maxInFlightStatements, int maxInFlightPages, Executor executor) {
+        return newBulkhead(name, maxInFlightStatements, maxInFlightPages, DEFAULT_MAX_QUEUED_PAGE_FETCHES, executor);
+    }
+
+    /**
+     * @param name                   the name such as the tablename
+     * @param maxInFlightStatements  the max number of in-flight statements
+     * @param maxInFlightPages       the max number of in-flight page fetches
+     * @param maxQueuedPages         the max number of page fetches waiting for a free place
+     * @param executor               the dedicated executor to process the asynchronous stages or null to use the executor of the session
+     * @return a new bulkhead
+     */
+    public static Bulkhead newBulkhead(String name, int maxInFlightStatements, int maxInFlightPages, int maxQueuedPages, Executor executor) {
+        return new Bulkhead(name, maxInFlightStatements, maxInFlightPages, maxQueuedPages, executor);
+    }
+
+
+    /**
+     * @return the dedicated executor or null
+     */
+    Executor getExecutor() {
+        return executor;
+    }
+
+
+    /**
+     * @param statementRequest  the request to execute, if admitted
+     * @return the result future
+     */
+    <T> ListenableFuture<T> executeStatementAsync(Supplier<ListenableFuture<T>> statementRequest) {
+        if (!tryAcquire(numInFlightStatements, maxInFlightStatements)) {
+            numRejectedStatements.incrementAndGet();
+            return Futures.immediateFailedFuture(new BulkheadFullException("bulkhead " + name + " is saturated (max " + maxInFlightStatements + " in-flight statements)"));
+        }
+
+        final ListenableFuture<T> future = start(statementRequest);
+        final Runnable releaser = new Runnable() {
+
+            @Override
+            public void run() {
+                numInFlightStatements.decrementAndGet();
+            }
+        };
+        future.addListener(releaser, MoreExecutors.directExecutor());
+
+        return future;
+    }
+
+
+    private static boolean tryAcquire(AtomicInteger numInFlight, int maxInFlight) {
+        while (true) {
+            final int current = numInFlight.get();
+            if (current >= maxInFlight) {
+                return false;
+            } else if (numInFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+
+    /**
+     * @param pageRequest  the page fetch to execute, if admitted. If the limit is reached, the page fetch waits for a free place
+     * @return the result future
+     */
+    <T> ListenableFuture<T> executePageFetchAsync(Supplier<ListenableFuture<T>> pageRequest) {
+
+        pageLock.lock();
+        try {
+            if (numInFlightPages < maxInFlightPages) {
+                numInFlightPages++;
+
+            } else if (pageQueue.size() < maxQueuedPages) {
+                final PendingPageFetch<T> pendingPageFetch = new PendingPageFetch<>(pageRequest);
+                pageQueue.add(pendingPageFetch);
+                pendingPageFetch.removeOnCancellation();
+                return pendingPageFetch.promise;
+
+            } else {
+                numRejectedPages.incrementAndGet();
+                return Futures.immediateFailedFuture(new BulkheadFullException("bulkhead " + name + " is saturated (max " + maxInFlightPages + " in-flight and " + maxQueuedPages + " queued page fetches)"));
+            }
+        } finally {
+            pageLock.unlock();
+        }
+
+        return startPageFetch(pageRequest);
+    }
+
+
+    private <T> ListenableFuture<T> startPageFetch(Supplier<ListenableFuture<T>> pageRequest) {
+        final ListenableFuture<T> future = start(pageRequest);
+        final Runnable releaser = new Runnable() {
+
+            @Override
+            public void run() {
+                onPageFetched();
+            }
+        };
+        future.addListener(releaser, MoreExecutors.directExecutor());
+
+        return future;
+    }
+
+
+    private void onPageFetched() {
+        PendingPageFetch<?> admittedPageFetch = null;
+
+        pageLock.lock();
+        try {
+            numInFlightPages--;
+
+            while ((numInFlightPages < maxInFlightPages) && !pageQueue.isEmpty()) {
+                final PendingPageFetch<?> pendingPageFetch = pageQueue.poll();
+                if (!pendingPageFetch.promise.isDone()) {
+                    numInFlightPages++;
+                    admittedPageFetch = pendingPageFetch;
+                    break;
+                }
+            }
+        } finally {
+            pageLock.unlock();
+        }
+
+        // the admitted page fetch is started without holding the lock
+        if (admittedPageFetch != null) {
+            admittedPageFetch.start();
+        }
+    }
+
+
+    private static <T> ListenableFuture<T> start(Supplier<ListenableFuture<T>> request) {
+        try {
+            return request.get();
+        } catch (RuntimeException rt) {
+            return Futures.immediateFailedFuture(rt);
+        }
+    }
+
+
+
+    /**
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of in-flight statements
+     */
+    public int getNumInFlightStatements() {
+        return numInFlightStatements.get();
+    }
+
+    /**
+     * @return the number of in-flight page fetches
+     */
+    public int getNumInFlightPages() {
+        pageLock.lock();
+        try {
+            return numInFlightPages;
+        } finally {
+            pageLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of page fetches waiting for a free place
+     */
+    public int getNumQueuedPages() {
+        pageLock.lock();
+        try {
+            return pageQueue.size();
+        } finally {
+            pageLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of statements which have been rejected because the bulkhead was saturated
+     */
+    public long getNumRejectedStatements() {
+        return numRejectedStatements.get();
+    }
+
+    /**
+     * @return the number of page fetches which have been rejected because the bulkhead and its queue were saturated
+     */
+    public long getNumRejectedPages() {
+        return numRejectedPages.get();
+    }
+
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("name", name)
+                          .add("inFlightStatements", getNumInFlightStatements() + "/" + maxInFlightStatements)
+                          .add("inFlightPages", getNumInFlightPages() + "/" + maxInFlightPages)
+                          .add("queuedPages", getNumQueuedPages() + "/" + maxQueuedPages)
+                          .add("rejectedStatements", getNumRejectedStatements())
+                          .add("rejectedPages", getNumRejectedPages())
+                          .add("executor", executor)
+                          .toString();
+    }
+
+
+
+    private final class PendingPageFetch<T> {
+        private final SettableFuture<T> promise = SettableFuture.create();
+        private final Supplier<ListenableFuture<T>> pageRequest;
+
+        PendingPageFetch(Supplier<ListenableFuture<T>> pageRequest) {
+            this.pageRequest = pageRequest;
+        }
+
+        void removeOnCancellation() {
+            final Runnable cancellationHandler = new Runnable() {
+
+                @Override
+                public void run() {
+                    if (promise.isCancelled()) {
+                        pageLock.lock();
+                        try {
+                            pageQueue.remove(PendingPageFetch.this);
+                        } finally {
+                            pageLock.unlock();
+                        }
+                    }
+                }
+            };
+            promise.addListener(cancellationHandler, MoreExecutors.directExecutor());
+        }
+
+        void start() {
+            final ListenableFuture<T> future = startPageFetch(pageRequest);
+            ListenableFutures.propagateCancellation(promise, future);
+
+            final FutureCallback<T> resultForwarder = new FutureCallback<T>() {
+
+                @Override
+                public void onSuccess(T result) {
+                    promise.set(result);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    promise.setException(t);
+                }
+            };
+            Futures.addCallback(future, resultForwarder);
+        }
+    }
+}
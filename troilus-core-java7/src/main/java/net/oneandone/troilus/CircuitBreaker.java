@@ -0,0 +1,293 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.datastax.driver.core.exceptions.DriverException;
+import com.datastax.driver.core.exceptions.QueryValidationException;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.Maps;
+
+
+
+/**
+ * Circuit breaker, which fails fast with a {@link CircuitBreakerOpenException} once the error
+ * rate of an operation (read or write) crosses the threshold. Typically a circuit breaker is
+ * assigned to the Dao of a table. Each operation has its own circuit:
+ * <ul>
+ *   <li>closed: requests are executed. If at least the min number of requests has been executed
+ *       within the window and the failure rate reaches the threshold, the circuit opens</li>
+ *   <li>open: requests are rejected until the open duration is elapsed</li>
+ *   <li>half open: a single trial request is executed. If it succeeds, the circuit closes.
+ *       Otherwise it opens again</li>
+ * </ul>
+ * Failures are errors reported by the driver such as timeouts or unavailable hosts. Invalid
+ * queries and locally rejected requests do not count
+ */
+public final class CircuitBreaker {
+
+    /**
+     * the default failure rate threshold
+     */
+    public static final double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+
+    /**
+     * the default min number of requests within the window, before the failure rate is considered
+     */
+    public static final int DEFAULT_MIN_NUM_REQUESTS = 20;
+
+    /**
+     * the default window in millis
+     */
+    public static final long DEFAULT_WINDOW_MILLIS = 10 * 1000;
+
+    /**
+     * the default open duration in millis
+     */
+    public static final long DEFAULT_OPEN_MILLIS = 5 * 1000;
+
+
+    /**
+     * the state of a circuit
+     */
+    public static enum State { CLOSED, OPEN, HALF_OPEN };
+
+
+    private final double failureRateThreshold;
+    private final int minNumRequests;
+    private final long windowMillis;
+    private final long openMillis;
+
+    private final ConcurrentMap<String, Circuit> circuits = Maps.newConcurrentMap();
+    private final AtomicLong numRejected = new AtomicLong();
+
+
+    private CircuitBreaker(double failureRateThreshold, int minNumRequests, long windowMillis, long openMillis) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.minNumRequests = minNumRequests;
+        this.windowMillis = windowMillis;
+        this.openMillis = openMillis;
+    }
+
+
+    /**
+     * @return a new circuit breaker using the default settings
+     */
+    public static CircuitBreaker newCircuitBreaker() {
+        return newCircuitBreaker(DEFAULT_FAILURE_RATE_THRESHOLD, DEFAULT_MIN_NUM_REQUESTS, DEFAULT_WINDOW_MILLIS, DEFAULT_OPEN_MILLIS);
+    }
+
+    /**
+     * @param failureRateThreshold  the failure rate (e.g. 0.5 for 50 percent) which opens the circuit
+     * @param minNumRequests        the min number of requests within the window, before the failure rate is considered
+     * @param windowMillis          the window in millis, the failure rate is measured for
+     * @param openMillis            the duration in millis the circuit stays open, before a trial request is executed
+     * @return a new circuit breaker
+     */
+    public static CircuitBreaker newCircuitBreaker(double failureRateThreshold, int minNumRequests, long windowMillis, long openMillis) {
+        return new CircuitBreaker(failureRateThreshold, minNumRequests, windowMillis, openMillis);
+    }
+
+
+
+    /**
+     * @param operation  the operation
+     * @return true, if the request is permitted
+     */
+    boolean tryAcquirePermission(String operation) {
+        if (getCircuit(operation).tryAcquirePermission()) {
+            return true;
+        } else {
+            numRejected.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * @param operation  the operation
+     */
+    void onSuccess(String operation) {
+        getCircuit(operation).onResult(true);
+    }
+
+    /**
+     * @param operation  the operation
+     * @param error      the error
+     */
+    void onFailure(String operation, Throwable error) {
+        if ((error instanceof DriverException) && !(error instanceof QueryValidationException)) {
+            getCircuit(operation).onResult(false);
+        } else {
+            // error does not tell anything about the availability of the database
+            getCircuit(operation).onIgnored();
+        }
+    }
+
+
+    private Circuit getCircuit(String operation) {
+        Circuit circuit = circuits.get(operation);
+        if (circuit == null) {
+            circuits.putIfAbsent(operation, new Circuit());
+            circuit = circuits.get(operation);
+        }
+        return circuit;
+    }
+
+
+    /**
+     * @param operation  the operation such as read or write
+     * @return the state of the operation's circuit
+     */
+    public State getState(String operation) {
+        return getCircuit(operation).getState();
+    }
+
+    /**
+     * @return the number of requests which have been rejected by an open circuit
+     */
+    public long getNumRejected() {
+        return numRejected.get();
+    }
+
+
+    @Override
+    public String toString() {
+        final MoreObjects.ToStringHelper helper = MoreObjects.toStringHelper(this);
+        for (String operation : circuits.keySet()) {
+            helper.add(operation, getState(operation));
+        }
+        return helper.add("rejected", getNumRejected())
+                     .toString();
+    }
+
+
+
+    private final class Circuit {
+        private final Lock lock = new ReentrantLock();
+
+        private State state = State.CLOSED;
+        private long windowStartMillis = System.currentTimeMillis();
+        private int numRequests = 0;
+        private int numFailures = 0;
+        private long openedMillis = 0;
+        private boolean isTrialInFlight = false;
+
+
+        boolean tryAcquirePermission() {
+            lock.lock();
+            try {
+                switch (state) {
+
+                case OPEN:
+                    if ((System.currentTimeMillis() - openedMillis) < openMillis) {
+                        return false;
+                    }
+                    state = State.HALF_OPEN;
+                    isTrialInFlight = true;
+                    return true;
+
+                case HALF_OPEN:
+                    if (isTrialInFlight) {
+                        return false;
+                    }
+                    isTrialInFlight = true;
+                    return true;
+
+                default:
+                    return true;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onResult(boolean isSuccess) {
+            lock.lock();
+            try {
+                final long now = System.currentTimeMillis();
+
+                switch (state) {
+
+                case HALF_OPEN:
+                    isTrialInFlight = false;
+                    if (isSuccess) {
+                        state = State.CLOSED;
+                        resetWindow(now);
+                    } else {
+                        open(now);
+                    }
+                    break;
+
+                case CLOSED:
+                    if ((now - windowStartMillis) > windowMillis) {
+                        resetWindow(now);
+                    }
+
+                    numRequests++;
+                    if (!isSuccess) {
+                        numFailures++;
+                    }
+
+                    if ((numRequests >= minNumRequests) && (numFailures >= (failureRateThreshold * numRequests))) {
+                        open(now);
+                    }
+                    break;
+
+                default:
+                    // results of requests which have been started before the circuit opened
+                    break;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onIgnored() {
+            lock.lock();
+            try {
+                // releases the trial, so that another request can be tried
+                isTrialInFlight = false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        State getState() {
+            lock.lock();
+            try {
+                return state;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void open(long now) {
+            state = State.OPEN;
+            openedMillis = now;
+        }
+
+        private void resetWindow(long now) {
+            windowStartMillis = now;
+            numRequests = 0;
+            numFailures = 0;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.datastax.driver.core.exceptions.OperationTimedOutException;
+import com.datastax.driver.core.exceptions.OverloadedException;
+import com.datastax.driver.core.exceptions.ReadTimeoutException;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+/**
+ * Adaptive limiter of the in-flight database requests. The limit is adjusted by the
+ * observed latency (additive increase, multiplicative decrease): If a request completes
+ * within the latency threshold while at least the half of the limit is utilized, the limit will be increased
+ * by one. If a request exceeds the latency threshold or fails because the database is
+ * overloaded or timed out, the limit will be decreased by the backoff ratio.<br>
+ * <br>
+ * Requests exceeding the limit are queued up to the max queue size and wait up to the
+ * max wait time. Otherwise they are rejected with a {@link ConcurrencyLimitExceededException}.
+ * A limiter with a max queue size of 0 rejects exceeding requests immediately
+ */
+public final class ConcurrencyLimiter {
+
+    /**
+     * the default initial limit
+     */
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+
+    /**
+     * the default max limit
+     */
+    public static final int DEFAULT_MAX_LIMIT = 1000;
+
+    /**
+     * the default latency threshold in millis
+     */
+    public static final long DEFAULT_LATENCY_THRESHOLD_MILLIS = 500;
+
+    private static final int MIN_LIMIT = 1;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final int maxQueueSize;
+    private final long maxWaitMillis;
+
+    private final Lock lock = new ReentrantLock();
+    private final Deque<PendingRequest<?>> queue = new ArrayDeque<>();
+    private double limit;
+    private int numInFlight = 0;
+
+    private final AtomicLong numRejected = new AtomicLong();
+
+
+    private ConcurrencyLimiter(int initialLimit, int maxLimit, long latencyThresholdMillis, int maxQueueSize, long maxWaitMillis) {
+        this.limit = Math.max(MIN_LIMIT, Math.min(initialLimit, maxLimit));
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.maxQueueSize = maxQueueSize;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+
+    /**
+     * @return a new limiter using the default limits and latency threshold, which rejects exceeding requests immediately
+     */
+    public static ConcurrencyLimiter newAimdLimiter() {
+        return newAimdLimiter(DEFAULT_INITIAL_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_LATENCY_THRESHOLD_MILLIS);
+    }
+
+    /**
+     * @param initialLimit            the initial limit of in-flight requests
+     * @param maxLimit                the max limit of in-flight requests
+     * @param latencyThresholdMillis  the latency threshold in millis. Slower requests decrease the limit
+     * @return a new limiter, which rejects exceeding requests immediately
+     */
+    public static ConcurrencyLimiter newAimdLimiter(int initialLimit, int maxLimit, long latencyThresholdMillis) {
+        return newAimdLimiter(initialLimit, maxLimit, latencyThresholdMillis, 0, 0);
+    }
+
+    /**
+     * @param initialLimit            the initial limit of in-flight requests
+     * @param maxLimit                the max limit of in-flight requests
+     * @param latencyThresholdMillis  the latency threshold in millis. Slower requests decrease the limit
+     * @param maxQueueSize            the max number of requests waiting for admission
+     * @param maxWaitMillis           the max time in millis a request waits for admission
+     * @return a new limiter
+     */
+    public static ConcurrencyLimiter newAimdLimiter(int initialLimit, int maxLimit, long latencyThresholdMillis, int maxQueueSize, long maxWaitMillis) {
+        return new ConcurrencyLimiter(initialLimit, maxLimit, latencyThresholdMillis, maxQueueSize, maxWaitMillis);
+    }
+
+
+
+    /**
+     * @param request  the request to execute, if admitted
+     * @return the request future
+     */
+    <T> ListenableFuture<T> executeAsync(Supplier<ListenableFuture<T>> request) {
+
+        lock.lock();
+        try {
+            if (numInFlight < (int) limit) {
+                numInFlight++;
+
+            } else if (queue.size() < maxQueueSize) {
+                final PendingRequest<T> pendingRequest = new PendingRequest<>(request);
+                queue.add(pendingRequest);
+                pendingRequest.scheduleExpiration();
+                pendingRequest.removeOnCancellation();
+                return pendingRequest.promise;
+
+            } else {
+                numRejected.incrementAndGet();
+                return Futures.immediateFailedFuture(new ConcurrencyLimitExceededException("limit of " + (int) limit + " in-flight requests exceeded"));
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        return start(request);
+    }
+
+
+    private <T> ListenableFuture<T> start(Supplier<ListenableFuture<T>> request) {
+        final long startNanos = System.nanoTime();
+
+        ListenableFuture<T> future;
+        try {
+            future = request.get();
+        } catch (RuntimeException rt) {
+            future = Futures.immediateFailedFuture(rt);
+        }
+
+        final ListenableFuture<T> requestFuture = future;
+        final Runnable completionHandler = new Runnable() {
+
+            @Override
+            public void run() {
+                onCompleted(requestFuture, System.nanoTime() - startNanos);
+            }
+        };
+        requestFuture.addListener(completionHandler, MoreExecutors.directExecutor());
+
+        return requestFuture;
+    }
+
+
+    private void onCompleted(Future<?> future, long latencyNanos) {
+        final List<PendingRequest<?>> admittedRequests = Lists.newArrayList();
+
+        lock.lock();
+        try {
+            numInFlight--;
+
+            // cancelled requests (e.g. exceeded deadline) do not tell anything about the database
+            if (!future.isCancelled()) {
+                if ((latencyNanos > latencyThresholdNanos) || isOverloaded(future)) {
+                    limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+
+                // increase the limit only, if at least the half of it has been utilized
+                } else if (((numInFlight + 1) * 2) >= limit) {
+                    limit = Math.min(maxLimit, limit + 1);
+                }
+            }
+
+            while ((numInFlight < (int) limit) && !queue.isEmpty()) {
+                final PendingRequest<?> pendingRequest = queue.poll();
+                if (!pendingRequest.promise.isDone()) {
+                    numInFlight++;
+                    admittedRequests.add(pendingRequest);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // the admitted requests are started without holding the lock
+        for (PendingRequest<?> admittedRequest : admittedRequests) {
+            admittedRequest.start();
+        }
+    }
+
+
+    private static boolean isOverloaded(Future<?> future) {
+        try {
+            future.get();
+            return false;
+        } catch (ExecutionException ee) {
+            final Throwable cause = ee.getCause();
+            return (cause instanceof OverloadedException) ||
+                   (cause instanceof OperationTimedOutException) ||
+                   (cause instanceof ReadTimeoutException) ||
+                   (cause instanceof WriteTimeoutException);
+        } catch (InterruptedException | RuntimeException e) {
+            return false;
+        }
+    }
+
+
+
+    /**
+     * @return the current limit of in-flight requests
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of in-flight requests
+     */
+    public int getNumInFlight() {
+        lock.lock();
+        try {
+            return numInFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of requests waiting for admission
+     */
+    public int getNumQueued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of rejected requests
+     */
+    public long getNumRejected() {
+        return numRejected.get();
+    }
+
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("limit", getLimit())
+                          .add("inFlight", getNumInFlight())
+                          .add("queued", getNumQueued())
+                          .add("rejected", getNumRejected())
+                          .toString();
+    }
+
+
+
+    private final class PendingRequest<T> {
+        private final SettableFuture<T> promise = SettableFuture.create();
+        private final Supplier<ListenableFuture<T>> request;
+        private ScheduledFuture<?> expirationTimer;
+
+        PendingRequest(Supplier<ListenableFuture<T>> request) {
+            this.request = request;
+        }
+
+        void scheduleExpiration() {
+            final Runnable expiration = new Runnable() {
+
+                @Override
+                public void run() {
+                    expire();
+                }
+            };
+            expirationTimer = ListenableFutures.schedule(expiration, maxWaitMillis);
+        }
+
+        void removeOnCancellation() {
+            final Runnable cancellationHandler = new Runnable() {
+
+                @Override
+                public void run() {
+                    if (promise.isCancelled()) {
+                        remove();
+                    }
+                }
+            };
+            promise.addListener(cancellationHandler, MoreExecutors.directExecutor());
+        }
+
+        private void remove() {
+            // a cancelled request does not occupy a place of the queue anymore
+            lock.lock();
+            try {
+                queue.remove(this);
+            } finally {
+                lock.unlock();
+            }
+            expirationTimer.cancel(false);
+        }
+
+        private void expire() {
+            final boolean isRemoved;
+            lock.lock();
+            try {
+                isRemoved = queue.remove(this);
+            } finally {
+                lock.unlock();
+            }
+
+            // a request which has been cancelled in the meantime is not counted as rejected
+            if (isRemoved && promise.setException(new ConcurrencyLimitExceededException("request has not been admitted within " + maxWaitMillis + " millis"))) {
+                numRejected.incrementAndGet();
+            }
+        }
+
+        void start() {
+            expirationTimer.cancel(false);
+            
+            final ListenableFuture<T> future = ConcurrencyLimiter.this.start(request);
+            ListenableFutures.propagateCancellation(promise, future);
+
+            final FutureCallback<T> resultForwarder = new FutureCallback<T>() {
+
+                @Override
+                public void onSuccess(T result) {
+                    promise.set(result);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    promise.setException(t);
+                }
+            };
+            Futures.addCallback(future, resultForwarder);
+        }
+    }
+}
@@ -17,12 +17,7 @@ package net.oneandone.troilus;
 
 
 
-import java.lang.reflect.InvocationTargetException;
-
-import java.lang.reflect.Method;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ForkJoinPool;
 
 import net.oneandone.troilus.interceptor.QueryInterceptor;
 
@@ -42,148 +37,144 @@ public class Context  {
  
     private final ExecutionSpec executionSpec;
     private final InterceptorRegistry interceptorRegistry;
-    private final UDTValueMapper udtValueMapper;
-    private final BeanMapper beanMapper;
     private final Executor executor;
-    private final MetadataCatalog catalog;
-    private final DBSession dbSession;
+    
+    // refers the troilus session to keep a shared session alive as long as it is used by a DAO
+    private final TroilusSession session;
 
     
     /**
      * @param session    the underlying session
      */
     Context(Session session) {
-        this(session, new BeanMapper());
-    }
-    
-    private Context(Session session, BeanMapper beanMapper) {
-        this(session, beanMapper, newTaskExecutor());
+        this(TroilusSession.of(session));
     }
     
-    private Context(Session session, BeanMapper beanMapper, Executor executor) {
-        this(session, beanMapper, executor, new MetadataCatalog(session));
-    }
-    
-    private Context(Session session, BeanMapper beanMapper, Executor executor, MetadataCatalog catalog) {
-        this(session, beanMapper, executor, catalog, new DBSession(session, catalog, beanMapper));
-    }
-    
-    private Context(Session session, BeanMapper beanMapper, Executor executor, MetadataCatalog catalog, DBSession dbSession) {
-        this(dbSession, 
-             catalog,
+    /**
+     * @param session    the troilus session which is shared by all DAOs of the underlying session
+     */
+    Context(TroilusSession session) {
+        this(session,
              new ExecutionSpecImpl(), 
              new InterceptorRegistry(),
-             beanMapper,
-             new UDTValueMapper(dbSession.getProtocolVersion(), catalog, beanMapper),
-             executor);
+             session.getTaskExecutor());
     }
     
-    private Context(DBSession dbSession, 
-                    MetadataCatalog catalog,
+    private Context(TroilusSession session, 
                     ExecutionSpec executionSpec,
                     InterceptorRegistry interceptorRegistry,
-                    BeanMapper beanMapper,
-                    UDTValueMapper udtValueMapper,
                     Executor executors) {
-        this.dbSession = dbSession;
-        this.catalog = catalog;
+        this.session = session;
         this.executionSpec = executionSpec;
         this.interceptorRegistry = interceptorRegistry;
         this.executor = executors;
-        this.beanMapper = beanMapper;
-        this.udtValueMapper = udtValueMapper;
     }
  
   
     
-    private static Executor newTaskExecutor() {
-        try {
-            Method commonPoolMeth = ForkJoinPool.class.getMethod("commonPool");  // Java8 method
-            return (Executor) commonPoolMeth.invoke(ForkJoinPool.class);
-        } catch (NoSuchMethodException | SecurityException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-            return Executors.newCachedThreadPool();
-        }
-    }
-    
-    
     Context withInterceptor(QueryInterceptor interceptor) {
-        return new Context(dbSession,
-                           catalog,
-                           executionSpec,  
+        return new Context(session,
+                           executionSpec,
                            interceptorRegistry.withInterceptor(interceptor),
-                           beanMapper,
-                           udtValueMapper,
                            executor);
 
     }
     
     Context withSerialConsistency(ConsistencyLevel consistencyLevel) {
-        return new Context(dbSession,
-                           catalog,
+        return new Context(session,
                            executionSpec.withSerialConsistency(consistencyLevel),
                            interceptorRegistry,
-                           beanMapper,
-                           udtValueMapper,
                            executor);
     }
 
     Context withTtl(int ttlSec) {
-        return new Context(dbSession,
-                           catalog,
+        return new Context(session,
                            executionSpec.withTtl(ttlSec),
                            interceptorRegistry,
-                           beanMapper,
-                           udtValueMapper,
                            executor);        
     }
 
     Context withWritetime(long microsSinceEpoch) {
-        return new Context(dbSession,
-                           catalog,
+        return new Context(session,
                            executionSpec.withWritetime(microsSinceEpoch),
                            interceptorRegistry,
-                           beanMapper,
-                           udtValueMapper,
                            executor);        
     }
     
     Context withTracking() {
-        return new Context(dbSession,
-                           catalog,
+        return new Context(session,
                            executionSpec.withTracking(),
                            interceptorRegistry,
-                           beanMapper,
-                           udtValueMapper,
                            executor);        
     }
     
     Context withoutTracking() {
-        return new Context(dbSession,
-                           catalog,
+        return new Context(session,
                            executionSpec.withoutTracking(),
                            interceptorRegistry,
-                           beanMapper,
-                           udtValueMapper,
                            executor);        
     }
     
     Context withRetryPolicy(RetryPolicy policy) {
-        return new Context(dbSession,
-                           catalog,
+        return new Context(session,
                            executionSpec.withRetryPolicy(policy),
                            interceptorRegistry,
-                           beanMapper,
-                           udtValueMapper,
                            executor);        
     }
     
+    Context withTimeout(long timeoutMillis) {
+        return new Context(session,
+                           executionSpec.withTimeout(timeoutMillis),
+                           interceptorRegistry,
+                           executor);        
+    }
+    
+    Context withConcurrencyLimiter(ConcurrencyLimiter limiter) {
+        return new Context(session,
+                           executionSpec.withConcurrencyLimiter(limiter),
+                           interceptorRegistry,
+                           executor);        
+    }
+    
+    Context withBulkhead(Bulkhead bulkhead) {
+        return new Context(session,
+                           executionSpec.withBulkhead(bulkhead),
+                           interceptorRegistry,
+                           (bulkhead.getExecutor() == null) ? executor : bulkhead.getExecutor());        
+    }
+    
+    Context withRetryBudget(RetryBudget retryBudget) {
+        return new Context(session,
+                           executionSpec.withRetryBudget(retryBudget),
+                           interceptorRegistry,
+                           executor);        
+    }
+    
+    Context withCircuitBreaker(CircuitBreaker circuitBreaker) {
+        return new Context(session,
+                           executionSpec.withCircuitBreaker(circuitBreaker),
+                           interceptorRegistry,
+                           executor);        
+    }
+    
+    Context withHedging(double percentile, int maxExtraRequests) {
+        return new Context(session,
+                           executionSpec.withHedging(percentile, maxExtraRequests),
+                           interceptorRegistry,
+                           executor);        
+    }
+    
+    Context withTaskExecutor(Executor executor) {
+        return new Context(session,
+                           executionSpec,
+                           interceptorRegistry,
+                           executor);
+    }
+    
     Context withConsistency(ConsistencyLevel consistencyLevel) {
-        return new Context(dbSession,
-                           catalog,
+        return new Context(session,
                            executionSpec.withConsistency(consistencyLevel),
                            interceptorRegistry,
-                           beanMapper,
-                           udtValueMapper,
                            executor);
     }
     
@@ -191,15 +182,15 @@ public class Context  {
     
     
     DBSession getDefaultDbSession() {
-        return dbSession;
+        return session.getDbSession();
     }
     
     MetadataCatalog getCatalog() {
-        return catalog;
+        return session.getCatalog();
     }
     
     UDTValueMapper getUDTValueMapper() {
-        return udtValueMapper;
+        return session.getUDTValueMapper();
     }
     
     ExecutionSpec getExecutionSpec() {
@@ -211,7 +202,7 @@ public class Context  {
     }
     
     BeanMapper getBeanMapper() {
-        return beanMapper;
+        return session.getBeanMapper();
     }
      
     InterceptorRegistry getInterceptorRegistry() {
@@ -222,7 +213,7 @@ public class Context  {
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
-                          .add("dsession", dbSession)
+                          .add("dsession", session.getDbSession())
                           .add("execution-spec", executionSpec)
                           .add("interceptorRegistry", interceptorRegistry)
                           .toString();
@@ -238,9 +229,21 @@ public class Context  {
         private final Long writetimeMicrosSinceEpoch;
         private final Boolean enableTracing;
         private final RetryPolicy retryPolicy;
+        private final Long timeoutMillis;
+        private final ConcurrencyLimiter concurrencyLimiter;
+        private final Bulkhead bulkhead;
+        private final RetryBudget retryBudget;
+        private final CircuitBreaker circuitBreaker;
+        private final HedgingPolicy hedgingPolicy;
         
         ExecutionSpecImpl() {
             this(null, 
+                 null,
+                 null,
+                 null,
+                 null,
+                 null,
+                 null,
                  null,
                  null,
                  null,
@@ -253,13 +256,25 @@ public class Context  {
                                  Integer ttlSec,
                                  Long writetimeMicrosSinceEpoch,
                                  Boolean enableTracking,
-                                 RetryPolicy retryPolicy) {
+                                 RetryPolicy retryPolicy,
+                                 Long timeoutMillis,
+                                 ConcurrencyLimiter concurrencyLimiter,
+                                 Bulkhead bulkhead,
+                                 RetryBudget retryBudget,
+                                 CircuitBreaker circuitBreaker,
+                                 HedgingPolicy hedgingPolicy) {
             this.consistencyLevel = consistencyLevel;
             this.serialConsistencyLevel = serialConsistencyLevel;
             this.ttlSec = ttlSec;
             this.writetimeMicrosSinceEpoch = writetimeMicrosSinceEpoch;
             this.enableTracing = enableTracking;
             this.retryPolicy = retryPolicy;
+            this.timeoutMillis = timeoutMillis;
+            this.concurrencyLimiter = concurrencyLimiter;
+            this.bulkhead = bulkhead;
+            this.retryBudget = retryBudget;
+            this.circuitBreaker = circuitBreaker;
+            this.hedgingPolicy = hedgingPolicy;
         }
         
         public ExecutionSpec withConsistency(ConsistencyLevel consistencyLevel) {
@@ -268,7 +283,13 @@ public class Context  {
                                          this.ttlSec,
                                          this.writetimeMicrosSinceEpoch,
                                          this.enableTracing,
-                                         this.retryPolicy);
+                                         this.retryPolicy,
+                                         this.timeoutMillis,
+                                         this.concurrencyLimiter,
+                                         this.bulkhead,
+                                         this.retryBudget,
+                                         this.circuitBreaker,
+                                         this.hedgingPolicy);
         }
     
         public ExecutionSpec withSerialConsistency(ConsistencyLevel consistencyLevel) {
@@ -277,7 +298,13 @@ public class Context  {
                                          this.ttlSec,
                                          this.writetimeMicrosSinceEpoch,
                                          this.enableTracing,
-                                         this.retryPolicy);
+                                         this.retryPolicy,
+                                         this.timeoutMillis,
+                                         this.concurrencyLimiter,
+                                         this.bulkhead,
+                                         this.retryBudget,
+                                         this.circuitBreaker,
+                                         this.hedgingPolicy);
         }
         
         public ExecutionSpec withTtl(int ttlSec) {
@@ -286,7 +313,13 @@ public class Context  {
                                          ttlSec,
                                          this.writetimeMicrosSinceEpoch,
                                          this.enableTracing,
-                                         this.retryPolicy);
+                                         this.retryPolicy,
+                                         this.timeoutMillis,
+                                         this.concurrencyLimiter,
+                                         this.bulkhead,
+                                         this.retryBudget,
+                                         this.circuitBreaker,
+                                         this.hedgingPolicy);
         }
         
         public ExecutionSpec withWritetime(long microsSinceEpoch) {
@@ -295,7 +328,13 @@ public class Context  {
                                          this.ttlSec,
                                          microsSinceEpoch,
                                          this.enableTracing,
-                                         this.retryPolicy);
+                                         this.retryPolicy,
+                                         this.timeoutMillis,
+                                         this.concurrencyLimiter,
+                                         this.bulkhead,
+                                         this.retryBudget,
+                                         this.circuitBreaker,
+                                         this.hedgingPolicy);
         }
 
         public ExecutionSpec withTracking() {
@@ -304,7 +343,13 @@ public class Context  {
                                          this.ttlSec,
                                          this.writetimeMicrosSinceEpoch,
                                          true,
-                                         this.retryPolicy);
+                                         this.retryPolicy,
+                                         this.timeoutMillis,
+                                         this.concurrencyLimiter,
+                                         this.bulkhead,
+                                         this.retryBudget,
+                                         this.circuitBreaker,
+                                         this.hedgingPolicy);
         }
 
         public ExecutionSpec withoutTracking() {
@@ -313,7 +358,103 @@ public class Context  {
                                          this.ttlSec,
                                          this.writetimeMicrosSinceEpoch,
                                          false,
-                                         this.retryPolicy);
+                                         this.retryPolicy,
+                                         this.timeoutMillis,
+                                         this.concurrencyLimiter,
+                                         this.bulkhead,
+                                         this.retryBudget,
+                                         this.circuitBreaker,
+                                         this.hedgingPolicy);
+        }
+        
+        public ExecutionSpec withTimeout(long timeoutMillis) {
+            return new ExecutionSpecImpl(this.consistencyLevel,
+                                         this.serialConsistencyLevel,
+                                         this.ttlSec,
+                                         this.writetimeMicrosSinceEpoch,
+                                         this.enableTracing,
+                                         this.retryPolicy,
+                                         timeoutMillis,
+                                         this.concurrencyLimiter,
+                                         this.bulkhead,
+                                         this.retryBudget,
+                                         this.circuitBreaker,
+                                         this.hedgingPolicy);
+        }
+        
+        public ExecutionSpec withConcurrencyLimiter(ConcurrencyLimiter limiter) {
+            return new ExecutionSpecImpl(this.consistencyLevel,
+                                         this.serialConsistencyLevel,
+                                         this.ttlSec,
+                                         this.writetimeMicrosSinceEpoch,
+                                         this.enableTracing,
+                                         this.retryPolicy,
+                                         this.timeoutMillis,
+                                         limiter,
+                                         this.bulkhead,
+                                         this.retryBudget,
+                                         this.circuitBreaker,
+                                         this.hedgingPolicy);
+        }
+        
+        public ExecutionSpec withBulkhead(Bulkhead bulkhead) {
+            return new ExecutionSpecImpl(this.consistencyLevel,
+                                         this.serialConsistencyLevel,
+                                         this.ttlSec,
+                                         this.writetimeMicrosSinceEpoch,
+                                         this.enableTracing,
+                                         this.retryPolicy,
+                                         this.timeoutMillis,
+                                         this.concurrencyLimiter,
+                                         bulkhead,
+                                         this.retryBudget,
+                                         this.circuitBreaker,
+                                         this.hedgingPolicy);
+        }
+        
+        public ExecutionSpec withRetryBudget(RetryBudget retryBudget) {
+            return new ExecutionSpecImpl(this.consistencyLevel,
+                                         this.serialConsistencyLevel,
+                                         this.ttlSec,
+                                         this.writetimeMicrosSinceEpoch,
+                                         this.enableTracing,
+                                         this.retryPolicy,
+                                         this.timeoutMillis,
+                                         this.concurrencyLimiter,
+                                         this.bulkhead,
+                                         retryBudget,
+                                         this.circuitBreaker,
+                                         this.hedgingPolicy);
+        }
+        
+        public ExecutionSpec withCircuitBreaker(CircuitBreaker circuitBreaker) {
+            return new ExecutionSpecImpl(this.consistencyLevel,
+                                         this.serialConsistencyLevel,
+                                         this.ttlSec,
+                                         this.writetimeMicrosSinceEpoch,
+                                         this.enableTracing,
+                                         this.retryPolicy,
+                                         this.timeoutMillis,
+                                         this.concurrencyLimiter,
+                                         this.bulkhead,
+                                         this.retryBudget,
+                                         circuitBreaker,
+                                         this.hedgingPolicy);
+        }
+        
+        public ExecutionSpec withHedging(double percentile, int maxExtraRequests) {
+            return new ExecutionSpecImpl(this.consistencyLevel,
+                                         this.serialConsistencyLevel,
+                                         this.ttlSec,
+                                         this.writetimeMicrosSinceEpoch,
+                                         this.enableTracing,
+                                         this.retryPolicy,
+                                         this.timeoutMillis,
+                                         this.concurrencyLimiter,
+                                         this.bulkhead,
+                                         this.retryBudget,
+                                         this.circuitBreaker,
+                                         new HedgingPolicy(percentile, maxExtraRequests));
         }
         
         public ExecutionSpec withRetryPolicy(RetryPolicy policy) {
@@ -322,7 +463,13 @@ public class Context  {
                                          this.ttlSec,
                                          this.writetimeMicrosSinceEpoch,
                                          this.enableTracing,
-                                         policy);
+                                         policy,
+                                         this.timeoutMillis,
+                                         this.concurrencyLimiter,
+                                         this.bulkhead,
+                                         this.retryBudget,
+                                         this.circuitBreaker,
+                                         this.hedgingPolicy);
         }
 
         public ConsistencyLevel getConsistencyLevel() {
@@ -350,6 +497,30 @@ public class Context  {
             return retryPolicy;
         }
         
+        public Long getTimeoutMillis() {
+            return timeoutMillis;
+        }
+        
+        public ConcurrencyLimiter getConcurrencyLimiter() {
+            return concurrencyLimiter;
+        }
+        
+        public Bulkhead getBulkhead() {
+            return bulkhead;
+        }
+        
+        public RetryBudget getRetryBudget() {
+            return retryBudget;
+        }
+        
+        public CircuitBreaker getCircuitBreaker() {
+            return circuitBreaker;
+        }
+        
+        public HedgingPolicy getHedgingPolicy() {
+            return hedgingPolicy;
+        }
+        
         @Override
         public String toString() {
             return MoreObjects.toStringHelper("spec")
@@ -359,6 +530,12 @@ public class Context  {
                               .add("writetimeMicrosSinceEpoch", writetimeMicrosSinceEpoch)
                               .add("enableTracing", enableTracing)
                               .add("retryPolicy", retryPolicy)
+                              .add("timeoutMillis", timeoutMillis)
+                              .add("concurrencyLimiter", concurrencyLimiter)
+                              .add("bulkhead", bulkhead)
+                              .add("retryBudget", retryBudget)
+                              .add("circuitBreaker", circuitBreaker)
+                              .add("hedgingPolicy", hedgingPolicy)
                               .toString();
         }
     }
@@ -60,7 +60,7 @@ class CounterMutationQuery extends AbstractQuery<CounterMutation> implements Cou
     
     @Override
     public ListenableFuture<Result> executeAsync() {
-        ListenableFuture<ResultSet> future = performAsync(getDefaultDbSession(), getStatementAsync(getDefaultDbSession()));
+        ListenableFuture<ResultSet> future = withDeadline(data.getTablename(), performAsync(getDefaultDbSession(), getStatementAsync(getDefaultDbSession())));
         
         Function<ResultSet, Result> mapEntity = new Function<ResultSet, Result>() {
             @Override
@@ -77,5 +77,10 @@ class CounterMutationQuery extends AbstractQuery<CounterMutation> implements Cou
     public ListenableFuture<Statement> getStatementAsync(DBSession dbSession) {
         return data.toStatementAsync(getExecutionSpec(), dbSession, data.getTablename());
     }
+    
+    @Override
+    String getOperation() {
+        return "write";
+    }
 }
 
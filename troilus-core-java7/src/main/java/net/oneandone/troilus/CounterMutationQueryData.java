@@ -30,7 +30,6 @@ import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
-import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
 
@@ -150,7 +149,7 @@ class CounterMutationQueryData {
             }
 
             
-            ListenableFuture<PreparedStatement> preparedStatementFuture = dbSession.prepareAsync(update);
+            ListenableFuture<PreparedStatement> preparedStatementFuture = dbSession.prepareAsync(tablename, update);
             return dbSession.bindAsync(preparedStatementFuture, values.toArray());
             
         // where condition-based update
@@ -171,7 +170,7 @@ class CounterMutationQueryData {
                 update.where(whereCondition);
             }
             
-            return Futures.<Statement>immediateFuture(update);
+            return dbSession.prepareAndBindAsync(tablename, update);
         }
     }
 }
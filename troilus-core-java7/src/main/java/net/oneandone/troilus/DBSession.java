@@ -16,26 +16,45 @@
 package net.oneandone.troilus;
 
 
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.Host;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.RegularStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
 import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TokenRange;
 import com.datastax.driver.core.exceptions.DriverInternalError;
 import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.datastax.driver.core.policies.RetryPolicy;
 import com.datastax.driver.core.querybuilder.BuiltStatement;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.MoreObjects;
+import com.google.common.base.Supplier;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 
 
 
@@ -49,8 +68,8 @@ public class DBSession  {
     private final boolean isKeyspacenameAssigned;
     private final String keyspacename;
     private final PreparedStatementCache preparedStatementCache;
-    
-    private final AtomicLong lastCacheCleanTime = new AtomicLong(0);
+    private final ConcurrentMap<Tablename, AtomicLong> expiredRequests = Maps.newConcurrentMap();
+    private final ConcurrentMap<Tablename, LatencyHistogram> latencyHistograms = Maps.newConcurrentMap();
     
 
     
@@ -62,12 +81,23 @@ public class DBSession  {
      * @param beanMapper the bean mapper
      */
     DBSession(Session session, MetadataCatalog catalog, BeanMapper beanMapper) {
+        this(session, catalog, beanMapper, TroilusSession.DEFAULT_MAX_CACHED_STATEMENTS);
+    }
+    
+    /**
+     * constructor 
+     * @param session              the underlying session
+     * @param catalog              the metadata catalog
+     * @param beanMapper           the bean mapper
+     * @param maxCachedStatements  the max number of cached prepared statements
+     */
+    DBSession(Session session, MetadataCatalog catalog, BeanMapper beanMapper, int maxCachedStatements) {
         this.session = session;
         
         this.keyspacename = session.getLoggedKeyspace();
         this.isKeyspacenameAssigned = (keyspacename != null);
         
-        this.preparedStatementCache = new PreparedStatementCache(session);
+        this.preparedStatementCache = new PreparedStatementCache(session, maxCachedStatements);
     }
 
 
@@ -98,13 +128,80 @@ public class DBSession  {
         return getSession().getCluster().getConfiguration().getProtocolOptions().getProtocolVersion();
     }
     
+    /**
+     * @return the codec registry
+     */
+    CodecRegistry getCodecRegistry() {
+        return getSession().getCluster().getConfiguration().getCodecRegistry();
+    }
+    
+    /**
+     * @return the token ranges of the ring
+     */
+    ImmutableSet<TokenRange> getTokenRanges() {
+        return ImmutableSet.copyOf(getSession().getCluster().getMetadata().getTokenRanges());
+    }
+    
+    /**
+     * @param keyspacename  the keyspacename 
+     * @param range         the token range
+     * @return the replicas of the token range. The primary replica comes first
+     */
+    ImmutableSet<Host> getReplicas(String keyspacename, TokenRange range) {
+        return ImmutableSet.copyOf(getSession().getCluster().getMetadata().getReplicas(keyspacename, range));
+    }
+    
+    /**
+     * @return the retry policy of the cluster, which is used if the statement does not define a retry policy 
+     */
+    RetryPolicy getDefaultRetryPolicy() {
+        return getSession().getCluster().getConfiguration().getPolicies().getRetryPolicy();
+    }
+    
  
     /**
+     * @param tablename the tablename the statement refers to
      * @param statement the statement to prepare
      * @return the prepared statement future
      */
-    ListenableFuture<PreparedStatement> prepareAsync(final BuiltStatement statement) {
-        return preparedStatementCache.prepareAsync(statement);
+    ListenableFuture<PreparedStatement> prepareAsync(Tablename tablename, RegularStatement statement) {
+        return preparedStatementCache.prepareAsync(tablename, statement);
+    }
+    
+    /**
+     * prepares a statement built without bind markers such as a where condition-based 
+     * statement. The values of the statement are extracted and bound to the prepared 
+     * statement. The prepared statement is cached by the query string, which contains 
+     * the placeholders instead of the values. By binding, the routing key will be 
+     * available for token-aware routing, if the partition key is restricted by equal 
+     * conditions.
+     *    
+     * @param tablename the tablename the statement refers to
+     * @param statement the statement to prepare
+     * @return the statement future
+     */
+    ListenableFuture<Statement> prepareAndBindAsync(Tablename tablename, BuiltStatement statement) {
+        final CodecRegistry codecRegistry = getCodecRegistry();
+        
+        final ByteBuffer[] values = statement.getValues(getProtocolVersion(), codecRegistry);
+        final SimpleStatement statementToPrepare = new SimpleStatement(statement.getQueryString(codecRegistry));
+        if (statement.getSerialConsistencyLevel() != null) {
+            statementToPrepare.setSerialConsistencyLevel(statement.getSerialConsistencyLevel());
+        }
+        
+        final Function<PreparedStatement, Statement> bindStatementFunction = new Function<PreparedStatement, Statement>() {
+            @Override
+            public Statement apply(PreparedStatement preparedStatement) {
+                final BoundStatement boundStatement = preparedStatement.bind();
+                if (values != null) {
+                    for (int i = 0; i < values.length; i++) {
+                        boundStatement.setBytesUnsafe(i, values[i]);
+                    }
+                }
+                return boundStatement;
+            }
+        };
+        return Futures.transform(prepareAsync(tablename, statementToPrepare), bindStatementFunction);
     }
     
     /**
@@ -122,81 +219,367 @@ public class DBSession  {
         return Futures.transform(preparedStatementFuture, bindStatementFunction);
     }
     
+    /**
+     * binds the values by using the prepared statement of the given shape. If the 
+     * statement of this shape has already been prepared, no CQL string will be built
+     * 
+     * @param shape             the shape of the statement 
+     * @param statementBuilder  the statement builder which will be called, if the shape is not prepared so far  
+     * @param values            the values to bind
+     * @return the statement future
+     */
+    ListenableFuture<Statement> bindAsync(StatementShape shape, Supplier<? extends BuiltStatement> statementBuilder, Object[] values) {
+        final PreparedStatement preparedStatement = preparedStatementCache.getIfPresent(shape);
+        if (preparedStatement == null) {
+            return bindAsync(preparedStatementCache.prepareAsync(shape, statementBuilder), values);
+        } else {
+            try {
+                return Futures.<Statement>immediateFuture(preparedStatement.bind(values));
+            } catch (RuntimeException rt) {
+                return Futures.immediateFailedFuture(rt);
+            }
+        }
+    }
+    
     
     /**
      * @param statement  te statement to execute in an async manner
      * @return the resultset future
      */
-    public ListenableFuture<ResultSet> executeAsync(Statement statement) {
+    public ListenableFuture<ResultSet> executeAsync(final Statement statement) {
         try {
-            return getSession().executeAsync(statement);
+            final ListenableFuture<ResultSet> future = getSession().executeAsync(statement);
+            
+            final FutureCallback<ResultSet> invalidQueryCallback = new FutureCallback<ResultSet>() {
+                
+                @Override
+                public void onSuccess(ResultSet result) { }
+                
+                @Override
+                public void onFailure(Throwable t) {
+                    if ((t instanceof InvalidQueryException) || (t instanceof DriverInternalError)) {
+                        invalidate(statement);
+                    }
+                }
+            };
+            Futures.addCallback(future, invalidQueryCallback);
+            
+            return future;
         } catch (InvalidQueryException | DriverInternalError e) {
-            cleanUp();
+            invalidate(statement);
             LOG.warn("could not execute statement", e);
             return Futures.immediateFailedFuture(e);
         }
     }
+    
+    
+    /**
+     * @param tablename      the tablename the request refers to or null, if the request spans several tables
+     * @param future         the request future
+     * @param timeoutMillis  the timeout in millis or null, if no deadline is set
+     * @return the request future, which will fail and cancel the request if the deadline is exceeded
+     */
+    <T> ListenableFuture<T> withDeadline(final Tablename tablename, ListenableFuture<T> future, Long timeoutMillis) {
+        if (timeoutMillis == null) {
+            return future;
+        }
+        
+        final Runnable expiredRequestCounter = new Runnable() {
+            
+            @Override
+            public void run() {
+                if (tablename != null) {
+                    AtomicLong counter = expiredRequests.get(tablename);
+                    if (counter == null) {
+                        expiredRequests.putIfAbsent(tablename, new AtomicLong());
+                        counter = expiredRequests.get(tablename);
+                    }
+                    counter.incrementAndGet();
+                }
+            }
+        };
+        return ListenableFutures.withDeadline(future, timeoutMillis, expiredRequestCounter);
+    }
+    
+    /**
+     * @param tablename      the tablename the request refers to or null, if the request spans several tables
+     * @param future         the request future
+     * @param deadlineNanos  the absolute deadline in terms of {@link System#nanoTime()} or null, if no deadline is set
+     * @return the request future, which will fail and cancel the request if the remaining time of the deadline is exceeded
+     */
+    <T> ListenableFuture<T> withAbsoluteDeadline(Tablename tablename, ListenableFuture<T> future, Long deadlineNanos) {
+        if (deadlineNanos == null) {
+            return future;
+        }
+        return withDeadline(tablename, future, Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime())));
+    }
+    
+    /**
+     * @return the number of requests per table which have been cancelled because of an exceeded deadline
+     */
+    ImmutableMap<Tablename, Long> getNumExpiredRequests() {
+        final ImmutableMap.Builder<Tablename, Long> builder = ImmutableMap.builder();
+        for (Entry<Tablename, AtomicLong> entry : expiredRequests.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue().get());
+        }
+        return builder.build();
+    }
+    
+    
+    /**
+     * @param tablename  the tablename
+     * @return the latency histogram of the table's read requests
+     */
+    LatencyHistogram getLatencyHistogram(Tablename tablename) {
+        LatencyHistogram histogram = latencyHistograms.get(tablename);
+        if (histogram == null) {
+            latencyHistograms.putIfAbsent(tablename, new LatencyHistogram());
+            histogram = latencyHistograms.get(tablename);
+        }
+        return histogram;
+    }
+    
+    
+    /**
+     * @param statement  the statement to execute in an async manner
+     * @param limiter    the concurrency limiter or null
+     * @return the resultset future
+     */
+    ListenableFuture<ResultSet> executeAsync(final Statement statement, ConcurrencyLimiter limiter) {
+        if (limiter == null) {
+            return executeAsync(statement);
+        } 
+        
+        final Supplier<ListenableFuture<ResultSet>> request = new Supplier<ListenableFuture<ResultSet>>() {
+            
+            @Override
+            public ListenableFuture<ResultSet> get() {
+                return executeAsync(statement);
+            }
+        };
+        return limiter.executeAsync(request);
+    }
+    
+    
+    /**
+     * @param statement  the statement to execute in an async manner
+     * @param limiter    the concurrency limiter or null
+     * @param bulkhead   the bulkhead or null
+     * @return the resultset future
+     */
+    ListenableFuture<ResultSet> executeAsync(final Statement statement, final ConcurrencyLimiter limiter, Bulkhead bulkhead) {
+        if (bulkhead == null) {
+            return executeAsync(statement, limiter);
+        } 
+        
+        final Supplier<ListenableFuture<ResultSet>> request = new Supplier<ListenableFuture<ResultSet>>() {
+            
+            @Override
+            public ListenableFuture<ResultSet> get() {
+                return executeAsync(statement, limiter);
+            }
+        };
+        return bulkhead.executeStatementAsync(request);
+    }
+    
+    
+    /**
+     * @param statement  the statement to query a further page of a result in an async manner
+     * @param limiter    the concurrency limiter or null
+     * @param bulkhead   the bulkhead or null
+     * @return the resultset future
+     */
+    ListenableFuture<ResultSet> executePageFetchAsync(final Statement statement, final ConcurrencyLimiter limiter, Bulkhead bulkhead) {
+        if (bulkhead == null) {
+            return executeAsync(statement, limiter);
+        } 
+        
+        final Supplier<ListenableFuture<ResultSet>> request = new Supplier<ListenableFuture<ResultSet>>() {
+            
+            @Override
+            public ListenableFuture<ResultSet> get() {
+                return executeAsync(statement, limiter);
+            }
+        };
+        return bulkhead.executePageFetchAsync(request);
+    }
+    
+    
+    /**
+     * invalidates the prepared statements of the table
+     * @param keyspacename  the keyspacename
+     * @param tablename     the tablename or null to invalidate the statements of all tables of the keyspace
+     */
+    void invalidate(String keyspacename, String tablename) {
+        preparedStatementCache.invalidate(keyspacename, tablename);
+    }
+    
+    
+    /**
+     * invalidates the prepared statement(s) the statement is based on  
+     * @param statement the statement
+     */
+    private void invalidate(Statement statement) {
+        if (statement instanceof BoundStatement) {
+            preparedStatementCache.invalidate(((BoundStatement) statement).preparedStatement());
+            
+        } else if (statement instanceof BatchStatement) {
+            for (Statement childStatement : ((BatchStatement) statement).getStatements()) {
+                invalidate(childStatement);
+            }
+        }
+    }
 
     
     
+    /**
+     * @return the number of statement preparations which has been avoided by sharing an in-flight preparation
+     */
+    long getNumAvoidedPreparations() {
+        return preparedStatementCache.getNumAvoidedPreparations();
+    }
+    
+    
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
                           .add("preparedStatementsCache", preparedStatementCache.toString())
+                          .add("expiredRequests", getNumExpiredRequests())
                           .toString();
     }
-  
-    
-    private void cleanUp() {
-
-        // avoid bulk clean calls within the same time
-        if (System.currentTimeMillis() > (lastCacheCleanTime.get() + 1600)) {  // not really thread safe. However this does not matter 
-            lastCacheCleanTime.set(System.currentTimeMillis());
-
-            preparedStatementCache.invalidateAll();
-        }
-    }
     
     
     
     private static final class PreparedStatementCache {
         private final Session session;
-        private final Cache<String, PreparedStatement> preparedStatementCache;
+        private final Cache<StatementShape, PreparedStatement> preparedStatementCache;
+        private final Cache<StatementShape, PreparedStatement> shapeCache;
+        private final ConcurrentMap<StatementShape, ListenableFuture<PreparedStatement>> inFlightPreparations = Maps.newConcurrentMap();
+        private final AtomicLong avoidedPreparations = new AtomicLong(0);
 
-        public PreparedStatementCache(Session session) {
+        public PreparedStatementCache(Session session, int maxCachedStatements) {
             this.session = session;
-            this.preparedStatementCache = CacheBuilder.newBuilder().maximumSize(150).<String, PreparedStatement>build();
+            this.preparedStatementCache = CacheBuilder.newBuilder().maximumSize(maxCachedStatements).<StatementShape, PreparedStatement>build();
+            this.shapeCache = CacheBuilder.newBuilder().maximumSize(maxCachedStatements).<StatementShape, PreparedStatement>build();
         }
         
         
-        ListenableFuture<PreparedStatement> prepareAsync(final BuiltStatement statement) {
-            final PreparedStatement preparedStatment = preparedStatementCache.getIfPresent(statement.getQueryString());
-            if (preparedStatment == null) {
-                final ListenableFuture<PreparedStatement> future = session.prepareAsync(statement);
-                
-                final Function<PreparedStatement, PreparedStatement> addToCacheFunction = new Function<PreparedStatement, PreparedStatement>() {
-                    
-                    public PreparedStatement apply(PreparedStatement preparedStatment) {
-                        preparedStatementCache.put(statement.getQueryString(), preparedStatment);
-                        return preparedStatment;
-                    }
-                };
+        PreparedStatement getIfPresent(StatementShape shape) {
+            return shapeCache.getIfPresent(shape);
+        }
+        
+        
+        ListenableFuture<PreparedStatement> prepareAsync(final StatementShape shape, Supplier<? extends BuiltStatement> statementBuilder) {
+            final Function<PreparedStatement, PreparedStatement> addToCacheFunction = new Function<PreparedStatement, PreparedStatement>() {
                 
-                return Futures.transform(future, addToCacheFunction);
-            } else {
+                public PreparedStatement apply(PreparedStatement preparedStatment) {
+                    shapeCache.put(shape, preparedStatment);
+                    return preparedStatment;
+                }
+            };
+            
+            return Futures.transform(prepareAsync(shape.getTablename(), statementBuilder.get()), addToCacheFunction);
+        }
+        
+        
+        ListenableFuture<PreparedStatement> prepareAsync(Tablename tablename, RegularStatement statement) {
+            final StatementShape query = StatementShape.newShape("CQL", tablename)
+                                                       .add(statement.getQueryString())
+                                                       .build();
+            
+            final PreparedStatement preparedStatment = preparedStatementCache.getIfPresent(query);
+            if (preparedStatment != null) {
                 return Futures.immediateFuture(preparedStatment);
             }
+            
+            // single-flight: concurrent callers of the same query share one in-flight preparation 
+            final SettableFuture<PreparedStatement> promise = SettableFuture.create();
+            final ListenableFuture<PreparedStatement> inFlight = inFlightPreparations.putIfAbsent(query, promise);
+            if (inFlight != null) {
+                avoidedPreparations.incrementAndGet();
+                return inFlight;
+            }
+            
+            // the statement may have been prepared in the meantime 
+            final PreparedStatement justPreparedStatment = preparedStatementCache.getIfPresent(query);
+            if (justPreparedStatment != null) {
+                inFlightPreparations.remove(query, promise);
+                promise.set(justPreparedStatment);
+                return promise;
+            }
+            
+            final ListenableFuture<PreparedStatement> future;
+            try {
+                future = session.prepareAsync(statement);
+            } catch (RuntimeException rt) {
+                inFlightPreparations.remove(query, promise);
+                promise.setException(rt);
+                return promise;
+            }
+            
+            final FutureCallback<PreparedStatement> addToCacheCallback = new FutureCallback<PreparedStatement>() {
+                
+                @Override
+                public void onSuccess(PreparedStatement preparedStatment) {
+                    preparedStatementCache.put(query, preparedStatment);
+                    inFlightPreparations.remove(query, promise);
+                    promise.set(preparedStatment);
+                }
+                
+                @Override
+                public void onFailure(Throwable t) {
+                    // failed preparations are not cached. The next caller will retry 
+                    inFlightPreparations.remove(query, promise);
+                    promise.setException(t);
+                }
+            };
+            Futures.addCallback(future, addToCacheCallback);
+            
+            return promise;
+        }
+        
+        
+        /**
+         * @return the number of preparations which has been avoided by joining an in-flight preparation 
+         */
+        long getNumAvoidedPreparations() {
+            return avoidedPreparations.get();
         }
         
         
-        public void invalidateAll() {
-            preparedStatementCache.invalidateAll();
-        }      
+        void invalidate(String keyspacename, String tablename) {
+            invalidate(shapeCache, keyspacename, tablename);
+            invalidate(preparedStatementCache, keyspacename, tablename);
+        }
+        
+        private static void invalidate(Cache<StatementShape, PreparedStatement> cache, String keyspacename, String tablename) {
+            for (Iterator<StatementShape> it = cache.asMap().keySet().iterator(); it.hasNext(); ) {
+                if (it.next().getTablename().matches(keyspacename, tablename)) {
+                    it.remove();
+                }
+            }
+        }
+        
+        void invalidate(PreparedStatement preparedStatement) {
+            invalidate(shapeCache, preparedStatement);
+            invalidate(preparedStatementCache, preparedStatement);
+        }
+        
+        private static void invalidate(Cache<StatementShape, PreparedStatement> cache, PreparedStatement preparedStatement) {
+            for (Iterator<PreparedStatement> it = cache.asMap().values().iterator(); it.hasNext(); ) {
+                if (it.next() == preparedStatement) {
+                    it.remove();
+                }
+            }
+        }
         
         
         @Override
         public String toString() {
-            return Joiner.on(", ").withKeyValueSeparator("=").join(preparedStatementCache.asMap());
+            return MoreObjects.toStringHelper(this)
+                              .add("avoidedPreparations", avoidedPreparations.get())
+                              .add("preparedStatements", Joiner.on(", ").withKeyValueSeparator("=").join(preparedStatementCache.asMap()))
+                              .toString();
         }
     }
 }
\ No newline at end of file
@@ -27,8 +27,8 @@ import net.oneandone.troilus.interceptor.DeleteQueryData;
 import net.oneandone.troilus.java7.Batchable;
 import net.oneandone.troilus.java7.Deletion;
 import net.oneandone.troilus.java7.interceptor.CascadeOnDeleteInterceptor;
-import net.oneandone.troilus.java7.interceptor.DeleteQueryRequestInterceptor;
 
+import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.Clause;
 import com.google.common.base.Function;
@@ -39,6 +39,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 
 
@@ -135,27 +136,40 @@ class DeleteQuery extends MutationQuery<Deletion> implements Deletion {
     }
     
     @Override
-    public ListenableFuture<Result> executeAsync() {
-        ListenableFuture<Result> future = super.executeAsync();
-        
-        Function<Result, Result> validateOnlyIfFunction = new Function<Result, Result>() {
-            @Override
-            public Result apply(Result result) {
-                if (!data.getOnlyIfConditions().isEmpty() && !result.wasApplied()) {
-                    throw new IfConditionException(result, "if condition does not match");
-                }
-                return result;
-            }
-        };
-        return Futures.transform(future, validateOnlyIfFunction);
+    protected Result toResult(ResultSet resultSet) {
+        final Result result = super.toResult(resultSet);
+        if (!data.getOnlyIfConditions().isEmpty() && !result.wasApplied()) {
+            throw new IfConditionException(result, "if condition does not match");
+        }
+        return result;
+    }
+    
+    @Override
+    Tablename getTablename() {
+        return data.getTablename();
+    }
+    
+    @Override
+    boolean isConditional() {
+        return ((data.getIfExists() != null) && data.getIfExists()) || !data.getOnlyIfConditions().isEmpty();
     }
     
 
     @Override
     public ListenableFuture<Statement> getStatementAsync(final DBSession dbSession) {
         
+        // fast path: without interceptors the statement is built on the calling thread 
+        if (getInterceptorRegistry().getDeleteRequestPipeline().isEmpty() &&
+            getInterceptorRegistry().getInterceptors(CascadeOnDeleteInterceptor.class).isEmpty()) {
+            try {
+                return DeleteQueryDataImpl.toStatementAsync(data, getExecutionSpec(), getUDTValueMapper(), dbSession);
+            } catch (RuntimeException rt) {
+                return Futures.immediateFailedFuture(rt);
+            }
+        }
+        
         // perform request executors
-        ListenableFuture<DeleteQueryData> queryDataFuture = executeRequestInterceptorsAsync(Futures.<DeleteQueryData>immediateFuture(data));
+        ListenableFuture<DeleteQueryData> queryDataFuture = getInterceptorRegistry().getDeleteRequestPipeline().executeAsync(null, data, getExecutor());
         
         // query data to statement
         Function<DeleteQueryData, ListenableFuture<Statement>> queryDataToStatement = new Function<DeleteQueryData, ListenableFuture<Statement>>() {
@@ -169,7 +183,7 @@ class DeleteQuery extends MutationQuery<Deletion> implements Deletion {
         };
         
         
-        ListenableFuture<Statement> statementFuture = ListenableFutures.transform(queryDataFuture, queryDataToStatement, getExecutor());
+        ListenableFuture<Statement> statementFuture = ListenableFutures.transform(queryDataFuture, queryDataToStatement);
         if (getInterceptorRegistry().getInterceptors(CascadeOnDeleteInterceptor.class).isEmpty()) {
             return statementFuture;
         
@@ -185,26 +199,6 @@ class DeleteQuery extends MutationQuery<Deletion> implements Deletion {
     
    
     
-    private ListenableFuture<DeleteQueryData> executeRequestInterceptorsAsync(ListenableFuture<DeleteQueryData> queryDataFuture) {
-
-        for (DeleteQueryRequestInterceptor interceptor : getInterceptorRegistry().getInterceptors(DeleteQueryRequestInterceptor.class).reverse()) {
-            final DeleteQueryRequestInterceptor icptor = interceptor;
-
-            Function<DeleteQueryData, ListenableFuture<DeleteQueryData>> mapperFunction = new Function<DeleteQueryData, ListenableFuture<DeleteQueryData>>() {
-                @Override
-                public ListenableFuture<DeleteQueryData> apply(DeleteQueryData queryData) {
-                    return icptor.onDeleteRequestAsync(queryData);
-                }
-            };
-            
-            // running interceptors within dedicated threads!
-            queryDataFuture = ListenableFutures.transform(queryDataFuture, mapperFunction, getExecutor());
-        }
-
-        return queryDataFuture; 
-    }
-    
-    
     private ListenableFuture<ImmutableSet<Statement>> executeCascadeInterceptorsAsync(final DBSession dbSession, ListenableFuture<DeleteQueryData> queryDataFuture) {
         Set<ListenableFuture<ImmutableSet<Statement>>> statmentFutures = Sets.newHashSet();
         
@@ -217,13 +211,14 @@ class DeleteQuery extends MutationQuery<Deletion> implements Deletion {
                     return icptor.onDeleteAsync(queryData);                    
                 }
             };
-            ListenableFuture<ImmutableSet<? extends Batchable<?>>> batchablesFutureSet = ListenableFutures.transform(queryDataFuture, querydataToBatchables);
+            
+            // running interceptors within dedicated threads!
+            ListenableFuture<ImmutableSet<? extends Batchable<?>>> batchablesFutureSet = ListenableFutures.transform(queryDataFuture, querydataToBatchables, getExecutor());
             
             ListenableFuture<ImmutableSet<Statement>> flattenStatementFutureSet = transformBatchablesToStatement(dbSession, batchablesFutureSet);
             statmentFutures.add(flattenStatementFutureSet);
         }
 
-        // running interceptors within dedicated threads!
-        return ListenableFutures.flat(ImmutableSet.copyOf(statmentFutures), getExecutor());
+        return ListenableFutures.flat(ImmutableSet.copyOf(statmentFutures), MoreExecutors.directExecutor());
     }
 }
@@ -26,14 +26,13 @@ import java.util.Map.Entry;
 
 import net.oneandone.troilus.interceptor.DeleteQueryData;
 
-import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.Clause;
 import com.datastax.driver.core.querybuilder.Delete;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
-import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
 
@@ -160,49 +159,80 @@ class DeleteQueryDataImpl implements DeleteQueryData {
      * @param ctx   the context
      * @return the query data statement
      */
-    static ListenableFuture<Statement> toStatementAsync(DeleteQueryData data, ExecutionSpec executionSpec, UDTValueMapper udtValueMapper, DBSession dbSession) {
-        
-    	Delete.Selection deletion = delete();
-        Delete delete = (data.getTablename().getKeyspacename() == null) ? deletion.from(data.getTablename().getTablename())
-                                                                        : deletion.from(data.getTablename().getKeyspacename(), data.getTablename().getTablename());
-
-        for (Clause onlyIfCondition : data.getOnlyIfConditions()) {
-            delete.onlyIf(onlyIfCondition);
-        }
-        
-        if ((data.getIfExists() != null) && data.getIfExists()) {
-            delete.ifExists();
-        }
-        
-        if(data.getMapValuesToRemove() !=null) {
-        	for(Entry<String, List<Object>> entry : data.getMapValuesToRemove().entrySet()) {
-        		for(Object object : entry.getValue()) {
-        			deletion.mapElt(entry.getKey(), object);
-        		}
-        	}
-        }
+    static ListenableFuture<Statement> toStatementAsync(final DeleteQueryData data, ExecutionSpec executionSpec, UDTValueMapper udtValueMapper, DBSession dbSession) {
         
         // key-based delete    
         if (data.getWhereConditions().isEmpty()) {
-            List<Object> values = Lists.newArrayList();
+            final List<Object> values = Lists.newArrayList();
+            final StatementShape.Builder shape = StatementShape.newShape("DELETE", data.getTablename())
+                                                               .add(data.getIfExists());
+            
+            // map elements are bound, so the shape depends on the number of elements only 
+            if (data.getMapValuesToRemove() != null) {
+                for (Entry<String, List<Object>> entry : data.getMapValuesToRemove().entrySet()) {
+                    shape.add("MAP_ELEMENTS", entry.getKey()).add(entry.getValue().size());
+                    values.addAll(entry.getValue());
+                }
+            }
             
             for (Entry<String, Object> entry : data.getKey().entrySet()) {
-                Clause keybasedWhereClause = eq(entry.getKey(), bindMarker());
-                delete.where(keybasedWhereClause);
-                                
+                shape.add("=", entry.getKey());
                 values.add(udtValueMapper.toStatementValue(data.getTablename(), entry.getKey(), entry.getValue()));
             }
             
-            ListenableFuture<PreparedStatement> preparedStatementFuture = dbSession.prepareAsync(delete);
-            return dbSession.bindAsync(preparedStatementFuture, values.toArray());
+            final Supplier<Delete> statementBuilder = new Supplier<Delete>() {
+                
+                @Override
+                public Delete get() {
+                    final Delete delete = newDelete(data, true);
+                    for (String keyname : data.getKey().keySet()) {
+                        delete.where(eq(keyname, bindMarker()));
+                    }
+                    return delete;
+                }
+            };
+            
+            // only-if conditions carry literal values which are not part of the shape 
+            if (data.getOnlyIfConditions().isEmpty()) {
+                return dbSession.bindAsync(shape.build(), statementBuilder, values.toArray());
+            } else {
+                return dbSession.bindAsync(dbSession.prepareAsync(data.getTablename(), statementBuilder.get()), values.toArray());
+            }
             
         // where condition-based delete    
         } else {
+            final Delete delete = newDelete(data, false);
             for (Clause whereCondition : data.getWhereConditions()) {
                 delete.where(whereCondition);
             }
            
-            return Futures.<Statement>immediateFuture(delete);
+            return dbSession.prepareAndBindAsync(data.getTablename(), delete);
         }        
     }
+    
+    
+    private static Delete newDelete(DeleteQueryData data, boolean isBindMapElements) {
+        final Delete.Selection deletion = delete();
+        
+        if (data.getMapValuesToRemove() != null) {
+            for (Entry<String, List<Object>> entry : data.getMapValuesToRemove().entrySet()) {
+                for (Object object : entry.getValue()) {
+                    deletion.mapElt(entry.getKey(), isBindMapElements ? bindMarker() : object);
+                }
+            }
+        }
+        
+        final Delete delete = (data.getTablename().getKeyspacename() == null) ? deletion.from(data.getTablename().getTablename())
+                                                                              : deletion.from(data.getTablename().getKeyspacename(), data.getTablename().getTablename());
+
+        for (Clause onlyIfCondition : data.getOnlyIfConditions()) {
+            delete.onlyIf(onlyIfCondition);
+        }
+        
+        if ((data.getIfExists() != null) && data.getIfExists()) {
+            delete.ifExists();
+        }
+        
+        return delete;
+    }
 }
\ No newline at end of file
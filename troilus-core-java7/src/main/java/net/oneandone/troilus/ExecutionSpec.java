@@ -38,6 +38,18 @@ public interface ExecutionSpec {
     
     ExecutionSpec withRetryPolicy(RetryPolicy policy);
     
+    ExecutionSpec withTimeout(long timeoutMillis);
+    
+    ExecutionSpec withConcurrencyLimiter(ConcurrencyLimiter limiter);
+    
+    ExecutionSpec withBulkhead(Bulkhead bulkhead);
+    
+    ExecutionSpec withRetryBudget(RetryBudget retryBudget);
+    
+    ExecutionSpec withCircuitBreaker(CircuitBreaker circuitBreaker);
+    
+    ExecutionSpec withHedging(double percentile, int maxExtraRequests);
+    
     ConsistencyLevel getConsistencyLevel();
         
     ConsistencyLevel getSerialConsistencyLevel();
@@ -49,4 +61,16 @@ public interface ExecutionSpec {
     Boolean getEnableTracing();
         
     RetryPolicy getRetryPolicy();
+    
+    Long getTimeoutMillis();
+    
+    ConcurrencyLimiter getConcurrencyLimiter();
+    
+    Bulkhead getBulkhead();
+    
+    RetryBudget getRetryBudget();
+    
+    CircuitBreaker getCircuitBreaker();
+    
+    HedgingPolicy getHedgingPolicy();
 }
\ No newline at end of file
@@ -0,0 +1,231 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+/**
+ * Hedging policy of read requests. If a request has not been completed within the latency 
+ * percentile observed for the table, a duplicate request will be sent. The first successful 
+ * result is used and the other requests will be cancelled. The request fails, if all sent 
+ * requests have failed. The latencies of the table's read requests, including the cancelled 
+ * ones, are recorded by the query execution
+ */
+final class HedgingPolicy {
+    
+    private final double percentile;
+    private final int maxExtraRequests;
+    
+    
+    /**
+     * @param percentile        the latency percentile such as 95, which triggers a hedged request
+     * @param maxExtraRequests  the max number of hedged requests per query
+     */
+    HedgingPolicy(double percentile, int maxExtraRequests) {
+        this.percentile = percentile;
+        this.maxExtraRequests = maxExtraRequests;
+    }
+
+    
+    /**
+     * @param histogram  the latency histogram of the table
+     * @param request    the request to execute. It will be called once for each hedged request  
+     * @param executor   the executor to send the hedged requests
+     * @return the result future of the first successful request
+     */
+    <T> ListenableFuture<T> executeAsync(LatencyHistogram histogram, Supplier<ListenableFuture<T>> request, Executor executor) {
+        return new HedgedRequest<>(request, histogram.getPercentileMillis(percentile), executor).start();
+    }
+    
+    
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("percentile", percentile)
+                          .add("maxExtraRequests", maxExtraRequests)
+                          .toString();
+    }
+    
+    
+    
+    private final class HedgedRequest<T> {
+        private final SettableFuture<T> promise = SettableFuture.create();
+        private final Supplier<ListenableFuture<T>> request;
+        private final Long delayMillis;
+        private final Executor executor;
+        
+        private final Lock lock = new ReentrantLock();
+        private final List<ListenableFuture<T>> attempts = Lists.newArrayList();
+        private int numPending = 0;
+        private int numExtraRequests = 0;
+        private ScheduledFuture<?> hedgeTimer;
+        
+        
+        /**
+         * @param request      the request 
+         * @param delayMillis  the delay of a hedged request or null, if no hedged request should be sent
+         * @param executor     the executor to send the hedged requests
+         */
+        HedgedRequest(Supplier<ListenableFuture<T>> request, Long delayMillis, Executor executor) {
+            this.request = request;
+            this.delayMillis = delayMillis;
+            this.executor = executor;
+        }
+
+        
+        ListenableFuture<T> start() {
+            final Runnable loserCanceller = new Runnable() {
+                
+                @Override
+                public void run() {
+                    cancelPending();
+                }
+            };
+            promise.addListener(loserCanceller, MoreExecutors.directExecutor());
+            
+            send();
+            return promise;
+        }
+        
+        
+        private void send() {
+            ListenableFuture<T> attempt;
+            try {
+                attempt = request.get();
+            } catch (RuntimeException rt) {
+                attempt = Futures.immediateFailedFuture(rt);
+            }
+            
+            lock.lock();
+            try {
+                attempts.add(attempt);
+                numPending++;
+            } finally {
+                lock.unlock();
+            }
+            
+            final FutureCallback<T> resultHandler = new FutureCallback<T>() {
+                
+                @Override
+                public void onSuccess(T result) {
+                    promise.set(result);
+                }
+                
+                @Override
+                public void onFailure(Throwable t) {
+                    final boolean isLast;
+                    lock.lock();
+                    try {
+                        numPending--;
+                        isLast = (numPending == 0);
+                    } finally {
+                        lock.unlock();
+                    }
+                    
+                    if (isLast) {
+                        promise.setException(t);
+                    }
+                }
+            };
+            Futures.addCallback(attempt, resultHandler);
+            
+            // an attempt which has been sent after completion (cancellation) is a loser too 
+            if (promise.isDone()) {
+                cancelPending();
+            } else {
+                scheduleHedge();
+            }
+        }
+        
+        
+        private void scheduleHedge() {
+            final Runnable hedge = new Runnable() {
+                
+                @Override
+                public void run() {
+                    lock.lock();
+                    try {
+                        if (promise.isDone()) {
+                            return;
+                        }
+                        numExtraRequests++;
+                    } finally {
+                        lock.unlock();
+                    }
+                    send();
+                }
+            };
+            
+            // the timer thread is shared by all deadlines and hedges. So, the hedged request is sent by the executor 
+            final Runnable hedgeHandOff = new Runnable() {
+                
+                @Override
+                public void run() {
+                    try {
+                        executor.execute(hedge);
+                    } catch (RejectedExecutionException ree) {
+                        // executor is saturated. The hedged request is skipped and the pending requests remain 
+                    }
+                }
+            };
+            
+            lock.lock();
+            try {
+                if ((delayMillis != null) && (numExtraRequests < maxExtraRequests)) {
+                    hedgeTimer = ListenableFutures.schedule(hedgeHandOff, delayMillis);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        
+        private void cancelPending() {
+            final ImmutableList<ListenableFuture<T>> losers;
+            lock.lock();
+            try {
+                losers = ImmutableList.copyOf(attempts);
+                if (hedgeTimer != null) {
+                    hedgeTimer.cancel(false);
+                }
+            } finally {
+                lock.unlock();
+            }
+            
+            for (ListenableFuture<T> loser : losers) {
+                loser.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+
+
+/**
+ * Bounded task executor which exposes its queue depth, active threads and rejections.
+ * Tasks which are submitted while the queue is full or after shutdown are rejected by
+ * throwing a {@link RejectedExecutionException}. They are never executed by the
+ * submitting thread, which is typically a database I/O thread. The stages of a query
+ * fail with the rejection instead of getting stuck
+ */
+public final class InstrumentedExecutor implements Executor {
+
+    /**
+     * the default max queue size of the preset executors
+     */
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 1000;
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong numRejected = new AtomicLong();
+
+
+    private InstrumentedExecutor(String name, int numThreads, int maxQueueSize) {
+        this.name = name;
+        this.executor = new ThreadPoolExecutor(numThreads,
+                                               numThreads,
+                                               60, TimeUnit.SECONDS,
+                                               new ArrayBlockingQueue<Runnable>(maxQueueSize),
+                                               new ThreadFactoryBuilder().setNameFormat(name + "-%d")
+                                                                         .setDaemon(true)
+                                                                         .build(),
+                                               new RejectAndCountPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+
+    /**
+     * @return a new bounded executor using one thread per available processor (at least 2) and the default max queue size
+     */
+    public static InstrumentedExecutor newBoundedExecutor() {
+        return newBoundedExecutor(Math.max(2, Runtime.getRuntime().availableProcessors()), DEFAULT_MAX_QUEUE_SIZE);
+    }
+
+    /**
+     * @param numThreads     the max number of threads
+     * @param maxQueueSize   the max number of queued tasks
+     * @return a new bounded executor
+     */
+    public static InstrumentedExecutor newBoundedExecutor(int numThreads, int maxQueueSize) {
+        return newBoundedExecutor("troilus-task", numThreads, maxQueueSize);
+    }
+
+    /**
+     * @param name           the name which is used as thread name prefix
+     * @param numThreads     the max number of threads
+     * @param maxQueueSize   the max number of queued tasks
+     * @return a new bounded executor
+     */
+    public static InstrumentedExecutor newBoundedExecutor(String name, int numThreads, int maxQueueSize) {
+        return new InstrumentedExecutor(name, numThreads, maxQueueSize);
+    }
+
+
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    /**
+     * @return the number of queued tasks
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return the approximate number of threads which are executing tasks
+     */
+    public int getNumActiveThreads() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return the current number of threads
+     */
+    public int getPoolSize() {
+        return executor.getPoolSize();
+    }
+
+    /**
+     * @return the number of tasks which have been rejected because the queue was full or the executor has been shut down
+     */
+    public long getNumRejected() {
+        return numRejected.get();
+    }
+
+    /**
+     * @return the approximate number of completed tasks
+     */
+    public long getNumCompletedTasks() {
+        return executor.getCompletedTaskCount();
+    }
+
+    /**
+     * shuts down the executor. Tasks which are submitted after shutdown will be rejected
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("name", name)
+                          .add("queueDepth", getQueueDepth())
+                          .add("activeThreads", getNumActiveThreads())
+                          .add("poolSize", getPoolSize())
+                          .add("rejected", getNumRejected())
+                          .toString();
+    }
+
+
+    private final class RejectAndCountPolicy implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            numRejected.incrementAndGet();
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("executor " + name + " has been shut down");
+            } else {
+                throw new RejectedExecutionException("queue of executor " + name + " is full (" + executor.getQueue().size() + " tasks)");
+            }
+        }
+    }
+}
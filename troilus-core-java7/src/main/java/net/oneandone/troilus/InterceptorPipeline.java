@@ -0,0 +1,209 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+/**
+ * Interceptor chain which is compiled once per interceptor registry. The stages are
+ * executed by the calling thread as long as the stage results are already completed.
+ * A thread hop happens only, if a stage returns a pending future. In this case the
+ * remaining stages are continued by the executor
+ *
+ * @param <C>  the (immutable) context passed to each stage such as the query data of a response
+ * @param <T>  the value processed by the stages
+ */
+final class InterceptorPipeline<C, T> {
+
+    private final ImmutableList<Stage<C, T>> stages;
+
+
+    /**
+     * a single stage of the pipeline
+     */
+    static abstract class Stage<C, T> {
+
+        /**
+         * @param context  the context
+         * @param value    the value to process
+         * @return the processed value
+         */
+        abstract ListenableFuture<T> apply(C context, T value);
+    }
+
+
+    /**
+     * a synchronous stage of the pipeline which is always executed by the calling thread
+     */
+    static abstract class SyncStage<C, T> extends Stage<C, T> {
+
+        @Override
+        ListenableFuture<T> apply(C context, T value) {
+            return Futures.immediateFuture(applySync(context, value));
+        }
+
+        /**
+         * @param context  the context
+         * @param value    the value to process
+         * @return the processed value
+         */
+        abstract T applySync(C context, T value);
+    }
+
+
+    /**
+     * @param stages  the stages in execution order
+     */
+    InterceptorPipeline(ImmutableList<Stage<C, T>> stages) {
+        this.stages = stages;
+    }
+
+
+    /**
+     * @return true, if the pipeline does not contain any stage
+     */
+    boolean isEmpty() {
+        return stages.isEmpty();
+    }
+
+
+    /**
+     * @param context   the context
+     * @param value     the value to process
+     * @param executor  the executor to continue the pipeline, if a stage returns a pending future
+     * @return the processed value
+     */
+    ListenableFuture<T> executeAsync(C context, T value, Executor executor) {
+        if (isEmpty()) {
+            return Futures.immediateFuture(value);
+        } else {
+            return execute(context, value, 0, executor, null);
+        }
+    }
+
+
+    /**
+     * @param context      the context
+     * @param valueFuture  the value to process
+     * @param executor     the executor to continue the pipeline. A pending value (e.g. a result which is
+     *                     completed by a database I/O thread) will always be processed by the executor
+     * @return the processed value
+     */
+    ListenableFuture<T> executeAsync(C context, ListenableFuture<T> valueFuture, Executor executor) {
+        if (isEmpty()) {
+            return valueFuture;
+
+        } else if (valueFuture.isDone()) {
+            try {
+                return execute(context, valueFuture.get(), 0, executor, null);
+            } catch (InterruptedException | ExecutionException | RuntimeException e) {
+                return Futures.immediateFailedFuture(ListenableFutures.unwrapIfNecessary(e));
+            }
+
+        } else {
+            final SettableFuture<T> promise = SettableFuture.create();
+            continueAsync(context, valueFuture, 0, executor, promise);
+            return promise;
+        }
+    }
+
+
+    private ListenableFuture<T> execute(C context, T value, int firstStage, Executor executor, SettableFuture<T> promise) {
+
+        for (int i = firstStage; i < stages.size(); i++) {
+            final Stage<C, T> stage = stages.get(i);
+            final ListenableFuture<T> future;
+            try {
+                if (stage instanceof SyncStage) {
+                    value = ((SyncStage<C, T>) stage).applySync(context, value);
+                    continue;
+                }
+
+                future = stage.apply(context, value);
+
+                // stage is already completed: no hop required
+                if (future.isDone()) {
+                    value = future.get();
+                    continue;
+                }
+            } catch (InterruptedException | ExecutionException | RuntimeException e) {
+                return fail(promise, ListenableFutures.unwrapIfNecessary(e));
+            }
+
+            final SettableFuture<T> pendingPromise = (promise == null) ? SettableFuture.<T>create() : promise;
+            continueAsync(context, future, i + 1, executor, pendingPromise);
+            return pendingPromise;
+        }
+
+        if (promise == null) {
+            return Futures.immediateFuture(value);
+        } else {
+            promise.set(value);
+            return promise;
+        }
+    }
+
+
+    private void continueAsync(final C context, final ListenableFuture<T> pendingFuture, final int nextStage, final Executor executor, final SettableFuture<T> promise) {
+
+        final Runnable continuation = new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    execute(context, pendingFuture.get(), nextStage, executor, promise);
+                } catch (InterruptedException | ExecutionException | RuntimeException e) {
+                    promise.setException(ListenableFutures.unwrapIfNecessary(e));
+                }
+            }
+        };
+        Runnable dispatcher = new Runnable() {
+            
+            @Override
+            public void run() {
+                try {
+                    executor.execute(continuation);
+                } catch (RejectedExecutionException ree) {
+                    // the remaining stages will never run 
+                    promise.setException(ree);
+                }
+            }
+        };
+        pendingFuture.addListener(dispatcher, MoreExecutors.directExecutor());
+        ListenableFutures.propagateCancellation(promise, pendingFuture);
+    }
+
+
+    private static <T> ListenableFuture<T> fail(SettableFuture<T> promise, Throwable t) {
+        if (promise == null) {
+            return Futures.immediateFailedFuture(t);
+        } else {
+            promise.setException(t);
+            return promise;
+        }
+    }
+}
@@ -19,7 +19,16 @@ package net.oneandone.troilus;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 
+import net.oneandone.troilus.interceptor.DeleteQueryData;
 import net.oneandone.troilus.interceptor.QueryInterceptor;
+import net.oneandone.troilus.java7.Record;
+import net.oneandone.troilus.java7.ResultList;
+import net.oneandone.troilus.java7.interceptor.DeleteQueryRequestInterceptor;
+import net.oneandone.troilus.java7.interceptor.ReadQueryData;
+import net.oneandone.troilus.java7.interceptor.ReadQueryRequestInterceptor;
+import net.oneandone.troilus.java7.interceptor.ReadQueryResponseInterceptor;
+import net.oneandone.troilus.java7.interceptor.WriteQueryData;
+import net.oneandone.troilus.java7.interceptor.WriteQueryRequestInterceptor;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.MoreObjects;
@@ -28,6 +37,7 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
 
 
 
@@ -38,6 +48,11 @@ class InterceptorRegistry {
 
     private final ImmutableList<QueryInterceptor> interceptors;
     
+    private final InterceptorPipeline<Void, ReadQueryData> readRequestPipeline;
+    private final InterceptorPipeline<ReadQueryData, ResultList<Record>> readResponsePipeline;
+    private final InterceptorPipeline<Void, WriteQueryData> writeRequestPipeline;
+    private final InterceptorPipeline<Void, DeleteQueryData> deleteRequestPipeline;
+    
     
     private final LoadingCache<Class<? extends QueryInterceptor>, ImmutableList<QueryInterceptor>> interceptorsByTypeCache = CacheBuilder.newBuilder().build(new InterceptorsByTypeLoader());
 
@@ -73,8 +88,126 @@ class InterceptorRegistry {
      */
     private InterceptorRegistry(ImmutableList<QueryInterceptor> interceptors) {
         this.interceptors = interceptors;
+        
+        // compile the interceptor pipelines once
+        this.readRequestPipeline = compileReadRequestPipeline();
+        this.readResponsePipeline = compileReadResponsePipeline();
+        this.writeRequestPipeline = compileWriteRequestPipeline();
+        this.deleteRequestPipeline = compileDeleteRequestPipeline();
     }
-
+    
+    
+    private InterceptorPipeline<Void, ReadQueryData> compileReadRequestPipeline() {
+        final ImmutableList.Builder<InterceptorPipeline.Stage<Void, ReadQueryData>> stages = ImmutableList.builder();
+        
+        for (QueryInterceptor interceptor : interceptors.reverse()) {
+            if (interceptor instanceof ReadQueryRequestInterceptor.Sync) {
+                final ReadQueryRequestInterceptor.Sync icptor = (ReadQueryRequestInterceptor.Sync) interceptor;
+                stages.add(new InterceptorPipeline.SyncStage<Void, ReadQueryData>() {
+                    @Override
+                    ReadQueryData applySync(Void context, ReadQueryData queryData) {
+                        return icptor.onReadRequest(queryData);
+                    }
+                });
+                
+            } else if (interceptor instanceof ReadQueryRequestInterceptor) {
+                final ReadQueryRequestInterceptor icptor = (ReadQueryRequestInterceptor) interceptor;
+                stages.add(new InterceptorPipeline.Stage<Void, ReadQueryData>() {
+                    @Override
+                    ListenableFuture<ReadQueryData> apply(Void context, ReadQueryData queryData) {
+                        return icptor.onReadRequestAsync(queryData);
+                    }
+                });
+            }
+        }
+        
+        return new InterceptorPipeline<>(stages.build());
+    }
+    
+    
+    private InterceptorPipeline<ReadQueryData, ResultList<Record>> compileReadResponsePipeline() {
+        final ImmutableList.Builder<InterceptorPipeline.Stage<ReadQueryData, ResultList<Record>>> stages = ImmutableList.builder();
+        
+        for (QueryInterceptor interceptor : interceptors.reverse()) {
+            if (interceptor instanceof ReadQueryResponseInterceptor.Sync) {
+                final ReadQueryResponseInterceptor.Sync icptor = (ReadQueryResponseInterceptor.Sync) interceptor;
+                stages.add(new InterceptorPipeline.SyncStage<ReadQueryData, ResultList<Record>>() {
+                    @Override
+                    ResultList<Record> applySync(ReadQueryData queryData, ResultList<Record> recordList) {
+                        return icptor.onReadResponse(queryData, recordList);
+                    }
+                });
+                
+            } else if (interceptor instanceof ReadQueryResponseInterceptor) {
+                final ReadQueryResponseInterceptor icptor = (ReadQueryResponseInterceptor) interceptor;
+                stages.add(new InterceptorPipeline.Stage<ReadQueryData, ResultList<Record>>() {
+                    @Override
+                    ListenableFuture<ResultList<Record>> apply(ReadQueryData queryData, ResultList<Record> recordList) {
+                        return icptor.onReadResponseAsync(queryData, recordList);
+                    }
+                });
+            }
+        }
+        
+        return new InterceptorPipeline<>(stages.build());
+    }
+    
+    
+    private InterceptorPipeline<Void, WriteQueryData> compileWriteRequestPipeline() {
+        final ImmutableList.Builder<InterceptorPipeline.Stage<Void, WriteQueryData>> stages = ImmutableList.builder();
+        
+        for (QueryInterceptor interceptor : interceptors.reverse()) {
+            if (interceptor instanceof WriteQueryRequestInterceptor.Sync) {
+                final WriteQueryRequestInterceptor.Sync icptor = (WriteQueryRequestInterceptor.Sync) interceptor;
+                stages.add(new InterceptorPipeline.SyncStage<Void, WriteQueryData>() {
+                    @Override
+                    WriteQueryData applySync(Void context, WriteQueryData queryData) {
+                        return icptor.onWriteRequest(queryData);
+                    }
+                });
+                
+            } else if (interceptor instanceof WriteQueryRequestInterceptor) {
+                final WriteQueryRequestInterceptor icptor = (WriteQueryRequestInterceptor) interceptor;
+                stages.add(new InterceptorPipeline.Stage<Void, WriteQueryData>() {
+                    @Override
+                    ListenableFuture<WriteQueryData> apply(Void context, WriteQueryData queryData) {
+                        return icptor.onWriteRequestAsync(queryData);
+                    }
+                });
+            }
+        }
+        
+        return new InterceptorPipeline<>(stages.build());
+    }
+    
+    
+    private InterceptorPipeline<Void, DeleteQueryData> compileDeleteRequestPipeline() {
+        final ImmutableList.Builder<InterceptorPipeline.Stage<Void, DeleteQueryData>> stages = ImmutableList.builder();
+        
+        for (QueryInterceptor interceptor : interceptors.reverse()) {
+            if (interceptor instanceof DeleteQueryRequestInterceptor.Sync) {
+                final DeleteQueryRequestInterceptor.Sync icptor = (DeleteQueryRequestInterceptor.Sync) interceptor;
+                stages.add(new InterceptorPipeline.SyncStage<Void, DeleteQueryData>() {
+                    @Override
+                    DeleteQueryData applySync(Void context, DeleteQueryData queryData) {
+                        return icptor.onDeleteRequest(queryData);
+                    }
+                });
+                
+            } else if (interceptor instanceof DeleteQueryRequestInterceptor) {
+                final DeleteQueryRequestInterceptor icptor = (DeleteQueryRequestInterceptor) interceptor;
+                stages.add(new InterceptorPipeline.Stage<Void, DeleteQueryData>() {
+                    @Override
+                    ListenableFuture<DeleteQueryData> apply(Void context, DeleteQueryData queryData) {
+                        return icptor.onDeleteRequestAsync(queryData);
+                    }
+                });
+            }
+        }
+        
+        return new InterceptorPipeline<>(stages.build());
+    }
+    
     
     /**
      * @param interceptor the interceptor to register
@@ -99,6 +232,35 @@ class InterceptorRegistry {
     }
     
     
+    /**
+     * @return the compiled read request interceptor pipeline
+     */
+    InterceptorPipeline<Void, ReadQueryData> getReadRequestPipeline() {
+        return readRequestPipeline;
+    }
+    
+    /**
+     * @return the compiled read response interceptor pipeline
+     */
+    InterceptorPipeline<ReadQueryData, ResultList<Record>> getReadResponsePipeline() {
+        return readResponsePipeline;
+    }
+    
+    /**
+     * @return the compiled write request interceptor pipeline
+     */
+    InterceptorPipeline<Void, WriteQueryData> getWriteRequestPipeline() {
+        return writeRequestPipeline;
+    }
+    
+    /**
+     * @return the compiled delete request interceptor pipeline
+     */
+    InterceptorPipeline<Void, DeleteQueryData> getDeleteRequestPipeline() {
+        return deleteRequestPipeline;
+    }
+    
+    
     @Override
     public String toString() {
         return MoreObjects.toStringHelper("interceptorregistry")
@@ -19,8 +19,11 @@ package net.oneandone.troilus;
 
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Executor;
 
 import net.oneandone.troilus.interceptor.QueryInterceptor;
+import net.oneandone.troilus.java7.Batchable;
+import net.oneandone.troilus.java7.BulkWrite;
 import net.oneandone.troilus.java7.Dao;
 import net.oneandone.troilus.java7.Deletion;
 import net.oneandone.troilus.java7.Insertion;
@@ -31,10 +34,13 @@ import net.oneandone.troilus.java7.SingleReadWithUnit;
 import net.oneandone.troilus.java7.UpdateWithUnitAndCounter;
 import net.oneandone.troilus.java7.WriteWithCounter;
 
+import org.reactivestreams.Publisher;
+
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.policies.RetryPolicy;
 import com.datastax.driver.core.querybuilder.Clause;
 import com.datastax.driver.core.ConsistencyLevel;
+import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -69,6 +75,26 @@ public class Java7DaoImpl implements Dao {
     }
 
     
+    /**
+     * @param session     the troilus session which has an assigned keyspace
+     * @param tablename   the table name
+     * @return a new dao, which shares the statement cache and metadata of the troilus session
+     */
+    public static Java7DaoImpl of(TroilusSession session, String tablename) {
+        return new Java7DaoImpl(new Context(session), Tablename.newTablename(session.getSession(), tablename));
+    }
+
+    /**
+     * @param session      the troilus session
+     * @param tablename    the table name
+     * @param keyspacename the keyspacename
+     * @return a new dao, which shares the statement cache and metadata of the troilus session
+     */
+    public static Java7DaoImpl of(TroilusSession session, String keyspacename, String tablename) {
+        return new Java7DaoImpl(new Context(session), Tablename.newTablename(keyspacename, tablename));
+    }
+
+    
     private Java7DaoImpl(Context ctx, Tablename tablename) {
         this.ctx = ctx;
         this.tablename = tablename;
@@ -100,6 +126,36 @@ public class Java7DaoImpl implements Dao {
     public Dao withRetryPolicy(RetryPolicy policy) {
         return new Java7DaoImpl(ctx.withRetryPolicy(policy), this.tablename);
     }
+    
+    @Override
+    public Dao withTimeout(long timeoutMillis) {
+        return new Java7DaoImpl(ctx.withTimeout(timeoutMillis), this.tablename);
+    }
+    
+    @Override
+    public Dao withConcurrencyLimiter(ConcurrencyLimiter limiter) {
+        return new Java7DaoImpl(ctx.withConcurrencyLimiter(limiter), this.tablename);
+    }
+    
+    @Override
+    public Dao withBulkhead(Bulkhead bulkhead) {
+        return new Java7DaoImpl(ctx.withBulkhead(bulkhead), this.tablename);
+    }
+    
+    @Override
+    public Dao withRetryBudget(RetryBudget retryBudget) {
+        return new Java7DaoImpl(ctx.withRetryBudget(retryBudget), this.tablename);
+    }
+    
+    @Override
+    public Dao withCircuitBreaker(CircuitBreaker circuitBreaker) {
+        return new Java7DaoImpl(ctx.withCircuitBreaker(circuitBreaker), this.tablename);
+    }
+    
+    @Override
+    public Dao withExecutor(Executor executor) {
+        return new Java7DaoImpl(ctx.withTaskExecutor(executor), this.tablename);
+    }
 
     @Override
     public Dao withInterceptor(QueryInterceptor queryInterceptor) {
@@ -112,6 +168,30 @@ public class Java7DaoImpl implements Dao {
         return new InsertQuery(ctx, new WriteQueryDataImpl(tablename).valuesToMutate(values));
     }
     
+    @Override
+    public BulkWrite writeAll(Publisher<? extends Batchable<?>> mutations) {
+        final Function<Object, Batchable<?>> mutationMapper = new Function<Object, Batchable<?>>() {
+            
+            @Override
+            public Batchable<?> apply(Object mutation) {
+                return (Batchable<?>) mutation;
+            }
+        };
+        return new BulkWriteQuery(ctx, mutations, mutationMapper);
+    }
+    
+    @Override
+    public BulkWrite writeAllEntities(Publisher<?> entities) {
+        final Function<Object, Batchable<?>> entityMapper = new Function<Object, Batchable<?>>() {
+            
+            @Override
+            public Batchable<?> apply(Object entity) {
+                return writeEntity(entity);
+            }
+        };
+        return new BulkWriteQuery(ctx, entities, entityMapper);
+    }
+    
     @Override
     public UpdateWithUnitAndCounter writeWhere(Clause... clauses) {
         return new UpdateQuery(ctx, new WriteQueryDataImpl(tablename).whereConditions((ImmutableList.copyOf(clauses))));
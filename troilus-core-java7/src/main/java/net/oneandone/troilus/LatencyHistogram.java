@@ -0,0 +1,105 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+
+/**
+ * Lightweight latency histogram with logarithmic buckets (4 sub-buckets per power of two, 
+ * which means a max error of 25 percent). To follow the recent latency, the counts will be 
+ * halved each time the decay interval of samples has been recorded. The histogram does 
+ * not lock. Concurrent updates may be lost which is acceptable for an estimation
+ */
+final class LatencyHistogram {
+    
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int NUM_SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int NUM_BUCKETS = 64 * NUM_SUB_BUCKETS;
+    
+    private static final long MIN_SAMPLES = 100;
+    private static final long DECAY_INTERVAL = 10000;
+    
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong numSamples = new AtomicLong();
+    
+    
+    /**
+     * @param latencyNanos  the latency to record
+     */
+    void record(long latencyNanos) {
+        buckets.incrementAndGet(toBucket(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos))));
+        
+        if ((numSamples.incrementAndGet() % DECAY_INTERVAL) == 0) {
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                buckets.addAndGet(i, -(buckets.get(i) / 2));
+            }
+        }
+    }
+    
+    
+    /**
+     * @param percentile  the percentile such as 95 or 99
+     * @return the estimated latency of the percentile in millis or null, if not enough samples have been recorded 
+     */
+    Long getPercentileMillis(double percentile) {
+        if (numSamples.get() < MIN_SAMPLES) {
+            return null;
+        }
+        
+        final long[] counts = new long[NUM_BUCKETS];
+        long total = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        
+        final long rank = (long) Math.ceil((percentile / 100) * total);
+        long sum = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            sum += counts[i];
+            if ((sum >= rank) && (sum > 0)) {
+                return Math.max(1, TimeUnit.MICROSECONDS.toMillis(toUpperBound(i)));
+            }
+        }
+        return null;
+    }
+    
+    
+    private static int toBucket(long micros) {
+        final int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent < SUB_BUCKET_BITS) {
+            return exponent * NUM_SUB_BUCKETS;
+        } else {
+            final int subBucket = (int) ((micros >>> (exponent - SUB_BUCKET_BITS)) & (NUM_SUB_BUCKETS - 1));
+            return (exponent * NUM_SUB_BUCKETS) + subBucket;
+        }
+    }
+    
+    private static long toUpperBound(int bucket) {
+        final int exponent = bucket / NUM_SUB_BUCKETS;
+        if (exponent < SUB_BUCKET_BITS) {
+            return 1L << (exponent + 1);
+        } else {
+            final int subBucket = bucket % NUM_SUB_BUCKETS;
+            return ((long) (NUM_SUB_BUCKETS + subBucket + 1)) << (exponent - SUB_BUCKET_BITS);
+        }
+    }
+}
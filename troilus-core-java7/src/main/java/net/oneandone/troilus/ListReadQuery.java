@@ -18,7 +18,8 @@ package net.oneandone.troilus;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
 
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import net.oneandone.troilus.java7.FetchingIterator;
 import net.oneandone.troilus.java7.ListRead;
@@ -26,22 +27,24 @@ import net.oneandone.troilus.java7.ListReadWithUnit;
 import net.oneandone.troilus.java7.Record;
 import net.oneandone.troilus.java7.ResultList;
 import net.oneandone.troilus.java7.interceptor.ReadQueryData;
-import net.oneandone.troilus.java7.interceptor.ReadQueryRequestInterceptor;
-import net.oneandone.troilus.java7.interceptor.ReadQueryResponseInterceptor;
 
 import org.reactivestreams.Publisher;
 
 import com.datastax.driver.core.PagingState;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TokenRange;
 import com.datastax.driver.core.querybuilder.Clause;
 import com.datastax.driver.core.querybuilder.Select;
 import com.google.common.base.Function;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
@@ -55,6 +58,9 @@ import com.google.common.util.concurrent.ListenableFuture;
 class ListReadQuery extends AbstractQuery<ListReadQuery> implements ListReadWithUnit<ResultList<Record>, Record> {
     
     private final ReadQueryData data;
+    private final Integer parallelism;
+    private final ScanProgress scanProgress;
+    private final boolean preserveOrder;
   
     
     /**
@@ -62,8 +68,15 @@ class ListReadQuery extends AbstractQuery<ListReadQuery> implements ListReadWith
      * @param data  the data
      */
     ListReadQuery(Context ctx, ReadQueryData data) {
+        this(ctx, data, null, null, false);
+    }
+    
+    private ListReadQuery(Context ctx, ReadQueryData data, Integer parallelism, ScanProgress scanProgress, boolean preserveOrder) {
         super(ctx);
         this.data = data;
+        this.parallelism = parallelism;
+        this.scanProgress = scanProgress;
+        this.preserveOrder = preserveOrder;
     }
 
     
@@ -72,11 +85,11 @@ class ListReadQuery extends AbstractQuery<ListReadQuery> implements ListReadWith
 
     @Override
     protected ListReadQuery newQuery(Context newContext) {
-        return new ListReadQuery(newContext, data);
+        return new ListReadQuery(newContext, data, parallelism, scanProgress, preserveOrder);
     }
     
     private ListReadQuery newQuery(ReadQueryData data) {
-        return new ListReadQuery(getContext(), data);
+        return new ListReadQuery(getContext(), data, parallelism, scanProgress, preserveOrder);
     }
 
     //
@@ -156,6 +169,29 @@ class ListReadQuery extends AbstractQuery<ListReadQuery> implements ListReadWith
         return newQuery(data.pagingState(pagingState));
     }
     
+    @Override
+    public ListReadQuery withParallelism(int parallelism) {
+        return withParallelism(parallelism, false);
+    }
+    
+    @Override
+    public ListReadQuery withParallelism(int parallelism, boolean preserveOrder) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be greater than 0");
+        }
+        return new ListReadQuery(getContext(), data, parallelism, null, preserveOrder);
+    }
+    
+    @Override
+    public ListReadQuery withParallelism(int parallelism, ScanProgress scanProgress) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be greater than 0");
+        } else if (!data.getKeys().isEmpty()) {
+            throw new IllegalArgumentException("Key-based reads cannot be configured with scan progress. Use withParallelism(int) or withParallelism(int, boolean) instead.");
+        }
+        return new ListReadQuery(getContext(), data, parallelism, scanProgress, false);
+    }
+    
     @Override
     public CountReadQuery count() {
         return new CountReadQuery(getContext(), new CountReadQueryData(data.getTablename())
@@ -175,91 +211,213 @@ class ListReadQuery extends AbstractQuery<ListReadQuery> implements ListReadWith
     @Override
     public Publisher<Record> executeRx() {
         ListenableFuture<ResultList<Record>> recordsFuture = executeAsync();
-        return new ResultListPublisher<>(recordsFuture);
+        return new ResultListPublisher<>(recordsFuture, getExecutor());
     }
     
     @Override
     public ResultList<Record> execute() {
-        return ListenableFutures.getUninterruptibly(executeAsync());
+        if (isInterceptorFree()) {
+            // the record list is mapped by the calling thread 
+            final Long deadlineNanos = newDeadlineNanos();
+            return toRecordList(ListenableFutures.getUninterruptibly(executeResultSetAsync(deadlineNanos)), deadlineNanos);
+        } else {
+            return ListenableFutures.getUninterruptibly(executeAsync());
+        }
     }
     
     @Override
     public ListenableFuture<ResultList<Record>> executeAsync() {
+        if (parallelism != null) {
+            return data.getKeys().isEmpty() ? executeScanAsync() : executeScatterGatherAsync();
+        }
+        
+        // the deadline covers the whole query, including the page fetches of the record list
+        final Long deadlineNanos = newDeadlineNanos();
+        
         // perform request executors
-        final ListenableFuture<ReadQueryData> queryDataFuture = executeRequestInterceptorsAsync(Futures.<ReadQueryData>immediateFuture(data));  
+        final ListenableFuture<ReadQueryData> queryDataFuture = getInterceptorRegistry().getReadRequestPipeline().executeAsync(null, data, getExecutor());  
 
         // execute query asnyc
         final Function<ReadQueryData, ListenableFuture<ResultList<Record>>> queryExecutor = new Function<ReadQueryData, ListenableFuture<ResultList<Record>>>() {
             @Override
             public ListenableFuture<ResultList<Record>> apply(ReadQueryData querData) {
-                return executeAsync(querData, getDefaultDbSession());
+                return executeAsync(querData, getDefaultDbSession(), deadlineNanos);
             }
         };
-        return ListenableFutures.transform(queryDataFuture, queryExecutor);
+        return withDeadline(data.getTablename(), ListenableFutures.transform(queryDataFuture, queryExecutor), deadlineNanos);
     }
 
     
-    private ListenableFuture<ResultList<Record>> executeAsync(final ReadQueryData queryData, DBSession dbSession) {
-        final ListenableFuture<ResultSet> resultSetFuture = performAsync(dbSession, toStatementAsync(queryData, getUDTValueMapper(), dbSession));
-    	
-        // result set to record list mapper
-        final Function<ResultSet, ResultList<Record>> resultSetToRecordList = new Function<ResultSet, ResultList<Record>>() {
-            
-            @Override
-            public ResultList<Record> apply(ResultSet resultSet) {
-                return new RecordListImpl(getContext(), queryData, resultSet);
-            }
-        };
-        final ListenableFuture<ResultList<Record>> recordListFuture =  Futures.transform(resultSetFuture, resultSetToRecordList); 
-        
-        // running interceptors within dedicated threads!
-        return executeResponseInterceptorsAsync(queryData, recordListFuture);
+    @Override
+    Tablename getTablename() {
+        return data.getTablename();
     }
-
     
-    private ListenableFuture<ReadQueryData> executeRequestInterceptorsAsync(ListenableFuture<ReadQueryData> queryDataFuture) {
-
-        for (ReadQueryRequestInterceptor interceptor : getInterceptorRegistry().getInterceptors(ReadQueryRequestInterceptor.class).reverse()) {
-            final ReadQueryRequestInterceptor icptor = interceptor;
-            
-            final Function<ReadQueryData, ListenableFuture<ReadQueryData>> mapperFunction = new Function<ReadQueryData, ListenableFuture<ReadQueryData>>() {
+    
+    /**
+     * @return true, if the query is neither split into parts nor are read request nor read response interceptors 
+     *         are registered. In this case the query can be executed by {@link ListReadQuery#executeResultSetAsync(Long)} 
+     */
+    boolean isInterceptorFree() {
+        return (parallelism == null) && getInterceptorRegistry().getReadRequestPipeline().isEmpty() && getInterceptorRegistry().getReadResponsePipeline().isEmpty();
+    }
+    
+    /**
+     * @param deadlineNanos  the deadline of the query, see {@link AbstractQuery#newDeadlineNanos()}
+     * @return the underlying result set future, which bypasses the interceptors. The result set has to be 
+     *         mapped by {@link ListReadQuery#toRecordList(ResultSet, Long)}
+     */
+    ListenableFuture<ResultSet> executeResultSetAsync(Long deadlineNanos) {
+        return withDeadline(data.getTablename(), performAsync(getDefaultDbSession(), toStatementSupplier(data, getDefaultDbSession())), deadlineNanos);
+    }
+    
+    /**
+     * @param resultSet      the result set
+     * @param deadlineNanos  the deadline of the query, which also applies to the page fetches of the record list
+     * @return the record list
+     */
+    ResultList<Record> toRecordList(ResultSet resultSet, Long deadlineNanos) {
+        return new RecordListImpl(getContext(), this, data, resultSet, deadlineNanos);
+    }
+    
+    /**
+     * @param queryData      the query data of the result, which is already processed by the read request interceptors 
+     * @param fetchSize      the fetch size of the page
+     * @param deadlineNanos  the deadline of the query
+     * @return the page, which is queried by a new statement of the query data and the given fetch size. It
+     *         will be executed like any other request of the query, but accounted as page fetch by the bulkhead 
+     */
+    ListenableFuture<ResultSet> fetchPageAsync(ReadQueryData queryData, int fetchSize, Long deadlineNanos) {
+        final DBSession dbSession = getDefaultDbSession();
+        return withDeadline(queryData.getTablename(), performPageFetchAsync(dbSession, toStatementSupplier(queryData.fetchSize(fetchSize), dbSession)), deadlineNanos);
+    }
+    
+    
+    private ListenableFuture<ResultList<Record>> executeScanAsync() {
+        if (data.getPagingState() != null) {
+            return Futures.immediateFailedFuture(new IllegalStateException("token range scans do not support paging states"));
+        }
+        
+        final ImmutableList<TokenRange> ranges;
+        final ImmutableList<String> partitionKeyNames;
+        try {
+            final String keyspacename = (data.getTablename().getKeyspacename() == null) ? getDefaultDbSession().getKeyspacename() : data.getTablename().getKeyspacename();
+            final ImmutableList<TokenRange> plannedRanges = TokenRanges.planRanges(getDefaultDbSession(), keyspacename, parallelism);
+            ranges = preserveOrder ? Ordering.natural().immutableSortedCopy(plannedRanges) : plannedRanges;
+            partitionKeyNames = getCatalog().getTableDescriptor(data.getTablename()).getPartitionKeyNames();
+        } catch (RuntimeException rt) {
+            return Futures.immediateFailedFuture(rt);
+        }
+        
+        // each subrange is read by a token restricted query, which is executed like a regular list read  
+        final List<ScatterGatherResultList.Part> parts = Lists.newArrayList();
+        for (final TokenRange range : ranges) {
+            final Supplier<ListenableFuture<ResultList<Record>>> rangeReader = new Supplier<ListenableFuture<ResultList<Record>>>() {
+                
                 @Override
-                public ListenableFuture<ReadQueryData> apply(ReadQueryData queryData) {
-                    return icptor.onReadRequestAsync(queryData);
+                public ListenableFuture<ResultList<Record>> get() {
+                    final ReadQueryData rangeData = data.whereConditions(Immutables.join(data.getWhereConditions(), TokenRanges.toTokenClauses(partitionKeyNames, range)));
+                    return new ListReadQuery(getContext(), rangeData).executeAsync();
                 }
             };
-            
-            // running interceptors within dedicated threads!
-            queryDataFuture = ListenableFutures.transform(queryDataFuture, mapperFunction, getExecutor());
+            parts.add(new ScatterGatherResultList.Part(TokenRanges.toName(range), rangeReader));
         }
-
-        return queryDataFuture;
+        
+        final ScanProgress progress = (scanProgress == null) ? ScanProgress.newScanProgress() : scanProgress;
+        return Futures.<ResultList<Record>>immediateFuture(new ScatterGatherResultList(ImmutableList.copyOf(parts), parallelism, preserveOrder, data.getLimit(), progress));
     }
     
     
-    private ListenableFuture<ResultList<Record>> executeResponseInterceptorsAsync(final ReadQueryData queryData, ListenableFuture<ResultList<Record>> recordFuture) {
-    
-        for (ReadQueryResponseInterceptor interceptor : getInterceptorRegistry().getInterceptors(ReadQueryResponseInterceptor.class).reverse()) {
-            final ReadQueryResponseInterceptor icptor = interceptor;
-            
-            final Function<ResultList<Record>, ListenableFuture<ResultList<Record>>> mapperFunction = new Function<ResultList<Record>, ListenableFuture<ResultList<Record>>>() {
+    private ListenableFuture<ResultList<Record>> executeScatterGatherAsync() {
+        if (data.getPagingState() != null) {
+            return Futures.immediateFailedFuture(new IllegalStateException("scatter-gather reads do not support paging states"));
+        }
+        
+        final ImmutableList<ImmutableMap<String, ImmutableList<Object>>> partitionKeys;
+        try {
+            partitionKeys = splitByPartition(data.getKeys(), getCatalog().getTableDescriptor(data.getTablename()).getPartitionKeyNames());
+        } catch (RuntimeException rt) {
+            return Futures.immediateFailedFuture(rt);
+        }
+        
+        // each partition is read by a query with equal conditions on the partition key columns, which 
+        // can be routed to a replica of the partition by a token aware load balancing policy 
+        final List<ScatterGatherResultList.Part> parts = Lists.newArrayList();
+        for (final ImmutableMap<String, ImmutableList<Object>> keys : partitionKeys) {
+            final Supplier<ListenableFuture<ResultList<Record>>> partitionReader = new Supplier<ListenableFuture<ResultList<Record>>>() {
+                
                 @Override
-                public ListenableFuture<ResultList<Record>> apply(ResultList<Record> recordList) {
-                    return icptor.onReadResponseAsync(queryData, recordList);
+                public ListenableFuture<ResultList<Record>> get() {
+                    return new ListReadQuery(getContext(), data.keys(keys)).executeAsync();
                 }
             };
-            
-            // running interceptors within dedicagted threads!
-            recordFuture = ListenableFutures.transform(recordFuture, mapperFunction, getExecutor());
+            parts.add(new ScatterGatherResultList.Part(null, partitionReader));
         }
-
-        return recordFuture;
+        
+        return Futures.<ResultList<Record>>immediateFuture(new ScatterGatherResultList(ImmutableList.copyOf(parts), parallelism, preserveOrder, data.getLimit(), null));
+    }
+    
+    
+    /**
+     * @param keys               the keys of a key-based read
+     * @param partitionKeyNames  the partition key names
+     * @return the keys per partition in the order of the requested key values. The IN conditions of 
+     *         clustering key columns are kept 
+     */
+    static ImmutableList<ImmutableMap<String, ImmutableList<Object>>> splitByPartition(ImmutableMap<String, ImmutableList<Object>> keys, ImmutableList<String> partitionKeyNames) {
+        List<ImmutableMap<String, ImmutableList<Object>>> partitionKeys = ImmutableList.of(keys);
+        
+        for (Entry<String, ImmutableList<Object>> entry : keys.entrySet()) {
+            if (isPartitionKey(entry.getKey(), partitionKeyNames) && (entry.getValue().size() > 1)) {
+                final List<ImmutableMap<String, ImmutableList<Object>>> expanded = Lists.newArrayList();
+                for (ImmutableMap<String, ImmutableList<Object>> partitionKey : partitionKeys) {
+                    
+                    // duplicated values are read once 
+                    for (Object value : ImmutableSet.copyOf(entry.getValue())) {
+                        final Map<String, ImmutableList<Object>> expandedKey = Maps.newLinkedHashMap(partitionKey);
+                        expandedKey.put(entry.getKey(), ImmutableList.of(value));
+                        expanded.add(ImmutableMap.copyOf(expandedKey));
+                    }
+                }
+                partitionKeys = expanded;
+            }
+        }
+        
+        return ImmutableList.copyOf(partitionKeys);
     }
     
+    private static boolean isPartitionKey(String name, ImmutableList<String> partitionKeyNames) {
+        for (String partitionKeyName : partitionKeyNames) {
+            if (partitionKeyName.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    
+    private ListenableFuture<ResultList<Record>> executeAsync(final ReadQueryData queryData, DBSession dbSession, final Long deadlineNanos) {
+        final ListenableFuture<ResultSet> resultSetFuture = performAsync(dbSession, toStatementSupplier(queryData, dbSession));
+    	
+        // result set to record list mapper
+        final Function<ResultSet, ResultList<Record>> resultSetToRecordList = new Function<ResultSet, ResultList<Record>>() {
+            
+            @Override
+            public ResultList<Record> apply(ResultSet resultSet) {
+                return new RecordListImpl(getContext(), ListReadQuery.this, queryData, resultSet, deadlineNanos);
+            }
+        };
+        final ListenableFuture<ResultList<Record>> recordListFuture =  Futures.transform(resultSetFuture, resultSetToRecordList); 
+        
+        // running interceptors within dedicated threads, if the record list is pending
+        return getInterceptorRegistry().getReadResponsePipeline().executeAsync(queryData, recordListFuture, getExecutor());
+    }
+
+    
     /**
-     * Prepares the Statement for Pagination, if fetchSize is set. Otherwise, it simply  
-     * returns ReadQueryDataImpl.toStatementAsync(data, udtValueMapper, dbSession)
-     * as in the original code did in executeAsync().
+     * Prepares the Statement for Pagination, if fetchSize or PagingState is set. 
+     * Both are applied by a transformation of the statement future, so the caller 
+     * will never be blocked by preparing the statement.
      * 
      * @param queryData
      * @param udtValueMapper
@@ -268,29 +426,57 @@ class ListReadQuery extends AbstractQuery<ListReadQuery> implements ListReadWith
      * @return ListenableFuture<Statement>
      */
     private ListenableFuture<Statement> toStatementAsync(final ReadQueryData queryData, UDTValueMapper udtValueMapper, DBSession dbSession) {
-        final ListenableFuture<Statement> lfs = ReadQueryDataImpl.toStatementAsync(data, udtValueMapper, dbSession);
-    	
-    	final  Integer fetchSize = data.getFetchSize();
-    	if (fetchSize != null) {
-    		Statement statement = null;
-    		try {
-    			statement = lfs.get();
-    		} catch (InterruptedException | ExecutionException e) {
-    			throw new RuntimeException("Failed to get the Statement from ListenableFuture<Statement>", e);
-    		}
-    		
-			// The FetchSize is lost somehow when ReadQueryData.toStatementAsync() is invoked.
-    		// In the debugger, it was always zero.  So, it is reset here directly on the Statement
-			// This sets the fetchsize specifically on the Statement before executing.
-			statement.setFetchSize(fetchSize);
-			
-			// The PagingState is not set during ReadQueryData.toStatementAsync() because
-			// the driver compares the Select (a RegularStatement) to the previous PagingState's
-			// BoundStatement and fails the hash() check with a PagingStateException.
-			// So, like the fetch size, the PagingState must be done here.
-			statement.setPagingState(data.getPagingState());
-		}
-    	return lfs;
+        return withPaging(ReadQueryDataImpl.toStatementAsync(queryData, udtValueMapper, dbSession), queryData);
+    }
+    
+    /**
+     * @param queryData  the query data
+     * @param dbSession  the db session
+     * @return the supplier of the statement. Each call creates a new statement of the query data
+     */
+    private Supplier<ListenableFuture<Statement>> toStatementSupplier(final ReadQueryData queryData, final DBSession dbSession) {
+        return new Supplier<ListenableFuture<Statement>>() {
+            
+            @Override
+            public ListenableFuture<Statement> get() {
+                return toStatementAsync(queryData, getUDTValueMapper(), dbSession);
+            }
+        };
+    }
+    
+    
+    /**
+     * @param statementFuture the statement future
+     * @param queryData       the query data
+     * @return the statement future including the fetch size and paging state of the query data 
+     */
+    static ListenableFuture<Statement> withPaging(ListenableFuture<Statement> statementFuture, final ReadQueryData queryData) {
+        if ((queryData.getFetchSize() == null) && (queryData.getPagingState() == null)) {
+            return statementFuture;
+        }
+        
+        final Function<Statement, Statement> pagingFunction = new Function<Statement, Statement>() {
+            
+            @Override
+            public Statement apply(Statement statement) {
+                // The fetch size of the Select is not inherited by the bound statement 
+                // of a cached prepared statement. So, it is set here directly on the Statement
+                if (queryData.getFetchSize() != null) {
+                    statement.setFetchSize(queryData.getFetchSize());
+                }
+                
+                // The PagingState is not set during ReadQueryData.toStatementAsync() because
+                // the driver compares the Select (a RegularStatement) to the previous PagingState's
+                // BoundStatement and fails the hash() check with a PagingStateException.
+                // So, like the fetch size, the PagingState must be done here.
+                if (queryData.getPagingState() != null) {
+                    statement.setPagingState(queryData.getPagingState());
+                }
+                return statement;
+            }
+        };
+        
+        return Futures.transform(statementFuture, pagingFunction);
     }
     
     /**
@@ -314,7 +500,7 @@ class ListReadQuery extends AbstractQuery<ListReadQuery> implements ListReadWith
         
         @Override
         protected ListEntityReadQuery<E> newQuery(Context newContext) {
-            return new ListReadQuery(newContext, query.data).asEntity(clazz);
+            return query.newQuery(newContext).asEntity(clazz);
         }
 
         @Override
@@ -337,6 +523,21 @@ class ListReadQuery extends AbstractQuery<ListReadQuery> implements ListReadWith
             return query.withLimit(limit).asEntity(clazz);
         }
         
+        @Override
+        public ListEntityReadQuery<E> withParallelism(int parallelism) {
+            return query.withParallelism(parallelism).asEntity(clazz);
+        }
+        
+        @Override
+        public ListEntityReadQuery<E> withParallelism(int parallelism, boolean preserveOrder) {
+            return query.withParallelism(parallelism, preserveOrder).asEntity(clazz);
+        }
+        
+        @Override
+        public ListEntityReadQuery<E> withParallelism(int parallelism, ScanProgress scanProgress) {
+            return query.withParallelism(parallelism, scanProgress).asEntity(clazz);
+        }
+        
         @Override
         public ResultList<E> execute() {
             return ListenableFutures.getUninterruptibly(executeAsync());
@@ -359,7 +560,7 @@ class ListReadQuery extends AbstractQuery<ListReadQuery> implements ListReadWith
         @Override
         public Publisher<E> executeRx() {
             final ListenableFuture<ResultList<E>> recordsFuture = executeAsync();
-            return new ResultListPublisher<>(recordsFuture);
+            return new ResultListPublisher<>(recordsFuture, getExecutor());
         }
 
 		@Override
@@ -389,7 +590,7 @@ class ListReadQuery extends AbstractQuery<ListReadQuery> implements ListReadWith
         
         public FetchingIterator<F> iterator() {
             
-            return new FetchingIterator<F>() {
+            return new PageSizingIterator<F>() {
                 private final FetchingIterator<Record> recordIt = recordList.iterator();
                 
                 @Override
@@ -421,6 +622,15 @@ class ListReadQuery extends AbstractQuery<ListReadQuery> implements ListReadWith
                 public ListenableFuture<ResultSet> fetchMoreResultsAsync() {
                     return recordIt.fetchMoreResultsAsync();
                 }
+                
+                @Override
+                public ListenableFuture<ResultSet> fetchMoreResultsAsync(int fetchSize) {
+                    if (recordIt instanceof PageSizingIterator) {
+                        return ((PageSizingIterator<Record>) recordIt).fetchMoreResultsAsync(fetchSize);
+                    } else {
+                        return recordIt.fetchMoreResultsAsync();
+                    }
+                }
             };
         }
     }
@@ -553,6 +763,11 @@ class ListReadQuery extends AbstractQuery<ListReadQuery> implements ListReadWith
             return new CountReadQuery(newContext, data);
         }
         
+        @Override
+        Tablename getTablename() {
+            return data.getTablename();
+        }
+        
         @Override
         public CountReadQuery withLimit(int limit) {
             return new CountReadQuery(getContext(),
@@ -624,7 +839,14 @@ class ListReadQuery extends AbstractQuery<ListReadQuery> implements ListReadWith
         
         @Override
         public ListenableFuture<Count> executeAsync() {
-            ListenableFuture<ResultSet> future = performAsync(getDefaultDbSession(), toStatement(data));
+            final Supplier<ListenableFuture<Statement>> statementSupplier = new Supplier<ListenableFuture<Statement>>() {
+                
+                @Override
+                public ListenableFuture<Statement> get() {
+                    return Futures.immediateFuture(toStatement(data));
+                }
+            };
+            ListenableFuture<ResultSet> future = withDeadline(data.getTablename(), performAsync(getDefaultDbSession(), statementSupplier));
             
             Function<ResultSet, Count> mapEntity = new Function<ResultSet, Count>() {
                 @Override
@@ -647,13 +869,28 @@ class ListReadQuery extends AbstractQuery<ListReadQuery> implements ListReadWith
                 }
             };
             
-            return new ResultListPublisher<>(Futures.transform(countFuture, toListFunction));
+            return new ResultListPublisher<>(Futures.transform(countFuture, toListFunction), getExecutor());
         }
 
 		@Override
 		public ListRead<Count, Count> withPagingState(PagingState pagingState) {
 			throw new IllegalArgumentException("Count readers cannot be configured with paging state.");
 		}
+		
+		@Override
+		public ListRead<Count, Count> withParallelism(int parallelism) {
+		    throw new IllegalArgumentException("Count readers cannot be configured with parallelism.");
+		}
+		
+		@Override
+		public ListRead<Count, Count> withParallelism(int parallelism, boolean preserveOrder) {
+		    throw new IllegalArgumentException("Count readers cannot be configured with parallelism.");
+		}
+		
+		@Override
+		public ListRead<Count, Count> withParallelism(int parallelism, ScanProgress scanProgress) {
+		    throw new IllegalArgumentException("Count readers cannot be configured with parallelism.");
+		}
     }  
 }
     
\ No newline at end of file
@@ -17,10 +17,19 @@ package net.oneandone.troilus;
 
 
 
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
@@ -29,6 +38,7 @@ import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.AbstractFuture;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 
  
@@ -56,11 +66,13 @@ class ListenableFutures {
         
         public FlatFuture(ListenableFuture<ImmutableSet<ListenableFuture<T>>>futureSet, Executor executor) {
             this.executor = executor;
+            propagateCancellationTo(futureSet);
             futureSet.addListener(new FutureSetListner(futureSet), executor);
         }
         
         private void onResult(ListenableFuture<T> future) {
-            synchronized (this) {
+            lock.lock();
+            try {
                 try {
                     T t = future.get();
                     if (t != null) {
@@ -75,6 +87,8 @@ class ListenableFutures {
                 } catch (InterruptedException | ExecutionException | RuntimeException e) {
                     setException(e);
                 }
+            } finally {
+                lock.unlock();
             }
         }
         
@@ -87,7 +101,8 @@ class ListenableFutures {
             
             @Override
             public void run() {
-                synchronized (FlatFuture.this) {
+                lock.lock();
+                try {
                     try {
                         ImmutableSet<ListenableFuture<T>> ftrs = futureSet.get();  
                         if (ftrs.isEmpty()) {
@@ -95,6 +110,7 @@ class ListenableFutures {
                         } else {
                             for (ListenableFuture<T> future : futureSet.get()) {
                                 numPendingFutures++;
+                                propagateCancellationTo(future);
                                 future.addListener(new FutureListner(future), executor);
                             }
                         }
@@ -102,6 +118,8 @@ class ListenableFutures {
                     } catch (InterruptedException | ExecutionException | RuntimeException e) {
                         setException(e);
                     }
+                } finally {
+                    lock.unlock();
                 }
             }
         }
@@ -138,13 +156,15 @@ class ListenableFutures {
                 numPendingFutures = futureSet.size();
                 
                 for (ListenableFuture<ImmutableSet<T>> future : futureSet) {
+                    propagateCancellationTo(future);
                     future.addListener(new FutureListner(future), executor);
                 }
             }
         }
         
         private void onResult(ListenableFuture<ImmutableSet<T>> future) {
-            synchronized (this) {
+            lock.lock();
+            try {
                 try {
                     result.addAll(future.get());
                     numPendingFutures--;
@@ -155,6 +175,8 @@ class ListenableFutures {
                 } catch (InterruptedException | ExecutionException | RuntimeException e) {
                     setException(e);
                 }
+            } finally {
+                lock.unlock();
             }
         }
         
@@ -188,6 +210,8 @@ class ListenableFutures {
         private ImmutableSet<T> futureSetResult = null;
         
         public JoiningFuture(ListenableFuture<ImmutableSet<T>> futureSet, ListenableFuture<T> future, Executor executor) {
+            propagateCancellationTo(future);
+            propagateCancellationTo(futureSet);
             future.addListener(new FutureListner(future), executor);
             futureSet.addListener(new FutureSetListner(futureSet), executor);
         }
@@ -203,24 +227,30 @@ class ListenableFutures {
         }
 
         private void onSetResult(ListenableFuture<ImmutableSet<T>> futureSet) {
-            synchronized (this) {
+            lock.lock();
+            try {
                 try {
                     futureSetResult = futureSet.get();
                     onSet();
                 } catch (InterruptedException | ExecutionException | RuntimeException e) {
                     setException(e);
                 }
+            } finally {
+                lock.unlock();
             }
         }
         
         private void onSingleResult(ListenableFuture<T> future) {
-            synchronized (this) {
+            lock.lock();
+            try {
                 try {
                     futureResult = Optional.fromNullable(future.get());
                     onSet();
                 } catch (InterruptedException | ExecutionException | RuntimeException e) {
                     setException(e);
                 }
+            } finally {
+                lock.unlock();
             }
         }
         
@@ -267,16 +297,29 @@ class ListenableFutures {
         private final ListenableFuture<T> future;
         private final Function<T, ListenableFuture<E>> func;
         
-        public MappingFuture(ListenableFuture<T> future, Function<T, ListenableFuture<E>> func, Executor executor) {
+        public MappingFuture(ListenableFuture<T> future, Function<T, ListenableFuture<E>> func, final Executor executor) {
             this.future = future;
             this.func = func;
-            future.addListener(this, executor);
+            propagateCancellationTo(future);
+            future.addListener(this, new Executor() {
+                
+                @Override
+                public void execute(Runnable command) {
+                    try {
+                        executor.execute(command);
+                    } catch (RejectedExecutionException ree) {
+                        // the mapping will never run 
+                        setException(ree);
+                    }
+                }
+            });
         }
         
         public void run() {
             
             try {
                 final ListenableFuture<E> iFuture = func.apply(future.get());
+                propagateCancellationTo(iFuture);
                 
                 Runnable resultForwarder = new Runnable() {
                     
@@ -298,6 +341,109 @@ class ListenableFutures {
     }
     
     
+    /**
+     * cancels the target future, if the source future is cancelled 
+     * 
+     * @param source  the source future such as a promise returned to the caller
+     * @param target  the (upstream) future to cancel
+     */
+    public static void propagateCancellation(final ListenableFuture<?> source, final Future<?> target) {
+        Runnable cancellationForwarder = new Runnable() {
+            
+            @Override
+            public void run() {
+                if (source.isCancelled()) {
+                    target.cancel(false);
+                }
+            }
+        };
+        source.addListener(cancellationForwarder, MoreExecutors.directExecutor());
+    }
+    
+    
+    /**
+     * @param future         the future to observe
+     * @param timeoutMillis  the timeout in millis
+     * @param onExpired      the callback which will be executed, if the deadline is exceeded 
+     * @return a future which fails with a {@link DeadlineExceededException} if the deadline is exceeded. 
+     *         In this case the observed future will be cancelled  
+     */
+    public static <T> ListenableFuture<T> withDeadline(ListenableFuture<T> future, long timeoutMillis, Runnable onExpired) {
+        if (future.isDone()) {
+            return future;
+        } else {
+            return new DeadlineFuture<>(future, timeoutMillis, onExpired);
+        }
+    }
+    
+    
+    private static final class DeadlineFuture<T> extends FutureImplBase<T> {
+        
+        public DeadlineFuture(final ListenableFuture<T> future, final long timeoutMillis, final Runnable onExpired) {
+            propagateCancellationTo(future);
+            
+            // either the expiration or the result of the observed future completes this future
+            final AtomicBoolean isCompleted = new AtomicBoolean();
+            
+            final Runnable expiration = new Runnable() {
+                
+                @Override
+                public void run() {
+                    if (isCompleted.compareAndSet(false, true)) {
+                        // the request is cancelled and accounted before the caller is notified  
+                        future.cancel(true);
+                        onExpired.run();
+                        setException(new DeadlineExceededException("deadline of " + timeoutMillis + " millis exceeded"));
+                    }
+                }
+            };
+            final ScheduledFuture<?> timer = DeadlineTimer.SCHEDULER.schedule(expiration, timeoutMillis, TimeUnit.MILLISECONDS);
+            
+            final Runnable resultForwarder = new Runnable() {
+                
+                @Override
+                public void run() {
+                    timer.cancel(false);
+                    if (!isCompleted.compareAndSet(false, true)) {
+                        return;
+                    }
+                    try {
+                        set(future.get());
+                    } catch (InterruptedException | ExecutionException | RuntimeException e) {
+                        setException(e);
+                    }
+                }
+            };
+            future.addListener(resultForwarder, MoreExecutors.directExecutor());
+        }
+    }
+    
+    
+    /**
+     * @param task         the (cheap) task to execute by the timer thread
+     * @param delayMillis  the delay in millis
+     * @return the scheduled future, which should be cancelled if the task is not required anymore
+     */
+    static ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+        return DeadlineTimer.SCHEDULER.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    
+    private static final class DeadlineTimer {
+        
+        // the timer thread performs the expiration only. Completed requests remove their timer task 
+        private static final ScheduledThreadPoolExecutor SCHEDULER = newScheduler();
+        
+        private static ScheduledThreadPoolExecutor newScheduler() {
+            final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat("troilus-deadline-timer")
+                                                                                                                      .setDaemon(true)
+                                                                                                                      .build());
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+    
+    
     /**
      * @param throwable the Throwable to unwrap
      * @return the unwrapped throwable
@@ -333,6 +479,34 @@ class ListenableFutures {
     
     private static abstract class FutureImplBase<T> extends AbstractFuture<T> {
         private final AtomicBoolean isHandled = new AtomicBoolean();
+        
+        // explicit lock instead of synchronized, which would pin virtual threads
+        protected final Lock lock = new ReentrantLock();
+        
+        private final List<Future<?>> upstreamFutures = new CopyOnWriteArrayList<>();
+        
+        
+        /**
+         * @param upstreamFuture the future this future depends on, which will be cancelled if this future is cancelled 
+         */
+        protected void propagateCancellationTo(Future<?> upstreamFuture) {
+            upstreamFutures.add(upstreamFuture);
+            if (isCancelled()) {
+                upstreamFuture.cancel(false);
+            }
+        }
+        
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (super.cancel(mayInterruptIfRunning)) {
+                for (Future<?> upstreamFuture : upstreamFutures) {
+                    upstreamFuture.cancel(mayInterruptIfRunning);
+                }
+                return true;
+            } else {
+                return false;
+            }
+        }
 
         @Override
         protected boolean set(T value) {
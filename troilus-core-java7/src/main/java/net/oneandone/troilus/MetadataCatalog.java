@@ -16,20 +16,19 @@
 package net.oneandone.troilus;
 
 
-import java.util.List;
-import java.util.Set;
+import java.util.Iterator;
 
 
 
 
 import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.DataType;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.TableMetadata;
 import com.datastax.driver.core.UserType;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Sets;
 
 
 
@@ -51,12 +50,20 @@ class MetadataCatalog  {
         this.userTypeCache = new UserTypeCache(session);
     }
     
+    /**
+     * @param tablename the tablename
+     * @return the table descriptor
+     */
+    TableDescriptor getTableDescriptor(Tablename tablename) {
+        return tableMetadataCache.getDescriptor(tablename);
+    }
+    
     /**
      * @param tablename the tablename
      * @return the columnnames of this table
      */
     public ImmutableSet<String> getColumnNames(Tablename tablename) {
-        return tableMetadataCache.getColumnNames(tablename);
+        return getTableDescriptor(tablename).getColumnNames();
     }
     
     /**
@@ -65,7 +72,16 @@ class MetadataCatalog  {
      * @return the column metadata
      */
     public ColumnMetadata getColumnMetadata(Tablename tablename, String columnName) {
-        return tableMetadataCache.getColumnMetadata(tablename, columnName); 
+        return getTableDescriptor(tablename).getColumnMetadata(columnName); 
+    }
+    
+    /**
+     * @param tablename  the tablename
+     * @param columnName the cloumnname
+     * @return the data type of the column
+     */
+    DataType getDataType(Tablename tablename, String columnName) {
+        return getTableDescriptor(tablename).getDataType(columnName); 
     }
     
     /**
@@ -84,46 +100,53 @@ class MetadataCatalog  {
      * @return true if pk, false otherwise
      */
     public boolean isPrimaryKey(Tablename tablename, String columnName) {
-    	final List<ColumnMetadata> primaryKeys = tableMetadataCache.getMetadata(tablename).tableMetadata.getPrimaryKey();
-    	final ColumnMetadata columnMetadata = getColumnMetadata(tablename, columnName);
-    	return primaryKeys.contains(columnMetadata);
+        return getTableDescriptor(tablename).isPrimaryKey(columnName);
+    }
+    
+
+    /**
+     * invalidates the cached metadata of the table 
+     * @param keyspacename  the keyspacename
+     * @param tablename     the tablename or null to invalidate all tables of the keyspace
+     */
+    void invalidateTable(String keyspacename, String tablename) {
+        tableMetadataCache.invalidate(keyspacename, tablename);
     }
     
 
     private static final class TableMetadataCache {
         private final Session session;
-        private final Cache<Tablename, Metadata> tableMetadataCache;
+        private final Cache<Tablename, TableDescriptor> tableMetadataCache;
         
         
         
         public TableMetadataCache(Session session) {
             this.session = session;
-            this.tableMetadataCache = CacheBuilder.newBuilder().maximumSize(150).<Tablename, Metadata>build();
-        }
-        
-        ImmutableSet<String> getColumnNames(Tablename tablename) {
-            return getMetadata(tablename).getColumnNames();
+            this.tableMetadataCache = CacheBuilder.newBuilder().maximumSize(150).<Tablename, TableDescriptor>build();
         }
         
-        ColumnMetadata getColumnMetadata(Tablename tablename, String columnName) {
-            return getMetadata(tablename).getColumnMetadata(columnName);
+        void invalidate(String keyspacename, String tablename) {
+            for (Iterator<Tablename> it = tableMetadataCache.asMap().keySet().iterator(); it.hasNext(); ) {
+                if (it.next().matches(keyspacename, tablename)) {
+                    it.remove();
+                }
+            }
         }
         
-        private Metadata getMetadata(Tablename tablename) {
-            Metadata metadata = tableMetadataCache.getIfPresent(tablename);
-            if (metadata == null) {
-                metadata = loadMetadata(tablename);
-                tableMetadataCache.put(tablename, metadata);
+        TableDescriptor getDescriptor(Tablename tablename) {
+            TableDescriptor descriptor = tableMetadataCache.getIfPresent(tablename);
+            if (descriptor == null) {
+                descriptor = loadDescriptor(tablename);
+                tableMetadataCache.put(tablename, descriptor);
             }
             
-            return metadata;
+            return descriptor;
         }
         
         
-        private Metadata loadMetadata(Tablename tablename) {
+        private TableDescriptor loadDescriptor(Tablename tablename) {
             final TableMetadata tableMetadata = loadTableMetadata(session, tablename);
-            final ImmutableSet<String> columnNames = loadColumnNames(tableMetadata);
-            return new Metadata(tablename, tableMetadata, columnNames);
+            return new TableDescriptor(tablename, tableMetadata, session.getCluster().getConfiguration().getCodecRegistry());
         }
         
         
@@ -143,42 +166,8 @@ class MetadataCatalog  {
                 return tableMetadata;
             }
         }
-
-        private static ImmutableSet<String> loadColumnNames(TableMetadata tableMetadata) {
-            final Set<String> columnNames = Sets.newHashSet();
-            for (ColumnMetadata columnMetadata : tableMetadata.getColumns()) {
-                columnNames.add(columnMetadata.getName());
-            }
-            
-            return ImmutableSet.copyOf(columnNames);
-        }
     }
     
-    
-    private static final class Metadata {
-        private final Tablename tablename;
-        private final TableMetadata tableMetadata;
-        private final ImmutableSet<String> columnNames;
-        
-        public Metadata(Tablename tablename, TableMetadata tableMetadata, ImmutableSet<String> columnNames) {
-            this.tablename = tablename;
-            this.tableMetadata = tableMetadata;
-            this.columnNames = columnNames;
-        }
-        
-        ImmutableSet<String> getColumnNames() {
-            return columnNames;
-        }
-        
-        ColumnMetadata getColumnMetadata(String columnName) {
-            final ColumnMetadata metadata = tableMetadata.getColumn(columnName);
-            if (metadata == null) {
-                throw new RuntimeException("table " + tablename + " does not support column '" + columnName + "'");
-            }
-            return metadata;
-        }
-    }
-
 
     
     static final class UserTypeCache {
@@ -52,16 +52,27 @@ abstract class MutationQuery<Q> extends AbstractQuery<Q> {
     }
     
     public Result execute() {
-        return ListenableFutures.getUninterruptibly(executeAsync());
+        // the result is mapped by the calling thread 
+        return toResult(ListenableFutures.getUninterruptibly(executeResultSetAsync()));
     }
     
     public ListenableFuture<Result> executeAsync() {
-        ListenableFuture<ResultSet> future = performAsync(getDefaultDbSession(), getStatementAsync(getDefaultDbSession()));
-        
+        return toResultAsync(executeResultSetAsync());
+    }
+    
+    /**
+     * @param statement  the statement of this query, which has already been resolved by {@link MutationQuery#getStatementAsync(DBSession)}
+     * @return the result future. The statement is executed as it is, which means the interceptors will not be executed again 
+     */
+    ListenableFuture<Result> executeAsync(Statement statement) {
+        return toResultAsync(withDeadline(getTablename(), performAsync(getDefaultDbSession(), statement)));
+    }
+    
+    private ListenableFuture<Result> toResultAsync(ListenableFuture<ResultSet> future) {
         Function<ResultSet, Result> mapEntity = new Function<ResultSet, Result>() {
             @Override
             public Result apply(ResultSet resultSet) {
-                return newResult(resultSet);
+                return toResult(resultSet);
             }
         };
         
@@ -69,11 +80,46 @@ abstract class MutationQuery<Q> extends AbstractQuery<Q> {
     }
     
     
+    /**
+     * @return the underlying result set future. Typically this is the future returned by the driver, 
+     *         if the statement is available without waiting. The result set has to be mapped by {@link MutationQuery#toResult(ResultSet)}
+     */
+    ListenableFuture<ResultSet> executeResultSetAsync() {
+        return withDeadline(getTablename(), performAsync(getDefaultDbSession(), getStatementAsync(getDefaultDbSession())));
+    }
+    
+    
+    @Override
+    String getOperation() {
+        return "write";
+    }
+    
+    /**
+     * @return true, if the mutation is a conditional (lightweight transaction) one, which result has to be validated
+     */
+    boolean isConditional() {
+        return false;
+    }
+    
+    
+    /**
+     * maps the result set to the result. Sub classes validate the result here, so that
+     * the result set future is wrapped once only
+     * 
+     * @param resultSet  the result set
+     * @return the result
+     */
+    protected Result toResult(ResultSet resultSet) {
+        return newResult(resultSet);
+    }
+    
+    
     public abstract ListenableFuture<Statement> getStatementAsync(DBSession dbSession);
     
     
     protected ListenableFuture<Statement> mergeStatements(ListenableFuture<Statement> statementFuture, ListenableFuture<ImmutableSet<Statement>> cascadingStatmentsFuture) {
-        ListenableFuture<ImmutableSet<Statement>> statementsFuture = ListenableFutures.join(cascadingStatmentsFuture, statementFuture, getExecutor());
+        // joining collects the results only. It is cheap and does not require a thread hop 
+        ListenableFuture<ImmutableSet<Statement>> statementsFuture = ListenableFutures.join(cascadingStatmentsFuture, statementFuture, MoreExecutors.directExecutor());
 
         Function<ImmutableSet<Statement>, Statement> statementsBatcher = new Function<ImmutableSet<Statement>, Statement>() {
             
@@ -102,7 +148,7 @@ abstract class MutationQuery<Q> extends AbstractQuery<Q> {
             }
         };            
         ListenableFuture<ImmutableSet<ListenableFuture<Statement>>> statementFutureSet = Futures.transform(batchablesFutureSet, batchablesToStatement);
-        return ListenableFutures.flat(statementFutureSet, getExecutor());
+        return ListenableFutures.flat(statementFutureSet, MoreExecutors.directExecutor());
     }
     
     
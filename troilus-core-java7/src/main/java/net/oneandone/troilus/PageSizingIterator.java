@@ -0,0 +1,38 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import net.oneandone.troilus.java7.FetchingIterator;
+
+import com.datastax.driver.core.ResultSet;
+import com.google.common.util.concurrent.ListenableFuture;
+
+
+
+/**
+ * Fetching iterator, which supports to choose the size of the next page 
+ *
+ * @param <E> the element type
+ */
+interface PageSizingIterator<E> extends FetchingIterator<E> {
+
+    /**
+     * @param fetchSize  the size of the next page. It will be considered, if no elements are available without fetching 
+     * @return a future on the completion of fetching the next page of results
+     */
+    ListenableFuture<ResultSet> fetchMoreResultsAsync(int fetchSize);
+}
@@ -27,15 +27,14 @@ import java.util.Map.Entry;
 import net.oneandone.troilus.java7.interceptor.ReadQueryData;
 
 import com.datastax.driver.core.PagingState;
-import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.Clause;
 import com.datastax.driver.core.querybuilder.Select;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
-import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
 
@@ -242,7 +241,74 @@ class ReadQueryDataImpl implements ReadQueryData {
      * @param ctx    the context
      * @return  the query as statement
      */
-    static ListenableFuture<Statement> toStatementAsync(ReadQueryData data, UDTValueMapper udtValueMapper, DBSession dbSession) {
+    static ListenableFuture<Statement> toStatementAsync(final ReadQueryData data, UDTValueMapper udtValueMapper, DBSession dbSession) {
+        
+        // NOTE:
+        // The PagingState is not set here. This results in a PagingStateException because a Select is a RegularStatement
+        // while the ResultSet.getPagingState() has the final BoundStatement in it.
+        // So, their hash() is different and the driver throws the PagingStateException
+        // @see PagingState.hash()
+        
+        // where-based selection
+        if (data.getKeys().isEmpty()) {
+            final Select select = newSelect(data);
+            for (Clause whereClause : data.getWhereConditions()) {
+                select.where(whereClause);
+            }
+            
+            return dbSession.prepareAndBindAsync(data.getTablename(), select);
+
+            
+        // key-based selection    
+        } else {
+            final List<Object> values = Lists.newArrayList();
+            final StatementShape.Builder shape = newShape(data);
+            
+            for (Entry<String, ImmutableList<Object>> entry : data.getKeys().entrySet()) {
+                if (entry.getValue().size() == 1) {
+                    shape.add("=", entry.getKey());
+                    values.add(udtValueMapper.toStatementValue(data.getTablename(), entry.getKey(), entry.getValue().get(0)));
+                } else {
+                    shape.add("IN", entry.getKey());
+                    values.add(udtValueMapper.toStatementValues(data.getTablename(), entry.getKey(), entry.getValue()));
+                }
+            }
+            
+            final Supplier<Select> statementBuilder = new Supplier<Select>() {
+                
+                @Override
+                public Select get() {
+                    final Select select = newSelect(data);
+                    for (Entry<String, ImmutableList<Object>> entry : data.getKeys().entrySet()) {
+                        if (entry.getValue().size() == 1) {
+                            select.where(eq(entry.getKey(), bindMarker()));
+                        } else {
+                            select.where(in(entry.getKey(), bindMarker()));
+                        }
+                    }
+                    return select;
+                }
+            };
+
+            return dbSession.bindAsync(shape.build(), statementBuilder, values.toArray());
+        }
+    }   
+    
+    
+    private static StatementShape.Builder newShape(ReadQueryData data) {
+        final StatementShape.Builder shape = StatementShape.newShape("SELECT", data.getTablename())
+                                                           .add(data.getDistinct())
+                                                           .add(data.getLimit())
+                                                           .add(data.getAllowFiltering());
+        for (Entry<String, Boolean> entry : data.getColumnsToFetch().entrySet()) {
+            shape.add(entry.getValue() ? "COLUMN_WITH_METADATA" : "COLUMN", entry.getKey());
+        }
+        
+        return shape;
+    }
+    
+    
+    private static Select newSelect(ReadQueryData data) {
         final Select.Selection selection = select();
 
         if ((data.getDistinct() != null) && data.getDistinct()) {
@@ -289,44 +355,8 @@ class ReadQueryDataImpl implements ReadQueryData {
             select.setFetchSize(data.getFetchSize());
         }
         
-        // NOTE:
-        // This results in a PagingStateException because a Select is a RegularStatement
-        // while the ResultSet.getPagingState() has the final BoundStatement in it.
-        // So, their hash() is different and the driver throws the PagingStateException
-        // @see PagingState.hash()
-    	//if (data.getPagingState() != null) {
-    	//	select.setPagingState(data.getPagingState());
-    	//}
-        
-        // where-based selection
-        if (data.getKeys().isEmpty()) {
-            for (Clause whereClause : data.getWhereConditions()) {
-                select.where(whereClause);
-            }
-            
-            return Futures.<Statement>immediateFuture(select);
-
-            
-        // key-based selection    
-        } else {
-            final List<Object> values = Lists.newArrayList();
-            
-            for (Entry<String, ImmutableList<Object>> entry : data.getKeys().entrySet()) {
-                if (entry.getValue().size() == 1) {
-                    select.where(eq(entry.getKey(), bindMarker()));
-                    values.add(udtValueMapper.toStatementValue(data.getTablename(), entry.getKey(), entry.getValue().get(0)));
-                } else {
-                    select.where(in(entry.getKey(), bindMarker()));
-                    values.add(udtValueMapper.toStatementValues(data.getTablename(), entry.getKey(), entry.getValue()));
-                }
-                
-            }
-            
-
-            final ListenableFuture<PreparedStatement> preparedStatementFuture = dbSession.prepareAsync(select);
-            return dbSession.bindAsync(preparedStatementFuture, values.toArray());
-        }
-    }   
+        return select;
+    }
     
     @Override
 	public PagingState getPagingState() {
@@ -60,6 +60,7 @@ class RecordImpl implements Record {
     private final Context ctx;
     private final Result result;
     private final Row row;
+    private TableDescriptor descriptor = null;  // resolved on first use 
     
     /**
      * @param ctx     the context
@@ -249,103 +250,60 @@ class RecordImpl implements Record {
         return name.read(this);
     }
     
-    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @SuppressWarnings("unchecked")
     @Override
     public <T> T getValue(String name, Class<T> elementsClass) {
-        final DataType datatype = getColumnDefinitions().getType(name);
-        
-        if (datatype != null) {
-            
-            // build-in
-            if (UDTValueMapper.isBuildInType(datatype)) {
-         
-                final ByteBuffer byteBuffer = getBytesUnsafe(name); 
-                Object obj;
-                if (byteBuffer == null) {
-                    obj = null;
-                } else  {
-                	obj = ctx.getUDTValueMapper().deserialize(datatype, byteBuffer);
-                }
-            
-                // enum
-                if ((obj != null) && DataTypes.isTextDataType(datatype) && Enum.class.isAssignableFrom(elementsClass)) {
-                    return (T) Enum.valueOf((Class<Enum>) elementsClass, obj.toString());
-                }
-                
-                // bytebuffer (byte[])
-                if (datatype.equals(DataType.blob()) && byte[].class.isAssignableFrom(elementsClass)) {
-                    if (obj == null) {
-                        return (T) new byte[0];
-                    } else {
-                        final ByteBuffer bb = (ByteBuffer) obj;
-                        byte[] bytes = new byte[bb.remaining()];
-                        bb.get(bytes, 0, bytes.length);
-                        return (T) bytes;
-                    }
-                }
-                
-                return (T) obj;
-             
-            // udt
-            } else {
-                return ctx.getUDTValueMapper().fromUdtValue(datatype, getUDTValue(name), elementsClass);
-            }
+        final UDTValueMapper udtValueMapper = ctx.getUDTValueMapper();
+        final int idx = getDescriptor().findIndex(name);
+        if (idx < 0) {
+            // e.g. writetime or ttl columns, which are not part of the table  
+            return (T) udtValueMapper.newReadPlan(getColumnDefinitions().getType(name), elementsClass).read(getRow(), name);
+        } else {
+            return (T) udtValueMapper.getReadPlan(getDescriptor().getColumnPlans(idx), elementsClass).read(getRow(), name);
         }
-        
-        return null;
     }
     
     
     
+    @SuppressWarnings("unchecked")
     @Override
     public <T> ImmutableSet<T> getSet(String name, Class<T> elementsClass) {
         if (isNull(name)) {
             return ImmutableSet.of();
         }
-
-        final DataType datatype = ctx.getCatalog().getColumnMetadata(tablename, name).getType();
-        if (UDTValueMapper.isBuildInType(datatype)) {
-            return ImmutableSet.copyOf(getRow().getSet(name, elementsClass));
-        } else {
-            return ctx.getUDTValueMapper().fromUdtValues(datatype.getTypeArguments().get(0), ImmutableSet.copyOf(getRow().getSet(name, UDTValue.class)), elementsClass);
-        }
+        
+        final UDTValueMapper.ColumnPlans column = getDescriptor().getColumnPlans(getDescriptor().indexOf(name));
+        return ImmutableSet.copyOf((Collection<T>) ctx.getUDTValueMapper().getElementsReadPlan(column, elementsClass).read(getRow(), name));
     }
     
+    @SuppressWarnings("unchecked")
     @Override
     public <T> ImmutableList<T> getList(String name, Class<T> elementsClass) {
         if (isNull(name)) {
             return ImmutableList.of();
         }
         
-        final DataType datatype = ctx.getCatalog().getColumnMetadata(tablename, name).getType();
-        if (UDTValueMapper.isBuildInType(datatype)) {
-            return ImmutableList.copyOf(getRow().getList(name, elementsClass));
-        } else {
-            return ctx.getUDTValueMapper().fromUdtValues(datatype.getTypeArguments().get(0), ImmutableList.copyOf(getRow().getList(name, UDTValue.class)), elementsClass);
-        }
+        final UDTValueMapper.ColumnPlans column = getDescriptor().getColumnPlans(getDescriptor().indexOf(name));
+        return ImmutableList.copyOf((Collection<T>) ctx.getUDTValueMapper().getElementsReadPlan(column, elementsClass).read(getRow(), name));
     }
     
+    @SuppressWarnings("unchecked")
     @Override
     public <K, V> ImmutableMap<K, V> getMap(String name, Class<K> keysClass, Class<V> valuesClass) {
         if (isNull(name)) {
             return ImmutableMap.of();
         }
         
-        final DataType datatype = ctx.getCatalog().getColumnMetadata(tablename, name).getType();
-        if (UDTValueMapper.isBuildInType(datatype)) {
-            return ImmutableMap.copyOf(getRow().getMap(name, keysClass, valuesClass));
-            
-        } else {
-            if (UDTValueMapper.isBuildInType(datatype.getTypeArguments().get(0))) {
-                return ctx.getUDTValueMapper().fromUdtValues(datatype.getTypeArguments().get(0), datatype.getTypeArguments().get(1), ImmutableMap.copyOf(getRow().getMap(name, keysClass, UDTValue.class)), keysClass, valuesClass);
-
-            } else if (UDTValueMapper.isBuildInType(datatype.getTypeArguments().get(1))) {
-                return ctx.getUDTValueMapper().fromUdtValues(datatype.getTypeArguments().get(0), datatype.getTypeArguments().get(1), ImmutableMap.copyOf(getRow().getMap(name, UDTValue.class, valuesClass)), keysClass, valuesClass);
-                
-            } else {
-                return ctx.getUDTValueMapper().fromUdtValues(datatype.getTypeArguments().get(0), datatype.getTypeArguments().get(1), ImmutableMap.copyOf(getRow().getMap(name, UDTValue.class, UDTValue.class)), keysClass, valuesClass);
-            }
+        final UDTValueMapper.ColumnPlans column = getDescriptor().getColumnPlans(getDescriptor().indexOf(name));
+        return (ImmutableMap<K, V>) ctx.getUDTValueMapper().getEntriesReadPlan(column, keysClass, valuesClass).read(getRow(), name);
+    }
+    
+    
+    private TableDescriptor getDescriptor() {
+        if (descriptor == null) {
+            descriptor = ctx.getCatalog().getTableDescriptor(tablename);
         }
+        return descriptor;
     }
     
     @Override
@@ -16,6 +16,7 @@
 package net.oneandone.troilus;
 
 import java.util.Iterator;
+import java.util.List;
 
 import net.oneandone.troilus.java7.FetchingIterator;
 import net.oneandone.troilus.java7.Record;
@@ -23,9 +24,14 @@ import net.oneandone.troilus.java7.ResultList;
 import net.oneandone.troilus.java7.interceptor.ReadQueryData;
 
 import com.datastax.driver.core.ExecutionInfo;
+import com.datastax.driver.core.PagingState;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
 
@@ -34,26 +40,51 @@ import com.google.common.util.concurrent.ListenableFuture;
  */
 class RecordListImpl implements ResultList<Record> {
     private final Context ctx;
+    private final ListReadQuery query;
     private final ReadQueryData queryData;
     private final ResultSet rs;
+    private final Long deadlineNanos;
     
-    private final Iterator<Row> iterator;
+    // a page fetched with a dedicated fetch size replaces the (exhausted) result set 
+    private final List<ResultSet> resultSets = Lists.newCopyOnWriteArrayList();
+    private volatile ResultSet currentRs;
+    private volatile Iterator<Row> iterator;
     
-    RecordListImpl(Context ctx, ReadQueryData queryData, ResultSet rs) {
+    // the fetch size of the current result set's statement or null, if the default fetch size is used 
+    private volatile Integer currentFetchSize;
+    
+    /**
+     * @param ctx            the context
+     * @param query          the query
+     * @param queryData      the query data
+     * @param rs             the result set
+     * @param deadlineNanos  the absolute deadline of the query in terms of {@link System#nanoTime()} or null. Fetching 
+     *                       further pages is restricted to the remaining time of the deadline
+     */
+    RecordListImpl(Context ctx, ListReadQuery query, ReadQueryData queryData, ResultSet rs, Long deadlineNanos) {
         this.ctx = ctx;
+        this.query = query;
         this.queryData = queryData;
         this.rs = rs;
+        this.deadlineNanos = deadlineNanos;
+        this.resultSets.add(rs);
+        this.currentRs = rs;
         this.iterator = rs.iterator();
+        this.currentFetchSize = queryData.getFetchSize();
     }
     
     @Override
     public ExecutionInfo getExecutionInfo() {
-        return rs.getExecutionInfo();
+        return currentRs.getExecutionInfo();
     }
     
     @Override
     public ImmutableList<ExecutionInfo> getAllExecutionInfo() {
-        return ImmutableList.copyOf(rs.getAllExecutionInfo());
+        final ImmutableList.Builder<ExecutionInfo> builder = ImmutableList.builder();
+        for (ResultSet resultSet : resultSets) {
+            builder.addAll(resultSet.getAllExecutionInfo());
+        }
+        return builder.build();
     }
 
     @Override
@@ -66,7 +97,7 @@ class RecordListImpl implements ResultList<Record> {
         	return new PaginationBasedResultsIterator();
         }
         
-        return new FetchingIterator<Record>() {
+        return new PageSizingIterator<Record>() {
 
             @Override
             public boolean hasNext() {
@@ -85,27 +116,89 @@ class RecordListImpl implements ResultList<Record> {
            
            @Override
            public ListenableFuture<ResultSet> fetchMoreResultsAsync() {
-               return rs.fetchMoreResults();
+               return RecordListImpl.this.fetchMoreResultsAsync();
+           }
+           
+           @Override
+           public ListenableFuture<ResultSet> fetchMoreResultsAsync(int fetchSize) {
+               return RecordListImpl.this.fetchMoreResultsAsync(fetchSize);
            }
            
            @Override
            public int getAvailableWithoutFetching() {
-               return rs.getAvailableWithoutFetching();
+               return currentRs.getAvailableWithoutFetching();
            }
            
            @Override
            public boolean isFullyFetched() {
-               return rs.isFullyFetched();
+               return currentRs.isFullyFetched();
            }
         };
     }
     
+    /**
+     * @return the fetch future, which considers the remaining time of the query's deadline and the bulkhead, if set
+     */
+    private ListenableFuture<ResultSet> fetchMoreResultsAsync() {
+        final ResultSet resultSet = currentRs;
+        
+        final Supplier<ListenableFuture<ResultSet>> pageRequest = new Supplier<ListenableFuture<ResultSet>>() {
+            
+            @Override
+            public ListenableFuture<ResultSet> get() {
+                return resultSet.fetchMoreResults();
+            }
+        };
+        return fetchAsync(pageRequest);
+    }
+    
+    /**
+     * @param fetchSize  the size of the next page
+     * @return the fetch future. If the current page is exhausted, the next page will be queried by a new
+     *         statement with the paging state and the given fetch size, and the new result set replaces 
+     *         the current one. The statement of the current result set is not modified    
+     */
+    private ListenableFuture<ResultSet> fetchMoreResultsAsync(final int fetchSize) {
+        final ResultSet resultSet = currentRs;
+        final Integer resultSetFetchSize = currentFetchSize;
+        final PagingState pagingState = resultSet.getExecutionInfo().getPagingState();
+        
+        // the driver fetches the next page with the fetch size of the initial request. A dedicated fetch
+        // size requires a new request, which is possible only if the buffered rows have been consumed
+        if ((resultSet.getAvailableWithoutFetching() > 0) || 
+            resultSet.isFullyFetched() || 
+            (pagingState == null) || 
+            ((resultSetFetchSize != null) && (resultSetFetchSize == fetchSize))) {
+            return fetchMoreResultsAsync();
+        }
+        
+        final Function<ResultSet, ResultSet> resultSetSwitcher = new Function<ResultSet, ResultSet>() {
+            
+            @Override
+            public ResultSet apply(ResultSet nextResultSet) {
+                resultSets.add(nextResultSet);
+                iterator = nextResultSet.iterator();
+                currentFetchSize = fetchSize;
+                currentRs = nextResultSet;
+                return nextResultSet;
+            }
+        };
+        
+        return Futures.transform(query.fetchPageAsync(queryData.pagingState(pagingState), fetchSize, deadlineNanos), resultSetSwitcher);
+    }
+    
+    private ListenableFuture<ResultSet> fetchAsync(Supplier<ListenableFuture<ResultSet>> pageRequest) {
+        final Bulkhead bulkhead = ctx.getExecutionSpec().getBulkhead();
+        final ListenableFuture<ResultSet> future = (bulkhead == null) ? pageRequest.get() : bulkhead.executePageFetchAsync(pageRequest);
+        return ctx.getDefaultDbSession().withAbsoluteDeadline(queryData.getTablename(), future, deadlineNanos);
+    }
+    
     private class PaginationBasedResultsIterator implements FetchingIterator<Record> {
 
     	private int limit;
     	
     	PaginationBasedResultsIterator() {
-    		limit = rs.getAvailableWithoutFetching();
+    		limit = currentRs.getAvailableWithoutFetching();
         }
     	    	
 		@Override
@@ -126,12 +219,13 @@ class RecordListImpl implements ResultList<Record> {
 
 		@Override
 		public boolean isFullyFetched() {
-			return rs.isFullyFetched();
+			// the iterator is limited to the current page. Further pages are queried by using the paging state
+			return true;
 		}
 
 		@Override
 		public ListenableFuture<ResultSet> fetchMoreResultsAsync() {
-			return rs.fetchMoreResults();
+			return RecordListImpl.this.fetchMoreResultsAsync();
 		}
     	
     }
@@ -16,6 +16,7 @@
 package net.oneandone.troilus;
 
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 import net.oneandone.troilus.java7.FetchingIterator;
 import net.oneandone.troilus.java7.ResultList;
@@ -43,9 +44,10 @@ class ResultListPublisher<R> implements Publisher<R> {
     
     /**
      * @param resultlistFuture  the future result list
+     * @param executor          the executor to signal the subscriber, which is typically shared by all publishers of a Dao 
      */
-    public ResultListPublisher(ListenableFuture<ResultList<R>> resultlistFuture) {
-        this.lazyInitializer = new LazyInitializer(resultlistFuture);
+    public ResultListPublisher(ListenableFuture<ResultList<R>> resultlistFuture, Executor executor) {
+        this.lazyInitializer = new LazyInitializer(resultlistFuture, executor);
     }
     
     @Override
@@ -75,6 +77,7 @@ class ResultListPublisher<R> implements Publisher<R> {
     
     private final class LazyInitializer implements Runnable {
         private final ListenableFuture<ResultList<R>> resultlistFuture;
+        private final Executor executor;
      
         // will be set later
         private boolean isInitialized = false;
@@ -82,8 +85,9 @@ class ResultListPublisher<R> implements Publisher<R> {
         private FetchingIterator<R> iterator = null;
         
         
-        public LazyInitializer(ListenableFuture<ResultList<R>> resultlistFuture) {
+        public LazyInitializer(ListenableFuture<ResultList<R>> resultlistFuture, Executor executor) {
             this.resultlistFuture = resultlistFuture;
+            this.executor = executor;
             resultlistFuture.addListener(this, MoreExecutors.directExecutor());
         }
         
@@ -120,7 +124,7 @@ class ResultListPublisher<R> implements Publisher<R> {
             synchronized (this) {
                 if ((!isInitialized) && (subscriber != null) && (iterator != null)) {
                     isInitialized = true;
-                    new ResultListSubscription<>(subscriber, iterator);
+                    new ResultListSubscription<>(subscriber, iterator, executor);
                 }
             }
         }
@@ -15,11 +15,9 @@
  */
 package net.oneandone.troilus;
 
-import java.io.Closeable;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import net.oneandone.troilus.java7.FetchingIterator;
@@ -30,280 +28,269 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.datastax.driver.core.ResultSet;
-import com.google.common.collect.Queues;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 
 
 /**
- * ResultListSubscription
+ * ResultListSubscription. The signals are emitted by a serialized drain loop, which runs on 
+ * the (shared) executor. A single run emits as many elements as requested and available 
+ * without fetching. Page fetches complete on the driver's I/O threads and just schedule 
+ * the drain loop again.<br>
+ * <br>
+ * If the buffered records are consumed, the next page will be fetched with a size following 
+ * the outstanding demand (within min and max fetch size), if supported by the iterator. If 
+ * the buffered records drop below the low watermark while the demand exceeds them, the next 
+ * page will be fetched in advance to overlap fetching with processing   
  * 
  * @param <T> the element type
  */
-class ResultListSubscription<T> implements Subscription {
-    private final DatabaseSource<T> databaseSource;
-    private final SubscriberNotifier<T> subscriberNotifier;
+class ResultListSubscription<T> implements Subscription, Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(ResultListSubscription.class);
+    
+    // bounds of the fetch size, which follows the outstanding demand
+    static final int MIN_FETCH_SIZE = 100;
+    static final int MAX_FETCH_SIZE = 5000;
+    
+    // the next page will be fetched in advance, if the buffered records drop below this ratio of the largest page
+    static final double READ_AHEAD_RATIO = 0.25;
+    
+    private final Executor executor;
+    private final FetchingIterator<T> iterator;
+    
+    // the subscriber will be dropped on termination or cancellation  
+    private volatile Subscriber<? super T> subscriber;
+    
+    private final AtomicInteger numPendingDrains = new AtomicInteger();
+    private final AtomicLong numRequested = new AtomicLong();
+    
+    private volatile boolean isCancelled = false;
+    private volatile Throwable pendingError = null;
+    private volatile boolean isFetching = false;
+    private volatile ListenableFuture<ResultSet> runningFetchFuture = null;
+    
+    // accessed by the drain loop only
+    private boolean isSubscribed = false;
+    private boolean isTerminated = false;
+    private int lowWatermark = 0;
   
 
     /**
      * @param subscriber  the subscriber 
      * @param iterator    the underlying iterator
+     * @param executor    the executor to signal the subscriber
      */
-    public ResultListSubscription(Subscriber<? super T> subscriber, FetchingIterator<T> iterator) {
-        final Executor executor = Executors.newCachedThreadPool();
-
-        this.subscriberNotifier = new SubscriberNotifier<>(executor, subscriber);
-        this.databaseSource = new DatabaseSource<>(executor, subscriberNotifier, iterator);
+    public ResultListSubscription(Subscriber<? super T> subscriber, FetchingIterator<T> iterator, Executor executor) {
+        this.subscriber = subscriber;
+        this.iterator = iterator;
+        this.executor = executor;
         
-        subscriberNotifier.emitNotification(new OnSubscribe());
+        scheduleDrain();
     }
 
     
-    private class OnSubscribe extends SubscriberNotifier.Notification<T> {
-        
-        @Override
-        public void signalTo(Subscriber<? super T> subscriber) {
-            subscriber.onSubscribe(ResultListSubscription.this);
-        }
-    }
-    
-    
-    
     @Override
     public void cancel() {
-        databaseSource.close();
+        isCancelled = true;
+        
+        // a pending fetch is not required anymore
+        final ListenableFuture<ResultSet> future = runningFetchFuture;
+        if (future != null) {
+            future.cancel(false);
+        }
+        
+        // let the drain loop drop the subscriber  
+        scheduleDrain();
     }
     
     
     @Override
     public void request(long n) {                
-        if(n <= 0) {
+        if (n <= 0) {
             // https://github.com/reactive-streams/reactive-streams#3.9
-            subscriberNotifier.emitNotification(new OnError<T>(new IllegalArgumentException("Non-negative number of elements must be requested: https://github.com/reactive-streams/reactive-streams#3.9")));
+            pendingError = new IllegalArgumentException("Non-negative number of elements must be requested: https://github.com/reactive-streams/reactive-streams#3.9");
         } else {
-            databaseSource.request(n);
+            // https://github.com/reactive-streams/reactive-streams#3.17 
+            while (true) {
+                final long current = numRequested.get();
+                if (current == Long.MAX_VALUE) {
+                    break;
+                }
+                
+                long updated = current + n;
+                if (updated < 0) {
+                    updated = Long.MAX_VALUE;
+                }
+                if (numRequested.compareAndSet(current, updated)) {
+                    break;
+                }
+            }
         }
+        
+        scheduleDrain();
     }
     
- 
     
-    private static class OnError<R> extends SubscriberNotifier.TerminatingNotification<R> {
-        private static final Logger LOG = LoggerFactory.getLogger(OnError.class);
-        private final Throwable error;
-        
-        public OnError(Throwable error) {
-            this.error = error;
-        }
-        
-        @Override
-        public void signalTo(Subscriber<? super R> subscriber) {
-            LOG.debug("processing error occured", error);
+    private void scheduleDrain() {
+        // the drain loop is already scheduled or running? It will pick up the new state 
+        if (numPendingDrains.getAndIncrement() == 0) {
             try {
-                subscriber.onError(error);
+                executor.execute(this);
             } catch (RuntimeException rt) {
-                LOG.warn("error occured by notifying error ", rt);
+                // the executor does not work anyway. The calling thread runs the drain loop to terminate the subscription. 
+                // This signals onSubscribe first, if not done so far, and releases the pending drains
+                pendingError = rt;
+                run();
             }
         }
     }
-
     
     
-    
-    private static final class DatabaseSource<R> implements Closeable {
-        private final Object dbQueryLock = new Object();
-        private final AtomicBoolean isOpen = new AtomicBoolean(true);
-
-        private final AtomicLong numRequestedReads = new AtomicLong();
-        
-        private final Executor executor;
-        private final SubscriberNotifier<R> notifier;
-        private final FetchingIterator<R> iterator;
-        
-        private Runnable runningDatabaseQuery = null;
-
-
-        DatabaseSource(Executor executor, SubscriberNotifier<R> notifier, FetchingIterator<R> iterator) {
-            this.executor = executor;
-            this.notifier = notifier;
-            this.iterator = iterator;
-        }
-        
-        @Override
-        public void close() {
-            isOpen.set(false);
-        }
-          
+    // main "event loop" 
+    @Override
+    public void run() {
+        int missed = 1;
         
-        void request(long num) {
-            if (isOpen.get()) {
-                numRequestedReads.addAndGet(num);
-                processReadRequests();
-            } 
+        while (true) {
+            try {
+                drain();
+            } catch (RuntimeException rt) {
+                // https://github.com/reactive-streams/reactive-streams#2.13 subscriber has violated the spec 
+                LOG.warn("error occured by signaling subscriber. Cancelling subscription", rt);
+                cancel();
+                terminate();
+            }
+            
+            missed = numPendingDrains.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
         }
+    }
     
     
-        private void processReadRequests() {
-            if (isOpen.get()) {
-                processAvailableDatabaseRecords();
+    private void drain() {
+        if (isTerminated) {
+            return;
+        }
         
-                // more db records required? 
-                if (numRequestedReads.get() > 0) {
-                    // [synchronization note] under some circumstances the method requestDatabaseForMoreRecords()
-                    // will be executed without the need of more records. However, it does not matter
-                    requestDatabaseForMoreRecords();
-                }
-            }
+        if (isCancelled) {
+            terminate();
+            return;
         }
-    
         
-        private void processAvailableDatabaseRecords() {
-            while ((iterator.getAvailableWithoutFetching() > 0) && numRequestedReads.get() > 0) {
-                try {
-                    numRequestedReads.decrementAndGet();
-                    notifier.emitNotification(new OnNext(iterator.next()));
-                } catch (RuntimeException rt) {
-                    notifier.emitNotification(new OnError<R>(rt));
-                }
-            }
+        if (!isSubscribed) {
+            isSubscribed = true;
+            subscriber.onSubscribe(this);
         }
-
         
         
-        void requestDatabaseForMoreRecords() {
-            
-            // more data to fetch available?
-            if (iterator.isFullyFetched()) {
-                // no, all data has been read
-                notifier.emitNotification(new OnComplete());
-                
-            // yes, more elements can be fetched   
-            } else { 
-                synchronized (dbQueryLock) {
-                    // submit an async database query (if not already running) 
-                    if (runningDatabaseQuery == null) {
-                        final ListenableFuture<ResultSet> future = iterator.fetchMoreResultsAsync();
-                        
-                        final Runnable databaseRequest = new Runnable() {
-                                                            @Override
-                                                            public void run() {
-                                                                synchronized (dbQueryLock) {
-                                                                    runningDatabaseQuery = null; 
-                                                                }
-                                                                processReadRequests();
-                                                            }                                                                           
-                                                   };
-                        future.addListener(databaseRequest, executor);
-                        
-                        runningDatabaseQuery = databaseRequest;
-                    }
-                }
-            }
-        }
+        long requested = numRequested.get();
+        long emitted = 0;
         
+        int available = iterator.getAvailableWithoutFetching();
+        lowWatermark = Math.max(lowWatermark, (int) (available * READ_AHEAD_RATIO));
         
-        private class OnNext extends SubscriberNotifier.Notification<R> {
-            private final R element;
-            
-            public OnNext(R element) {
-                this.element = element;
+        while (!isCancelled && (pendingError == null) && (emitted < requested) && (available > 0)) {
+            final T element;
+            try {
+                element = iterator.next();
+            } catch (RuntimeException rt) {
+                signalError(rt);
+                return;
             }
             
-            @Override
-            public void signalTo(Subscriber<? super R> subscriber) {
-                subscriber.onNext(element);
-            }
-        }
-
-
-        private class OnComplete extends SubscriberNotifier.TerminatingNotification<R> {
+            subscriber.onNext(element);
+            emitted++;
+            available = iterator.getAvailableWithoutFetching();
             
-            @Override
-            public void signalTo(Subscriber<? super R> subscriber) {
-                subscriber.onComplete();
+            // read ahead, if the buffered records will not satisfy the demand  
+            if (!isFetching && (available <= lowWatermark) && ((requested - emitted) > available) && !iterator.isFullyFetched()) {
+                fetchMoreRecords(null);
             }
         }
-    }
-    
-    
-
-    private static final class SubscriberNotifier<R> implements Runnable {
-        private final ConcurrentLinkedQueue<Notification<R>> notifications = Queues.newConcurrentLinkedQueue();
-        private final Executor executor;
-        private final AtomicBoolean isOpen = new AtomicBoolean(true);
         
-        private final Subscriber<? super R> subscriber;
+        if (isCancelled) {
+            terminate();
+            return;
+        }
         
-        public SubscriberNotifier(Executor executor, Subscriber<? super R> subscriber) {
-            this.executor = executor;
-            this.subscriber = subscriber;
+        if (pendingError != null) {
+            signalError(pendingError);
+            return;
         }
         
-        private void close() {
-            isOpen.set(false);
-            notifications.clear();  
+        if ((emitted > 0) && (requested != Long.MAX_VALUE)) {
+            requested = numRequested.addAndGet(-emitted);
         }
         
-        public void emitNotification(Notification<R> notification) {
-            if (isOpen.get()) {
-                if (notifications.offer(notification)) {
-                    tryScheduleToExecute();
-                }
+        // more db records required? 
+        if (!isFetching && (iterator.getAvailableWithoutFetching() == 0)) {
+            if (iterator.isFullyFetched()) {
+                final Subscriber<? super T> s = subscriber;
+                terminate();
+                s.onComplete();
+                
+            } else if (requested > 0) {
+                fetchMoreRecords(toFetchSize(requested));
             }
         }
+    }
+    
+    
+    private static int toFetchSize(long requested) {
+        return (int) Math.max(MIN_FETCH_SIZE, Math.min(MAX_FETCH_SIZE, requested));
+    }
 
-        private final void tryScheduleToExecute() {
-            try {
-                executor.execute(this);
-            } catch (Throwable t) {
-                close(); // no further notifying (executor does not work anyway)
-                subscriber.onError(t);
-            }
-        }
+    
+    /**
+     * @param fetchSize  the size of the next page or null to use the size of the current page 
+     */
+    private void fetchMoreRecords(Integer fetchSize) {
+        isFetching = true;
         
-
-        // main "event loop" 
-        @Override 
-        public final void run() {
+        final ListenableFuture<ResultSet> future = ((fetchSize != null) && (iterator instanceof PageSizingIterator)) ? ((PageSizingIterator<T>) iterator).fetchMoreResultsAsync(fetchSize)
+                                                                                                                       : iterator.fetchMoreResultsAsync();
+        runningFetchFuture = future;
+        
+        final Runnable fetchCompletionHandler = new Runnable() {
             
-            if (isOpen.get()) {
+            @Override
+            public void run() {
+                runningFetchFuture = null;
                 
-                synchronized (subscriber) {
+                if (!future.isCancelled()) {
                     try {
-                        Notification<R> notification = notifications.poll(); 
-                        if (notification != null) {
-                            if (notification.isTerminating()) {
-                                close();
-                            }
-                            notification.signalTo(subscriber);
-                        }
-                    } finally {
-                        if(!notifications.isEmpty()) {
-                            tryScheduleToExecute(); 
-                        }
+                        future.get();
+                    } catch (InterruptedException | ExecutionException | RuntimeException e) {
+                        pendingError = ListenableFutures.unwrapIfNecessary(e);
                     }
                 }
-            }
-        }
-      
-        
-        
-        private static abstract class Notification<R> { 
-            
-            abstract void signalTo(Subscriber<? super R> subscriber);
-            
-            boolean isTerminating() {
-                return false;
-            }
-        };
-        
-        
-        
-        // Once a terminal state has been signaled (onError, onComplete) it is REQUIRED that no further signals occur
-        private static abstract class TerminatingNotification<R> extends Notification<R> { 
-            
-            boolean isTerminating() {
-                return true;
+                
+                isFetching = false;
+                scheduleDrain();
             }
         };
+        future.addListener(fetchCompletionHandler, MoreExecutors.directExecutor());
+    }
+    
+    
+    private void signalError(Throwable error) {
+        LOG.debug("processing error occured", error);
+        final Subscriber<? super T> s = subscriber;
+        terminate();
+        try {
+            s.onError(error);
+        } catch (RuntimeException rt) {
+            LOG.warn("error occured by notifying error ", rt);
+        }
+    }
+    
+    
+    // Once a terminal state has been signaled (onError, onComplete) it is REQUIRED that no further signals occur
+    private void terminate() {
+        isTerminated = true;
+        subscriber = null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.WriteType;
+import com.datastax.driver.core.exceptions.DriverException;
+import com.datastax.driver.core.policies.RetryPolicy;
+import com.google.common.base.MoreObjects;
+
+
+
+/**
+ * Token bucket based retry budget, which may be shared by the Daos of a session or a table.
+ * Each successful request deposits the retry ratio (e.g. 0.1 token for 10 percent) and each
+ * retry withdraws one token. If the bucket is empty, the retry decision of the underlying
+ * retry policy is replaced by rethrowing the error. This bounds the additional load of
+ * retries during partial outages to the retry ratio of the successful requests
+ */
+public final class RetryBudget {
+
+    /**
+     * the default ratio of retries to successful requests
+     */
+    public static final double DEFAULT_RETRY_RATIO = 0.1;
+
+    /**
+     * the default max number of tokens, which is the max burst of retries
+     */
+    public static final int DEFAULT_MAX_TOKENS = 100;
+
+    private final double retryRatio;
+    private final double maxTokens;
+
+    private final Lock lock = new ReentrantLock();
+    private double tokens;
+
+    private final AtomicLong numRetries = new AtomicLong();
+    private final AtomicLong numSuppressedRetries = new AtomicLong();
+
+
+    private RetryBudget(double retryRatio, int maxTokens) {
+        this.retryRatio = retryRatio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+
+    /**
+     * @return a new retry budget using the default retry ratio and max tokens
+     */
+    public static RetryBudget newRetryBudget() {
+        return newRetryBudget(DEFAULT_RETRY_RATIO, DEFAULT_MAX_TOKENS);
+    }
+
+    /**
+     * @param retryRatio  the ratio of retries to successful requests such as 0.1
+     * @param maxTokens   the max number of tokens, which is the max burst of retries
+     * @return a new retry budget
+     */
+    public static RetryBudget newRetryBudget(double retryRatio, int maxTokens) {
+        return new RetryBudget(retryRatio, maxTokens);
+    }
+
+
+    /**
+     * deposits the retry ratio for a successful request
+     */
+    void onSuccess() {
+        lock.lock();
+        try {
+            tokens = Math.min(maxTokens, tokens + retryRatio);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true, if a retry is allowed. In this case a token has been withdrawn
+     */
+    boolean tryAcquireRetry() {
+        lock.lock();
+        try {
+            if (tokens >= 1) {
+                tokens--;
+                numRetries.incrementAndGet();
+                return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        numSuppressedRetries.incrementAndGet();
+        return false;
+    }
+
+
+    /**
+     * @param retryPolicy  the retry policy to decide whether a request should be retried
+     * @return the retry policy, which retries only as long as the budget is not exhausted
+     */
+    RetryPolicy toBudgetedRetryPolicy(RetryPolicy retryPolicy) {
+        return new BudgetedRetryPolicy(this, retryPolicy);
+    }
+
+
+    /**
+     * @return the current number of tokens
+     */
+    public double getBalance() {
+        lock.lock();
+        try {
+            return tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of performed retries
+     */
+    public long getNumRetries() {
+        return numRetries.get();
+    }
+
+    /**
+     * @return the number of retries which have been suppressed because the budget was exhausted
+     */
+    public long getNumSuppressedRetries() {
+        return numSuppressedRetries.get();
+    }
+
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("retryRatio", retryRatio)
+                          .add("balance", getBalance())
+                          .add("retries", getNumRetries())
+                          .add("suppressedRetries", getNumSuppressedRetries())
+                          .toString();
+    }
+
+
+
+    private static final class BudgetedRetryPolicy implements RetryPolicy {
+        private final RetryBudget budget;
+        private final RetryPolicy retryPolicy;
+
+        BudgetedRetryPolicy(RetryBudget budget, RetryPolicy retryPolicy) {
+            this.budget = budget;
+            this.retryPolicy = retryPolicy;
+        }
+
+        @Override
+        public RetryDecision onReadTimeout(Statement statement, ConsistencyLevel cl, int requiredResponses, int receivedResponses, boolean dataRetrieved, int nbRetry) {
+            return withinBudget(retryPolicy.onReadTimeout(statement, cl, requiredResponses, receivedResponses, dataRetrieved, nbRetry));
+        }
+
+        @Override
+        public RetryDecision onWriteTimeout(Statement statement, ConsistencyLevel cl, WriteType writeType, int requiredAcks, int receivedAcks, int nbRetry) {
+            return withinBudget(retryPolicy.onWriteTimeout(statement, cl, writeType, requiredAcks, receivedAcks, nbRetry));
+        }
+
+        @Override
+        public RetryDecision onUnavailable(Statement statement, ConsistencyLevel cl, int requiredReplica, int aliveReplica, int nbRetry) {
+            return withinBudget(retryPolicy.onUnavailable(statement, cl, requiredReplica, aliveReplica, nbRetry));
+        }
+
+        @Override
+        public RetryDecision onRequestError(Statement statement, ConsistencyLevel cl, DriverException e, int nbRetry) {
+            return withinBudget(retryPolicy.onRequestError(statement, cl, e, nbRetry));
+        }
+
+        private RetryDecision withinBudget(RetryDecision decision) {
+            if ((decision.getType() == RetryDecision.Type.RETRY) && !budget.tryAcquireRetry()) {
+                return RetryDecision.rethrow();
+            } else {
+                return decision;
+            }
+        }
+
+        @Override
+        public void init(Cluster cluster) {
+            retryPolicy.init(cluster);
+        }
+
+        @Override
+        public void close() {
+            retryPolicy.close();
+        }
+    }
+}
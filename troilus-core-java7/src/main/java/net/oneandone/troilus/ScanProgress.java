@@ -0,0 +1,143 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+
+
+/**
+ * Progress of a parallel token range scan. A subrange is completed, if all of its records 
+ * have been consumed. The checkpoint contains the completed subranges. A scan, which is 
+ * started with a progress restored from a checkpoint, skips the completed subranges. Records
+ * of subranges which have been in progress are read again (at-least-once). If the token ring
+ * has changed in the meantime, the subranges will not match and they are read again
+ */
+public final class ScanProgress {
+
+    private final Set<String> completedRanges;
+    private final AtomicInteger numRanges = new AtomicInteger();
+    private final AtomicInteger numCompletedRanges = new AtomicInteger();
+    private final AtomicLong numRecords = new AtomicLong();
+
+
+    private ScanProgress(ImmutableSet<String> completedRanges) {
+        this.completedRanges = Sets.newConcurrentHashSet(completedRanges);
+    }
+
+
+    /**
+     * @return a new progress without completed subranges
+     */
+    public static ScanProgress newScanProgress() {
+        return new ScanProgress(ImmutableSet.<String>of());
+    }
+
+    /**
+     * @param checkpoint  the checkpoint created by {@link ScanProgress#toCheckpoint()}
+     * @return the progress restored from the checkpoint
+     */
+    public static ScanProgress fromCheckpoint(String checkpoint) {
+        return new ScanProgress(ImmutableSet.copyOf(Splitter.on(',').trimResults().omitEmptyStrings().split(checkpoint)));
+    }
+
+    /**
+     * @return the checkpoint, which contains the completed subranges
+     */
+    public String toCheckpoint() {
+        return Joiner.on(',').join(completedRanges);
+    }
+
+
+    /**
+     * @param ranges  the subranges of the scan
+     */
+    void onStarted(ImmutableSet<String> ranges) {
+        numRanges.set(ranges.size());
+        numCompletedRanges.set(Sets.intersection(ranges, completedRanges).size());
+    }
+
+    /**
+     * @param range  the subrange
+     * @return true, if the subrange has been completed 
+     */
+    boolean isCompleted(String range) {
+        return completedRanges.contains(range);
+    }
+
+    /**
+     * @param range  the completed subrange
+     */
+    void onRangeCompleted(String range) {
+        if (completedRanges.add(range)) {
+            numCompletedRanges.incrementAndGet();
+        }
+    }
+
+    /**
+     * counts a consumed record
+     */
+    void onRecord() {
+        numRecords.incrementAndGet();
+    }
+
+
+    /**
+     * @return the number of subranges of the scan
+     */
+    public int getNumRanges() {
+        return numRanges.get();
+    }
+
+    /**
+     * @return the number of completed subranges
+     */
+    public int getNumCompletedRanges() {
+        return numCompletedRanges.get();
+    }
+
+    /**
+     * @return the number of consumed records 
+     */
+    public long getNumRecords() {
+        return numRecords.get();
+    }
+
+    /**
+     * @return true, if all subranges have been completed
+     */
+    public boolean isCompleted() {
+        return (getNumRanges() > 0) && (getNumCompletedRanges() >= getNumRanges());
+    }
+
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("completedRanges", getNumCompletedRanges() + "/" + getNumRanges())
+                          .add("records", getNumRecords())
+                          .toString();
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.oneandone.troilus.java7.FetchingIterator;
+import net.oneandone.troilus.java7.Record;
+import net.oneandone.troilus.java7.ResultList;
+
+import com.datastax.driver.core.ExecutionInfo;
+import com.datastax.driver.core.ResultSet;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+/**
+ * Record list of a read, which has been split into parts such as token subranges or 
+ * partitions. Up to parallelism parts are read concurrently. By default the records 
+ * are merged in a round-robin way. If ordered, the records are returned in the order 
+ * of the parts. In this case the parts following the current one are read in advance, 
+ * but buffer their first page only.<br>
+ * <br>
+ * If a scan progress is assigned, a part is reported as completed once all of its 
+ * records have been consumed   
+ */
+class ScatterGatherResultList implements ResultList<Record> {
+    
+    private final ScatterGatherIterator iterator;
+    private final List<ExecutionInfo> executionInfos = new CopyOnWriteArrayList<>();
+    
+    
+    /**
+     * @param parts        the parts to read
+     * @param parallelism  the max number of concurrently read parts
+     * @param isOrdered    true, if the records have to be returned in the order of the parts 
+     * @param limit        the max number of records to read or null
+     * @param progress     the progress or null
+     */
+    ScatterGatherResultList(ImmutableList<Part> parts, int parallelism, boolean isOrdered, Integer limit, ScanProgress progress) {
+        this.iterator = new ScatterGatherIterator(parts, parallelism, isOrdered, limit, progress);
+    }
+    
+    
+    @Override
+    public ExecutionInfo getExecutionInfo() {
+        return executionInfos.isEmpty() ? null : executionInfos.get(executionInfos.size() - 1);
+    }
+    
+    @Override
+    public ImmutableList<ExecutionInfo> getAllExecutionInfo() {
+        return ImmutableList.copyOf(executionInfos);
+    }
+    
+    @Override
+    public boolean wasApplied() {
+        return true;
+    }
+    
+    @Override
+    public FetchingIterator<Record> iterator() {
+        return iterator;
+    }
+    
+    
+    
+    /**
+     * a part of the read
+     */
+    static final class Part {
+        private final String name;
+        private final Supplier<ListenableFuture<ResultList<Record>>> reader;
+        
+        /**
+         * @param name    the name used by the scan progress
+         * @param reader  the reader of the part
+         */
+        Part(String name, Supplier<ListenableFuture<ResultList<Record>>> reader) {
+            this.name = name;
+            this.reader = reader;
+        }
+    }
+    
+    
+    
+    private final class ScatterGatherIterator implements FetchingIterator<Record> {
+        private final int parallelism;
+        private final boolean isOrdered;
+        private final Integer limit;
+        private final ScanProgress progress;
+        
+        private final Lock lock = new ReentrantLock();
+        private final Deque<ActivePart> pendingParts = Lists.newLinkedList();
+        private final List<ActivePart> activeParts = Lists.newArrayList();
+        private int nextIndex = 0;
+        private long numRead = 0;
+        private Throwable error = null;
+        
+        
+        ScatterGatherIterator(ImmutableList<Part> parts, int parallelism, boolean isOrdered, Integer limit, ScanProgress progress) {
+            this.parallelism = parallelism;
+            this.isOrdered = isOrdered;
+            this.limit = limit;
+            this.progress = progress;
+            
+            final ImmutableSet.Builder<String> names = ImmutableSet.builder();
+            for (Part part : parts) {
+                if (progress == null) {
+                    pendingParts.add(new ActivePart(part));
+                } else {
+                    names.add(part.name);
+                    if (!progress.isCompleted(part.name)) {
+                        pendingParts.add(new ActivePart(part));
+                    }
+                }
+            }
+            
+            if (progress != null) {
+                progress.onStarted(names.build());
+            }
+        }
+        
+        
+        @Override
+        public boolean hasNext() {
+            while (true) {
+                lock.lock();
+                try {
+                    if (isLimitReached()) {
+                        return false;
+                    } else if (getAvailable() > 0) {
+                        return true;
+                    } else if (pendingParts.isEmpty() && activeParts.isEmpty()) {
+                        return false;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                
+                ListenableFutures.getUninterruptibly(fetchMoreResultsAsync());
+            }
+        }
+        
+        @Override
+        public Record next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            
+            lock.lock();
+            try {
+                final int numCandidates = isOrdered ? Math.min(1, activeParts.size()) : activeParts.size();
+                for (int i = 0; i < numCandidates; i++) {
+                    final ActivePart part = activeParts.get((nextIndex + i) % activeParts.size());
+                    if (part.getAvailable() > 0) {
+                        final Record record = part.iterator.next();
+                        numRead++;
+                        if (progress != null) {
+                            progress.onRecord();
+                        }
+                        nextIndex = isOrdered ? 0 : (nextIndex + i + 1) % activeParts.size();
+                        removeCompletedParts();
+                        return record;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            
+            // records have been consumed by another thread in the meantime
+            return next();
+        }
+        
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public int getAvailableWithoutFetching() {
+            lock.lock();
+            try {
+                return isLimitReached() ? 0 : getAvailable();
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        @Override
+        public boolean isFullyFetched() {
+            lock.lock();
+            try {
+                if (isLimitReached()) {
+                    return true;
+                } else if (!pendingParts.isEmpty()) {
+                    return false;
+                }
+                
+                for (ActivePart part : activeParts) {
+                    if ((part.iterator == null) || !part.iterator.isFullyFetched()) {
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        @Override
+        public ListenableFuture<ResultSet> fetchMoreResultsAsync() {
+            final List<ListenableFuture<?>> runningFutures = Lists.newArrayList();
+            
+            lock.lock();
+            try {
+                if (error != null) {
+                    return Futures.immediateFailedFuture(error);
+                }
+                
+                removeCompletedParts();
+                
+                // start the next parts 
+                while ((activeParts.size() < parallelism) && !pendingParts.isEmpty()) {
+                    start(pendingParts.poll());
+                }
+                
+                // fetch the next page of the drained parts
+                ActivePart partToReadAhead = null; 
+                for (ActivePart part : activeParts) {
+                    if ((part.iterator != null) && (part.runningFuture == null) && !part.iterator.isFullyFetched()) {
+                        if (part.getAvailable() == 0) {
+                            fetch(part);
+                        } else if ((partToReadAhead == null) || (part.getAvailable() < partToReadAhead.getAvailable())) {
+                            // an ordered read buffers the first page of the following parts only 
+                            if (!isOrdered || (part == activeParts.get(0))) {
+                                partToReadAhead = part;
+                            }
+                        }
+                    }
+                    
+                    if (part.runningFuture != null) {
+                        runningFutures.add(part.runningFuture);
+                    }
+                }
+                
+                // or read ahead the part with the fewest buffered records
+                if (runningFutures.isEmpty() && (partToReadAhead != null)) {
+                    fetch(partToReadAhead);
+                    runningFutures.add(partToReadAhead.runningFuture);
+                }
+            } finally {
+                lock.unlock();
+            }
+            
+            return anyOf(runningFutures);
+        }
+        
+        
+        private ListenableFuture<ResultSet> anyOf(List<ListenableFuture<?>> futures) {
+            if (futures.isEmpty()) {
+                return Futures.immediateFuture(null);
+            }
+            
+            final SettableFuture<ResultSet> anyFuture = SettableFuture.create();
+            for (final ListenableFuture<?> future : futures) {
+                final Runnable completionHandler = new Runnable() {
+                    
+                    @Override
+                    public void run() {
+                        try {
+                            future.get();
+                            anyFuture.set(null);
+                        } catch (InterruptedException | ExecutionException | RuntimeException e) {
+                            anyFuture.setException(ListenableFutures.unwrapIfNecessary(e));
+                        }
+                    }
+                };
+                future.addListener(completionHandler, MoreExecutors.directExecutor());
+            }
+            
+            return anyFuture;
+        }
+        
+        
+        private void start(final ActivePart part) {
+            activeParts.add(part);
+            
+            ListenableFuture<ResultList<Record>> future;
+            try {
+                future = part.part.reader.get();
+            } catch (RuntimeException rt) {
+                future = Futures.immediateFailedFuture(rt);
+            }
+            
+            final ListenableFuture<ResultList<Record>> recordListFuture = future;
+            part.runningFuture = recordListFuture;
+            
+            final Runnable completionHandler = new Runnable() {
+                
+                @Override
+                public void run() {
+                    lock.lock();
+                    try {
+                        part.runningFuture = null;
+                        final ResultList<Record> recordList = recordListFuture.get();
+                        part.recordList = recordList;
+                        part.iterator = recordList.iterator();
+                    } catch (InterruptedException | ExecutionException | RuntimeException e) {
+                        error = ListenableFutures.unwrapIfNecessary(e);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            };
+            recordListFuture.addListener(completionHandler, MoreExecutors.directExecutor());
+        }
+        
+        
+        private void fetch(final ActivePart part) {
+            final ListenableFuture<ResultSet> fetchFuture = part.iterator.fetchMoreResultsAsync();
+            part.runningFuture = fetchFuture;
+            
+            final Runnable completionHandler = new Runnable() {
+                
+                @Override
+                public void run() {
+                    lock.lock();
+                    try {
+                        part.runningFuture = null;
+                        fetchFuture.get();
+                    } catch (InterruptedException | ExecutionException | RuntimeException e) {
+                        error = ListenableFutures.unwrapIfNecessary(e);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            };
+            fetchFuture.addListener(completionHandler, MoreExecutors.directExecutor());
+        }
+        
+        
+        private void removeCompletedParts() {
+            for (Iterator<ActivePart> it = activeParts.iterator(); it.hasNext(); ) {
+                final ActivePart part = it.next();
+                if (part.isCompleted()) {
+                    it.remove();
+                    executionInfos.addAll(part.recordList.getAllExecutionInfo());
+                    if (progress != null) {
+                        progress.onRangeCompleted(part.part.name);
+                    }
+                }
+            }
+        }
+        
+        private int getAvailable() {
+            // a completed part must not hide the records of the following parts
+            removeCompletedParts();
+            
+            int available = 0;
+            if (isOrdered) {
+                available = activeParts.isEmpty() ? 0 : activeParts.get(0).getAvailable();
+            } else {
+                for (ActivePart part : activeParts) {
+                    available += part.getAvailable();
+                }
+            }
+            
+            if (limit != null) {
+                available = (int) Math.min(available, limit - numRead);
+            }
+            return available;
+        }
+        
+        private boolean isLimitReached() {
+            return (limit != null) && (numRead >= limit);
+        }
+    }
+    
+    
+    
+    private static final class ActivePart {
+        private final Part part;
+        
+        // guarded by the lock of the iterator
+        private ListenableFuture<?> runningFuture = null;
+        private ResultList<Record> recordList = null;
+        private FetchingIterator<Record> iterator = null;
+        
+        ActivePart(Part part) {
+            this.part = part;
+        }
+        
+        int getAvailable() {
+            return (iterator == null) ? 0 : iterator.getAvailableWithoutFetching();
+        }
+        
+        boolean isCompleted() {
+            return (iterator != null) && (runningFuture == null) && iterator.isFullyFetched() && (iterator.getAvailableWithoutFetching() == 0);
+        }
+    }
+}
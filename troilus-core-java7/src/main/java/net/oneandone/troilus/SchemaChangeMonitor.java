@@ -0,0 +1,170 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.lang.ref.WeakReference;
+
+import com.datastax.driver.core.AggregateMetadata;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.FunctionMetadata;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.MaterializedViewMetadata;
+import com.datastax.driver.core.SchemaChangeListener;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.UserType;
+
+
+
+/**
+ * Schema change listener which invalidates the cached metadata and prepared statements
+ * of an added, removed or changed table only. Other schema changes are ignored. The caches
+ * are referenced weakly, so the monitor does not keep unused caches alive. It unregisters
+ * itself, if the caches have been collected
+ */
+class SchemaChangeMonitor implements SchemaChangeListener {
+
+    private final WeakReference<MetadataCatalog> catalogRef;
+    private final WeakReference<DBSession> dbSessionRef;
+    private final Cluster cluster;
+
+
+    private SchemaChangeMonitor(Cluster cluster, MetadataCatalog catalog, DBSession dbSession) {
+        this.cluster = cluster;
+        this.catalogRef = new WeakReference<>(catalog);
+        this.dbSessionRef = new WeakReference<>(dbSession);
+    }
+
+
+    /**
+     * registers a new monitor
+     * @param cluster    the cluster to listen
+     * @param catalog    the metadata catalog to refresh
+     * @param dbSession  the db session to refresh
+     */
+    static void register(Cluster cluster, MetadataCatalog catalog, DBSession dbSession) {
+        cluster.register(new SchemaChangeMonitor(cluster, catalog, dbSession));
+    }
+
+
+    @Override
+    public void onRegister(Cluster cluster) {
+    }
+
+    @Override
+    public void onUnregister(Cluster cluster) {
+    }
+
+
+    @Override
+    public void onKeyspaceAdded(KeyspaceMetadata keyspace) {
+    }
+
+    @Override
+    public void onKeyspaceRemoved(KeyspaceMetadata keyspace) {
+    }
+
+    @Override
+    public void onKeyspaceChanged(KeyspaceMetadata current, KeyspaceMetadata previous) {
+    }
+
+
+    @Override
+    public void onTableAdded(TableMetadata table) {
+        invalidateTable(table.getKeyspace().getName(), table.getName());
+    }
+
+    @Override
+    public void onTableRemoved(TableMetadata table) {
+        invalidateTable(table.getKeyspace().getName(), table.getName());
+    }
+
+    @Override
+    public void onTableChanged(TableMetadata current, TableMetadata previous) {
+        invalidateTable(current.getKeyspace().getName(), current.getName());
+    }
+
+
+    @Override
+    public void onUserTypeAdded(UserType type) {
+    }
+
+    @Override
+    public void onUserTypeRemoved(UserType type) {
+    }
+
+    @Override
+    public void onUserTypeChanged(UserType current, UserType previous) {
+    }
+
+
+    @Override
+    public void onFunctionAdded(FunctionMetadata function) {
+    }
+
+    @Override
+    public void onFunctionRemoved(FunctionMetadata function) {
+    }
+
+    @Override
+    public void onFunctionChanged(FunctionMetadata current, FunctionMetadata previous) {
+    }
+
+
+    @Override
+    public void onAggregateAdded(AggregateMetadata aggregate) {
+    }
+
+    @Override
+    public void onAggregateRemoved(AggregateMetadata aggregate) {
+    }
+
+    @Override
+    public void onAggregateChanged(AggregateMetadata current, AggregateMetadata previous) {
+    }
+
+
+    @Override
+    public void onMaterializedViewAdded(MaterializedViewMetadata view) {
+    }
+
+    @Override
+    public void onMaterializedViewRemoved(MaterializedViewMetadata view) {
+    }
+
+    @Override
+    public void onMaterializedViewChanged(MaterializedViewMetadata current, MaterializedViewMetadata previous) {
+    }
+
+
+    private void invalidateTable(String keyspacename, String tablename) {
+        final MetadataCatalog catalog = catalogRef.get();
+        final DBSession dbSession = dbSessionRef.get();
+
+        if ((catalog == null) && (dbSession == null)) {
+            cluster.unregister(this);
+            return;
+        }
+
+        if (catalog != null) {
+            catalog.invalidateTable(keyspacename, tablename);
+        }
+
+        if (dbSession != null) {
+            dbSession.invalidate(keyspacename, tablename);
+        }
+    }
+}
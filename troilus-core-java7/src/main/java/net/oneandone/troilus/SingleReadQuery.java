@@ -165,7 +165,7 @@ class SingleReadQuery extends AbstractQuery<SingleReadQuery> implements SingleRe
         ListenableFuture<ResultList<Record>> recordsFuture = new ListReadQuery(getContext(), data).executeAsync();
         recordsFuture = toSingleEntryResultList(recordsFuture);
         
-        return new ResultListPublisher<Record>(recordsFuture);
+        return new ResultListPublisher<Record>(recordsFuture, getExecutor());
     }
     
     
@@ -222,7 +222,7 @@ class SingleReadQuery extends AbstractQuery<SingleReadQuery> implements SingleRe
             ListenableFuture<ResultList<E>> recordsFuture = new ListReadQuery(getContext(), query.data).asEntity(clazz).executeAsync();
             recordsFuture = toSingleEntryResultList(recordsFuture);
                 
-            return new ResultListPublisher<E>(recordsFuture);
+            return new ResultListPublisher<E>(recordsFuture, getExecutor());
         }
     }
     
@@ -0,0 +1,120 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+
+
+/**
+ * The structural shape of a statement. Statements of the same shape result
+ * in the same CQL string and differ by the bound values only. The shape is
+ * used as cache key to look up a prepared statement without building the
+ * statement by the query builder.
+ */
+final class StatementShape {
+
+    private static final String ABSENT = "<absent>";
+
+    private final Tablename tablename;
+    private final ImmutableList<Object> elements;
+    private final int hashCode;
+
+
+    private StatementShape(Tablename tablename, ImmutableList<Object> elements) {
+        this.tablename = tablename;
+        this.elements = elements;
+        this.hashCode = elements.hashCode();
+    }
+
+
+    /**
+     * @param type       the statement type such as SELECT, INSERT, UPDATE or DELETE
+     * @param tablename  the tablename
+     * @return a new shape builder
+     */
+    static Builder newShape(String type, Tablename tablename) {
+        return new Builder(tablename).add(type).add(tablename);
+    }
+
+    /**
+     * @return the tablename of the statement
+     */
+    Tablename getTablename() {
+        return tablename;
+    }
+
+
+    @Override
+    public boolean equals(Object other) {
+        return (other instanceof StatementShape) &&
+               (((StatementShape) other).hashCode == this.hashCode) &&
+               ((StatementShape) other).elements.equals(this.elements);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + Joiner.on(" ").join(elements) + "]";
+    }
+
+
+
+    /**
+     * the shape builder
+     */
+    static final class Builder {
+        private final Tablename tablename;
+        private final ImmutableList.Builder<Object> elements = ImmutableList.builder();
+
+        private Builder(Tablename tablename) {
+            this.tablename = tablename;
+        }
+
+        /**
+         * @param element the element such as a column name or a flag which affects the CQL string
+         * @return this builder
+         */
+        Builder add(Object element) {
+            elements.add((element == null) ? ABSENT : element);
+            return this;
+        }
+
+        /**
+         * @param operation   the operation such as = or IN
+         * @param columnName  the column name
+         * @return this builder
+         */
+        Builder add(String operation, String columnName) {
+            elements.add(operation);
+            elements.add(columnName);
+            return this;
+        }
+
+        /**
+         * @return the shape
+         */
+        StatementShape build() {
+            return new StatementShape(tablename, elements.build());
+        }
+    }
+}
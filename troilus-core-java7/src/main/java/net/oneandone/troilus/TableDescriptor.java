@@ -0,0 +1,175 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.BitSet;
+import java.util.List;
+
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.TypeCodec;
+import com.datastax.driver.core.exceptions.CodecNotFoundException;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+
+
+/**
+ * Immutable descriptor of a table which is resolved once per table. The columns
+ * are indexed, so that the request path looks up column metadata, data types, codec plans
+ * and primary key membership by the column name only
+ */
+final class TableDescriptor {
+
+    private final Tablename tablename;
+    private final TableMetadata tableMetadata;
+    private final ImmutableMap<String, Integer> columnIndexes;
+    private final ImmutableSet<String> columnNames;
+    private final ColumnMetadata[] columns;
+    private final DataType[] dataTypes;
+    private final UDTValueMapper.ColumnPlans[] plans;
+    private final BitSet primaryKeys;
+    private final ImmutableList<String> partitionKeyNames;
+
+
+    TableDescriptor(Tablename tablename, TableMetadata tableMetadata, CodecRegistry codecRegistry) {
+        this.tablename = tablename;
+        this.tableMetadata = tableMetadata;
+
+        final List<ColumnMetadata> columnList = tableMetadata.getColumns();
+        this.columns = columnList.toArray(new ColumnMetadata[columnList.size()]);
+        this.dataTypes = new DataType[columns.length];
+        this.plans = new UDTValueMapper.ColumnPlans[columns.length];
+
+        final ImmutableMap.Builder<String, Integer> indexesBuilder = ImmutableMap.builder();
+        for (int i = 0; i < columns.length; i++) {
+            indexesBuilder.put(columns[i].getName(), i);
+            dataTypes[i] = columns[i].getType();
+            plans[i] = new UDTValueMapper.ColumnPlans(dataTypes[i], findCodec(codecRegistry, dataTypes[i]));
+        }
+        this.columnIndexes = indexesBuilder.build();
+        this.columnNames = columnIndexes.keySet();
+
+        this.primaryKeys = new BitSet(columns.length);
+        for (ColumnMetadata primaryKey : tableMetadata.getPrimaryKey()) {
+            primaryKeys.set(columnIndexes.get(primaryKey.getName()));
+        }
+
+        this.partitionKeyNames = toNames(tableMetadata.getPartitionKey());
+    }
+
+
+    private static TypeCodec<Object> findCodec(CodecRegistry codecRegistry, DataType dataType) {
+        try {
+            return codecRegistry.codecFor(dataType);
+        } catch (CodecNotFoundException cnfe) {
+            return null;   // e.g. custom types
+        }
+    }
+
+    private static ImmutableList<String> toNames(List<ColumnMetadata> columns) {
+        final ImmutableList.Builder<String> names = ImmutableList.builder();
+        for (ColumnMetadata column : columns) {
+            names.add(column.getName());
+        }
+        return names.build();
+    }
+
+
+    /**
+     * @return the tablename
+     */
+    Tablename getTablename() {
+        return tablename;
+    }
+
+    /**
+     * @return the column names
+     */
+    ImmutableSet<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * @return the names of the partition key columns in key order
+     */
+    ImmutableList<String> getPartitionKeyNames() {
+        return partitionKeyNames;
+    }
+
+    /**
+     * @param columnName  the column name
+     * @return the index of the column
+     * @throws RuntimeException if the column does not exist
+     */
+    int indexOf(String columnName) {
+        final int idx = findIndex(columnName);
+        if (idx < 0) {
+            throw new RuntimeException("table " + tablename + " does not support column '" + columnName + "'");
+        }
+        return idx;
+    }
+
+    /**
+     * @param columnName  the column name
+     * @return the index of the column or -1, if the table does not contain the column
+     */
+    int findIndex(String columnName) {
+        Integer idx = columnIndexes.get(columnName);
+        if (idx == null) {
+            // slow path: name differs by case or quoting  
+            final ColumnMetadata column = tableMetadata.getColumn(columnName);
+            idx = (column == null) ? null : columnIndexes.get(column.getName());
+        }
+        return (idx == null) ? -1 : idx;
+    }
+
+    /**
+     * @param columnName  the column name
+     * @return the column metadata
+     */
+    ColumnMetadata getColumnMetadata(String columnName) {
+        return columns[indexOf(columnName)];
+    }
+
+    /**
+     * @param columnName  the column name
+     * @return the data type of the column
+     */
+    DataType getDataType(String columnName) {
+        return dataTypes[indexOf(columnName)];
+    }
+
+    /**
+     * @param columnIndex  the column index
+     * @return the codec plans of the column
+     */
+    UDTValueMapper.ColumnPlans getColumnPlans(int columnIndex) {
+        return plans[columnIndex];
+    }
+
+    /**
+     * @param columnName  the column name
+     * @return true, if the column is part of the primary key
+     */
+    boolean isPrimaryKey(String columnName) {
+        return primaryKeys.get(indexOf(columnName));
+    }
+}
@@ -25,8 +25,10 @@ import com.google.common.base.Objects;
  */
 public class Tablename {
 
-    private String keyspacename;
-    private String tablename;
+    private final String keyspacename;
+    private final String tablename;
+    private final String qualifiedName;
+    private final int hashCode;
     
 
     /**
@@ -57,6 +59,8 @@ public class Tablename {
     private Tablename(String keyspacename, String tablename) {
         this.keyspacename = keyspacename;
         this.tablename = tablename;
+        this.qualifiedName = (keyspacename == null) ? tablename : keyspacename + "." + tablename;
+        this.hashCode = qualifiedName.hashCode();
     }
 
     
@@ -74,20 +78,35 @@ public class Tablename {
         return tablename;
     }
     
+    /**
+     * @param keyspacename  the keyspacename 
+     * @param tablename     the tablename or null to match all tables of the keyspace
+     * @return true, if this tablename refers to the given table
+     */
+    boolean matches(String keyspacename, String tablename) {
+        return (this.keyspacename != null) && this.keyspacename.equalsIgnoreCase(keyspacename) && 
+               ((tablename == null) || this.tablename.equalsIgnoreCase(tablename));
+    }
+    
     @Override
     public boolean equals(Object other) {
+        if (other == this) {
+            return true;
+        }
+        
         return (other instanceof Tablename) && 
+                (((Tablename) other).hashCode == this.hashCode) &&
                 Objects.equal(((Tablename) other).keyspacename, this.keyspacename) &&
                 Objects.equal(((Tablename) other).tablename, this.tablename);
     }
     
     @Override
     public int hashCode() {
-        return toString().hashCode();
+        return hashCode;
     }
     
     @Override
     public String toString() {
-        return (keyspacename == null) ? tablename : keyspacename + "." + tablename;
+        return qualifiedName;
     }
 }
\ No newline at end of file
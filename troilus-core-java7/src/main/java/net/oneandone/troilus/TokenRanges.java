@@ -0,0 +1,127 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Token;
+import com.datastax.driver.core.TokenRange;
+import com.datastax.driver.core.querybuilder.Clause;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+
+
+/**
+ * Token range utilities of parallel full table scans. The token ring is split into subranges, 
+ * which are read by token restricted queries. The order of the subranges alternates between 
+ * the primary replicas, so that concurrent queries are spread over the cluster
+ */
+class TokenRanges {
+    
+    // the ring will be split, if it contains less than this number of subranges per concurrent query 
+    static final int MIN_RANGES_PER_QUERY = 4;
+    
+    
+    private TokenRanges() {  }
+    
+    
+    /**
+     * @param dbSession     the db session
+     * @param keyspacename  the keyspacename 
+     * @param parallelism   the max number of concurrently read subranges
+     * @return the subranges in the order to read. Each subrange does not wrap around the ring 
+     */
+    static ImmutableList<TokenRange> planRanges(DBSession dbSession, String keyspacename, int parallelism) {
+        final ImmutableSet<TokenRange> ringRanges = dbSession.getTokenRanges();
+        if (ringRanges.isEmpty()) {
+            throw new IllegalStateException("token ranges are not available. Token metadata may be disabled");
+        }
+        
+        final int numSplits = (int) Math.ceil(((double) parallelism * MIN_RANGES_PER_QUERY) / ringRanges.size());
+        
+        // group the subranges by primary replica
+        final Map<Host, Deque<TokenRange>> rangesPerReplica = Maps.newLinkedHashMap();
+        for (TokenRange ringRange : ringRanges) {
+            final Host primaryReplica = Iterables.getFirst(dbSession.getReplicas(keyspacename, ringRange), null);
+            
+            Deque<TokenRange> ranges = rangesPerReplica.get(primaryReplica);
+            if (ranges == null) {
+                ranges = Lists.newLinkedList();
+                rangesPerReplica.put(primaryReplica, ranges);
+            }
+            
+            for (TokenRange split : (numSplits > 1) ? ringRange.splitEvenly(numSplits) : ImmutableList.of(ringRange)) {
+                ranges.addAll(split.unwrap());
+            }
+        }
+        
+        // and take them alternately
+        final List<TokenRange> plannedRanges = Lists.newArrayList();
+        while (!rangesPerReplica.isEmpty()) {
+            for (Iterator<Deque<TokenRange>> it = rangesPerReplica.values().iterator(); it.hasNext(); ) {
+                final Deque<TokenRange> ranges = it.next();
+                plannedRanges.add(ranges.poll());
+                if (ranges.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+        
+        return ImmutableList.copyOf(plannedRanges);
+    }
+    
+    
+    /**
+     * @param range  the subrange
+     * @return the name of the subrange used by checkpoints
+     */
+    static String toName(TokenRange range) {
+        return range.getStart() + ":" + range.getEnd();
+    }
+
+    
+    /**
+     * @param partitionKeyNames  the names of the partition key columns
+     * @param range              the subrange, which does not wrap around the ring
+     * @return the where clauses restricting the token to the subrange
+     */
+    static ImmutableSet<Clause> toTokenClauses(ImmutableList<String> partitionKeyNames, TokenRange range) {
+        final String token = QueryBuilder.token(partitionKeyNames.toArray(new String[partitionKeyNames.size()]));
+        final Token start = range.getStart();
+        final Token end = range.getEnd();
+        
+        if (start.equals(end)) {
+            // the range covers the whole ring
+            return ImmutableSet.of();
+            
+        } else if (end.compareTo(start) < 0) {
+            // the range ends with the min token
+            return ImmutableSet.<Clause>of(QueryBuilder.gt(token, start.getValue()));
+            
+        } else {
+            return ImmutableSet.<Clause>of(QueryBuilder.gt(token, start.getValue()), QueryBuilder.lte(token, end.getValue()));
+        }
+    }
+}
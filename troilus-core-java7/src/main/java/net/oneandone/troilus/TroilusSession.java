@@ -0,0 +1,160 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import com.datastax.driver.core.Session;
+import com.google.common.base.MoreObjects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+
+
+
+/**
+ * The session-scoped registry shared by all DAOs of the same underlying session. It
+ * holds the metadata catalog, the bean mapper and the prepared statement cache, so
+ * that these are built once per session instead of once per DAO.
+ */
+public final class TroilusSession {
+
+    /**
+     * the default max number of cached prepared statements of a session
+     */
+    public static final int DEFAULT_MAX_CACHED_STATEMENTS = 1000;
+
+    // weak values: the shared session will be released, if no DAO refers it anymore. The context of a DAO refers its session
+    private static final Cache<Session, TroilusSession> SHARED_SESSIONS = CacheBuilder.newBuilder()
+                                                                                      .weakKeys()
+                                                                                      .weakValues()
+                                                                                      .build();
+
+    private final Session session;
+    private final BeanMapper beanMapper;
+    private final MetadataCatalog catalog;
+    private final DBSession dbSession;
+    private final UDTValueMapper udtValueMapper;
+    private final Executor executor;
+
+
+    private TroilusSession(Session session, int maxCachedStatements, Executor executor) {
+        this.session = session;
+        this.beanMapper = new BeanMapper();
+        this.catalog = new MetadataCatalog(session);
+        this.dbSession = new DBSession(session, catalog, beanMapper, maxCachedStatements);
+        this.udtValueMapper = new UDTValueMapper(dbSession.getProtocolVersion(), catalog, beanMapper);
+        this.executor = executor;
+
+        SchemaChangeMonitor.register(session.getCluster(), catalog, dbSession);
+    }
+
+
+    /**
+     * @param session  the underlying session
+     * @return the troilus session shared by all DAOs of the underlying session
+     */
+    public static TroilusSession of(final Session session) {
+        try {
+            return SHARED_SESSIONS.get(session, new Callable<TroilusSession>() {
+
+                @Override
+                public TroilusSession call() {
+                    return new TroilusSession(session, DEFAULT_MAX_CACHED_STATEMENTS, newTaskExecutor());
+                }
+            });
+        } catch (ExecutionException e) {
+            throw ListenableFutures.unwrapIfNecessary(e);
+        }
+    }
+
+
+    /**
+     * @param session              the underlying session
+     * @param maxCachedStatements  the max number of cached prepared statements shared by all DAOs of this session
+     * @return a new, dedicated troilus session. It is not shared with DAOs created by the underlying session
+     */
+    public static TroilusSession newSession(Session session, int maxCachedStatements) {
+        return newSession(session, maxCachedStatements, newTaskExecutor());
+    }
+
+    /**
+     * @param session              the underlying session
+     * @param maxCachedStatements  the max number of cached prepared statements shared by all DAOs of this session
+     * @param executor             the default executor of the DAOs to run interceptors and other asynchronous stages,
+     *                             e.g. a bounded {@link InstrumentedExecutor}
+     * @return a new, dedicated troilus session. It is not shared with DAOs created by the underlying session
+     */
+    public static TroilusSession newSession(Session session, int maxCachedStatements, Executor executor) {
+        return new TroilusSession(session, maxCachedStatements, executor);
+    }
+
+
+    private static Executor newTaskExecutor() {
+        try {
+            Method commonPoolMeth = ForkJoinPool.class.getMethod("commonPool");  // Java8 method
+            return (Executor) commonPoolMeth.invoke(ForkJoinPool.class);
+        } catch (NoSuchMethodException | SecurityException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+            return InstrumentedExecutor.newBoundedExecutor();
+        }
+    }
+
+
+    Session getSession() {
+        return session;
+    }
+
+    DBSession getDbSession() {
+        return dbSession;
+    }
+
+    MetadataCatalog getCatalog() {
+        return catalog;
+    }
+
+    BeanMapper getBeanMapper() {
+        return beanMapper;
+    }
+
+    UDTValueMapper getUDTValueMapper() {
+        return udtValueMapper;
+    }
+
+    Executor getTaskExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return the number of requests per table which have been cancelled because their deadline (see <code>withTimeout(...)</code>) has been exceeded
+     */
+    public ImmutableMap<Tablename, Long> getNumExpiredRequests() {
+        return dbSession.getNumExpiredRequests();
+    }
+
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("dbSession", dbSession)
+                          .toString();
+    }
+}
@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentMap;
 
 
 
@@ -31,8 +32,8 @@ import java.util.Map.Entry;
 
 import com.datastax.driver.core.CodecRegistry;
 import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.GettableData;
 import com.datastax.driver.core.ProtocolVersion;
-import com.datastax.driver.core.TupleType;
 import com.datastax.driver.core.TypeCodec;
 import com.datastax.driver.core.UDTValue;
 import com.datastax.driver.core.UserType;
@@ -73,7 +74,8 @@ class UDTValueMapper {
             return true;
 
         } else {
-            return DataType.allPrimitiveTypes().contains(dataType) || (TupleType.class.isAssignableFrom(dataType.getClass()));
+            // all types except of user-defined and custom types are primitive or tuple types  
+            return (dataType.getName() != DataType.Name.UDT) && (dataType.getName() != DataType.Name.CUSTOM);
         }
     }
     
@@ -92,11 +94,9 @@ class UDTValueMapper {
                                Class<?> fieldtype1, 
                                Class<?> fieldtype2,
                                String fieldname) {
-    	final CodecRegistry codecRegistry = getCodecRegistry();
-    	
         // build-in type 
         if (isBuildInType(datatype)) {
-            final TypeCodec<T> typeCodec = codecRegistry.codecFor(datatype);
+            final TypeCodec<Object> typeCodec = codecFor(datatype);
             
             try {
             	if (udtValue.isNull(fieldname)) return null;
@@ -375,26 +375,296 @@ class UDTValueMapper {
             return null;
         } 
         
-        final DataType dataType = catalog.getColumnMetadata(tablename, name).getType();
+        final TableDescriptor descriptor = catalog.getTableDescriptor(tablename);
+        return getWritePlan(descriptor.getColumnPlans(descriptor.indexOf(name)), value.getClass()).toStatementValue(tablename, value);
+    }
+    
+    
+    /**
+     * @param column      the column
+     * @param valueClass  the java type of the value to write
+     * @return the write plan, which is created once per column and java type 
+     */
+    WritePlan getWritePlan(ColumnPlans column, Class<?> valueClass) {
+        WritePlan plan = column.writePlans.get(valueClass);
+        if (plan == null) {
+            plan = newWritePlan(column.dataType, valueClass);
+            column.writePlans.put(valueClass, plan);
+        }
+        return plan;
+    }
+    
+    
+    private WritePlan newWritePlan(final DataType dataType, Class<?> valueClass) {
         
         // build in
-        if (UDTValueMapper.isBuildInType(dataType)) {
+        if (isBuildInType(dataType)) {
             
             // enum
-            if (DataTypes.isTextDataType(dataType) && Enum.class.isAssignableFrom(value.getClass())) {
-                return value.toString();
+            if (DataTypes.isTextDataType(dataType) && Enum.class.isAssignableFrom(valueClass)) {
+                return new WritePlan() {
+                    @Override
+                    Object toStatementValue(Tablename tablename, Object value) {
+                        return value.toString();
+                    }
+                };
             }
             
             // byte buffer (byte[])
-            if (dataType.equals(DataType.blob()) && byte[].class.isAssignableFrom(value.getClass())) {
-                return ByteBuffer.wrap((byte[]) value);
+            if (dataType.equals(DataType.blob()) && byte[].class.isAssignableFrom(valueClass)) {
+                return new WritePlan() {
+                    @Override
+                    Object toStatementValue(Tablename tablename, Object value) {
+                        return ByteBuffer.wrap((byte[]) value);
+                    }
+                };
             }
             
-            return value;
+            return WritePlan.IDENTITY;
          
         // udt    
         } else {
-            return toUdtValue(tablename, catalog, catalog.getColumnMetadata(tablename, name).getType(), value);
+            return new WritePlan() {
+                @Override
+                Object toStatementValue(Tablename tablename, Object value) {
+                    return toUdtValue(tablename, catalog, dataType, value);
+                }
+            };
+        }
+    }
+    
+    
+    /**
+     * @param column       the column
+     * @param targetClass  the java type to read
+     * @return the read plan, which is created once per column and java type 
+     */
+    ReadPlan getReadPlan(ColumnPlans column, Class<?> targetClass) {
+        ReadPlan plan = column.readPlans.get(targetClass);
+        if (plan == null) {
+            plan = newReadPlan(column.dataType, column.codec, targetClass);
+            column.readPlans.put(targetClass, plan);
+        }
+        return plan;
+    }
+    
+    /**
+     * @param dataType     the type of a column which is not part of the table such as a writetime column
+     * @param targetClass  the java type to read
+     * @return the new read plan
+     */
+    ReadPlan newReadPlan(DataType dataType, Class<?> targetClass) {
+        return newReadPlan(dataType, null, targetClass);
+    }
+    
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private ReadPlan newReadPlan(final DataType dataType, TypeCodec<Object> columnCodec, final Class<?> targetClass) {
+        
+        // build-in
+        if (isBuildInType(dataType)) {
+            final TypeCodec<Object> codec = (columnCodec == null) ? codecFor(dataType) : columnCodec;
+            
+            // enum
+            if (DataTypes.isTextDataType(dataType) && Enum.class.isAssignableFrom(targetClass)) {
+                return new ReadPlan() {
+                    @Override
+                    Object read(GettableData data, String name) {
+                        final ByteBuffer byteBuffer = data.getBytesUnsafe(name);
+                        return (byteBuffer == null) ? null : Enum.valueOf((Class<Enum>) targetClass, codec.deserialize(byteBuffer, protocolVersion).toString());
+                    }
+                };
+            }
+                
+            // bytebuffer (byte[])
+            if (dataType.equals(DataType.blob()) && byte[].class.isAssignableFrom(targetClass)) {
+                return new ReadPlan() {
+                    @Override
+                    Object read(GettableData data, String name) {
+                        final ByteBuffer byteBuffer = data.getBytesUnsafe(name);
+                        if (byteBuffer == null) {
+                            return new byte[0];
+                        } else {
+                            final ByteBuffer bb = (ByteBuffer) codec.deserialize(byteBuffer, protocolVersion);
+                            byte[] bytes = new byte[bb.remaining()];
+                            bb.get(bytes, 0, bytes.length);
+                            return bytes;
+                        }
+                    }
+                };
+            }
+            
+            return new ReadPlan() {
+                @Override
+                Object read(GettableData data, String name) {
+                    final ByteBuffer byteBuffer = data.getBytesUnsafe(name);
+                    return (byteBuffer == null) ? null : codec.deserialize(byteBuffer, protocolVersion);
+                }
+            };
+             
+        // udt
+        } else {
+            return new ReadPlan() {
+                @Override
+                Object read(GettableData data, String name) {
+                    return fromUdtValue(dataType, data.getUDTValue(name), targetClass);
+                }
+            };
+        }
+    }
+    
+    
+    /**
+     * @param column        the set or list column
+     * @param elementClass  the java type of the elements
+     * @return the read plan of the elements, which is created once per column and java type. It 
+     *         reads the column as immutable set or list  
+     */
+    ReadPlan getElementsReadPlan(ColumnPlans column, Class<?> elementClass) {
+        ReadPlan plan = column.elementsReadPlans.get(elementClass);
+        if (plan == null) {
+            plan = newElementsReadPlan(column.dataType, elementClass);
+            column.elementsReadPlans.put(elementClass, plan);
+        }
+        return plan;
+    }
+    
+    
+    private ReadPlan newElementsReadPlan(DataType dataType, final Class<?> elementClass) {
+        final boolean isSet = (DataType.Name.SET == dataType.getName());
+        
+        // build-in
+        if (isBuildInType(dataType)) {
+            return new ReadPlan() {
+                @Override
+                Object read(GettableData data, String name) {
+                    return isSet ? ImmutableSet.copyOf(data.getSet(name, elementClass)) 
+                                 : ImmutableList.copyOf(data.getList(name, elementClass));
+                }
+            };
+            
+        // udt
+        } else {
+            final DataType elementDataType = dataType.getTypeArguments().get(0);
+            return new ReadPlan() {
+                @Override
+                Object read(GettableData data, String name) {
+                    return isSet ? fromUdtValues(elementDataType, ImmutableSet.copyOf(data.getSet(name, UDTValue.class)), elementClass) 
+                                 : fromUdtValues(elementDataType, ImmutableList.copyOf(data.getList(name, UDTValue.class)), elementClass);
+                }
+            };
+        }
+    }
+    
+    
+    /**
+     * @param column       the map column
+     * @param keysClass    the java type of the keys
+     * @param valuesClass  the java type of the values
+     * @return the read plan of the map, which is created once per column and java types 
+     */
+    ReadPlan getEntriesReadPlan(ColumnPlans column, Class<?> keysClass, Class<?> valuesClass) {
+        ConcurrentMap<Class<?>, ReadPlan> plans = column.entriesReadPlans.get(keysClass);
+        if (plans == null) {
+            plans = Maps.newConcurrentMap();
+            column.entriesReadPlans.put(keysClass, plans);
+        }
+        
+        ReadPlan plan = plans.get(valuesClass);
+        if (plan == null) {
+            plan = newEntriesReadPlan(column.dataType, keysClass, valuesClass);
+            plans.put(valuesClass, plan);
+        }
+        return plan;
+    }
+    
+    
+    private ReadPlan newEntriesReadPlan(DataType dataType, final Class<?> keysClass, final Class<?> valuesClass) {
+        
+        // build-in
+        if (isBuildInType(dataType)) {
+            return new ReadPlan() {
+                @Override
+                Object read(GettableData data, String name) {
+                    return ImmutableMap.copyOf(data.getMap(name, keysClass, valuesClass));
+                }
+            };
+        }
+        
+        final DataType keyDataType = dataType.getTypeArguments().get(0);
+        final DataType valueDataType = dataType.getTypeArguments().get(1);
+        final Class<?> keysReadClass = isBuildInType(keyDataType) ? keysClass : UDTValue.class;
+        final Class<?> valuesReadClass = isBuildInType(valueDataType) ? valuesClass : UDTValue.class;
+        
+        return new ReadPlan() {
+            @Override
+            Object read(GettableData data, String name) {
+                return fromUdtValues(keyDataType, valueDataType, ImmutableMap.copyOf(data.getMap(name, keysReadClass, valuesReadClass)), keysClass, valuesClass);
+            }
+        };
+    }
+    
+    
+    private TypeCodec<Object> codecFor(DataType dataType) {
+        return getCodecRegistry().codecFor(dataType);
+    }
+    
+    
+    /**
+     * precomputed conversion of a java value into the statement value of a column type
+     */
+    abstract static class WritePlan {
+        
+        static final WritePlan IDENTITY = new WritePlan() {
+            @Override
+            Object toStatementValue(Tablename tablename, Object value) {
+                return value;
+            }
+        };
+        
+        /**
+         * @param tablename  the tablename
+         * @param value      the non-null value
+         * @return the statement value
+         */
+        abstract Object toStatementValue(Tablename tablename, Object value);
+    }
+    
+    
+    /**
+     * precomputed conversion of a column value into a java type 
+     */
+    abstract static class ReadPlan {
+        
+        /**
+         * @param data  the row or udt value
+         * @param name  the column name
+         * @return the java value or null 
+         */
+        abstract Object read(GettableData data, String name);
+    }
+    
+    
+    /**
+     * the plans of a column, which are created on first use per java type. The java types are 
+     * compared by identity, so looking up a plan does neither allocate nor hash the data type
+     */
+    static final class ColumnPlans {
+        private final DataType dataType;
+        private final TypeCodec<Object> codec;
+        
+        private final ConcurrentMap<Class<?>, ReadPlan> readPlans = Maps.newConcurrentMap();
+        private final ConcurrentMap<Class<?>, ReadPlan> elementsReadPlans = Maps.newConcurrentMap();
+        private final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, ReadPlan>> entriesReadPlans = Maps.newConcurrentMap();
+        private final ConcurrentMap<Class<?>, WritePlan> writePlans = Maps.newConcurrentMap();
+        
+        /**
+         * @param dataType  the column type
+         * @param codec     the resolved codec of the column type or null
+         */
+        ColumnPlans(DataType dataType, TypeCodec<Object> codec) {
+            this.dataType = dataType;
+            this.codec = codec;
         }
     }
     
@@ -447,8 +717,7 @@ class UDTValueMapper {
      */
     @SuppressWarnings("unchecked")
 	public <T> ByteBuffer serialize(DataType dataType, Object value) {
-        final CodecRegistry codecRegistry = getCodecRegistry();
-        final TypeCodec<T> typeCodec = codecRegistry.codecFor(dataType);
+        final TypeCodec<T> typeCodec = (TypeCodec<T>) codecFor(dataType);
     	return typeCodec.serialize((T)value, protocolVersion);
     }
     
@@ -472,9 +741,9 @@ class UDTValueMapper {
      * @param fieldname
      * @return
      */
+    @SuppressWarnings("unchecked")
     public <T> T deserialize(DataType dataType, UDTValue udtValue, String fieldname) {
-        final CodecRegistry codecRegistry = getCodecRegistry();
-        final TypeCodec<T> typeCodec = codecRegistry.codecFor(dataType);
+        final TypeCodec<T> typeCodec = (TypeCodec<T>) codecFor(dataType);
     	return typeCodec.deserialize(udtValue.getBytesUnsafe(fieldname), protocolVersion);
     }
     
@@ -484,9 +753,9 @@ class UDTValueMapper {
      * @param byteBuffer
      * @return
      */
+    @SuppressWarnings("unchecked")
     public <T> T deserialize(DataType dataType, ByteBuffer byteBuffer) {
-        final CodecRegistry codecRegistry = getCodecRegistry();
-        final TypeCodec<T> typeCodec = codecRegistry.codecFor(dataType);
+        final TypeCodec<T> typeCodec = (TypeCodec<T>) codecFor(dataType);
     	return typeCodec.deserialize(byteBuffer, protocolVersion);
     }
 }   
\ No newline at end of file
@@ -21,8 +21,8 @@ import java.util.Set;
 import net.oneandone.troilus.java7.Batchable;
 import net.oneandone.troilus.java7.interceptor.CascadeOnWriteInterceptor;
 import net.oneandone.troilus.java7.interceptor.WriteQueryData;
-import net.oneandone.troilus.java7.interceptor.WriteQueryRequestInterceptor;
 
+import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Statement;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
@@ -31,6 +31,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 
 
@@ -85,22 +86,25 @@ abstract class WriteQuery<Q> extends MutationQuery<Q> {
     }
     
     @Override
-    public ListenableFuture<Result> executeAsync() {
-        ListenableFuture<Result> future = super.executeAsync();
-        
-        Function<Result, Result> validateLwtIfFunction = new Function<Result, Result>() {
-            @Override
-            public Result apply(Result result) {
-                if (isLwt() && !result.wasApplied()) {
-                    throw new IfConditionException(result, "duplicated entry");
-                }
-                return result;
-            }
-        };
-        return Futures.transform(future, validateLwtIfFunction);
+    protected Result toResult(ResultSet resultSet) {
+        final Result result = super.toResult(resultSet);
+        if (isLwt() && !result.wasApplied()) {
+            throw new IfConditionException(result, "duplicated entry");
+        }
+        return result;
     }
 
     
+    @Override
+    Tablename getTablename() {
+        return data.getTablename();
+    }
+    
+    
+    @Override
+    boolean isConditional() {
+        return isLwt();
+    }
     
     private boolean isLwt() {
         return ((data.getIfNotExits() != null) && (data.getIfNotExits()) || !data.getOnlyIfConditions().isEmpty());                
@@ -111,8 +115,19 @@ abstract class WriteQuery<Q> extends MutationQuery<Q> {
     
     
     public ListenableFuture<Statement> getStatementAsync(final DBSession dbSession) {
+        
+        // fast path: without interceptors the statement is built on the calling thread 
+        if (getInterceptorRegistry().getWriteRequestPipeline().isEmpty() &&
+            getInterceptorRegistry().getInterceptors(CascadeOnWriteInterceptor.class).isEmpty()) {
+            try {
+                return WriteQueryDataImpl.toStatementAsync(data, getExecutionSpec(), getUDTValueMapper(), dbSession);
+            } catch (RuntimeException rt) {
+                return Futures.immediateFailedFuture(rt);
+            }
+        }
+        
         // perform request executors
-        ListenableFuture<WriteQueryData> queryDataFuture = executeRequestInterceptorsAsync(Futures.<WriteQueryData>immediateFuture(data));        
+        ListenableFuture<WriteQueryData> queryDataFuture = getInterceptorRegistry().getWriteRequestPipeline().executeAsync(null, data, getExecutor());        
         
         // query data to statement
         Function<WriteQueryData, ListenableFuture<Statement>> queryDataToStatement = new Function<WriteQueryData, ListenableFuture<Statement>>() {
@@ -123,7 +138,7 @@ abstract class WriteQuery<Q> extends MutationQuery<Q> {
         };
         
         
-        ListenableFuture<Statement> statementFuture = ListenableFutures.transform(queryDataFuture, queryDataToStatement, getExecutor());
+        ListenableFuture<Statement> statementFuture = ListenableFutures.transform(queryDataFuture, queryDataToStatement);
         if (getInterceptorRegistry().getInterceptors(CascadeOnWriteInterceptor.class).isEmpty()) {
             return statementFuture;
             
@@ -138,27 +153,6 @@ abstract class WriteQuery<Q> extends MutationQuery<Q> {
     
     
     
-    private ListenableFuture<WriteQueryData> executeRequestInterceptorsAsync(ListenableFuture<WriteQueryData> queryDataFuture) {
-
-        for (WriteQueryRequestInterceptor interceptor : getInterceptorRegistry().getInterceptors(WriteQueryRequestInterceptor.class).reverse()) {
-            final WriteQueryRequestInterceptor icptor = interceptor;
-
-            Function<WriteQueryData, ListenableFuture<WriteQueryData>> mapperFunction = new Function<WriteQueryData, ListenableFuture<WriteQueryData>>() {
-                @Override
-                public ListenableFuture<WriteQueryData> apply(WriteQueryData queryData) {
-                    return icptor.onWriteRequestAsync(queryData);
-                }
-            };
-
-            // running interceptors within dedicated threads!
-            queryDataFuture = ListenableFutures.transform(queryDataFuture, mapperFunction, getExecutor());
-        }
-
-        return queryDataFuture; 
-    }
-    
-    
-    
     private ListenableFuture<ImmutableSet<Statement>> executeCascadeInterceptorsAsync(DBSession dbSession, ListenableFuture<WriteQueryData> queryDataFuture) {
         Set<ListenableFuture<ImmutableSet<Statement>>> statmentFutures = Sets.newHashSet();
         
@@ -179,6 +173,6 @@ abstract class WriteQuery<Q> extends MutationQuery<Q> {
             statmentFutures.add(flattenStatementFutureSet);
         }
 
-        return ListenableFutures.flat(ImmutableSet.copyOf(statmentFutures), getExecutor());
+        return ListenableFutures.flat(ImmutableSet.copyOf(statmentFutures), MoreExecutors.directExecutor());
     }
 }
\ No newline at end of file
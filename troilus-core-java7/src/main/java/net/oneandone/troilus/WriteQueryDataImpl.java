@@ -37,18 +37,17 @@ import java.util.Set;
 
 import net.oneandone.troilus.java7.interceptor.WriteQueryData;
 
-import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.Clause;
 import com.datastax.driver.core.querybuilder.Insert;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
 
@@ -652,88 +651,99 @@ class WriteQueryDataImpl implements WriteQueryData {
     }
     
     
-    private static ListenableFuture<Statement> toInsertStatementAsync(WriteQueryData data, ExecutionSpec executionSpec, UDTValueMapper udtValueMapper, DBSession dbSession) {
-        final Insert insert = (data.getTablename().getKeyspacename() == null) ? insertInto(data.getTablename().getTablename()) 
-                                                                              : insertInto(data.getTablename().getKeyspacename(), data.getTablename().getTablename());
-        
+    private static ListenableFuture<Statement> toInsertStatementAsync(final WriteQueryData data, final ExecutionSpec executionSpec, UDTValueMapper udtValueMapper, DBSession dbSession) {
         final List<Object> values = Lists.newArrayList();
+        final StatementShape.Builder shape = StatementShape.newShape("INSERT", data.getTablename());
         
         for(Entry<String, Optional<Object>> entry : data.getValuesToMutate().entrySet()) {
-            insert.value(entry.getKey(), bindMarker());  
+            shape.add("=", entry.getKey());
             values.add(udtValueMapper.toStatementValue(data.getTablename(), entry.getKey(), entry.getValue().orNull())); 
         }
         
-        if (data.getIfNotExits() != null) {
-            insert.ifNotExists();
-            if (executionSpec.getSerialConsistencyLevel() != null) {
-                insert.setSerialConsistencyLevel(executionSpec.getSerialConsistencyLevel());
-            }
-        }
+        shape.add(data.getIfNotExits())
+             .add((data.getIfNotExits() == null) ? null : executionSpec.getSerialConsistencyLevel())
+             .add(executionSpec.getTtl() != null);
 
         if (executionSpec.getTtl() != null) {
-            insert.using(ttl(bindMarker()));  
             values.add((Integer) executionSpec.getTtl());
         }
 
+        final Supplier<Insert> statementBuilder = new Supplier<Insert>() {
+            
+            @Override
+            public Insert get() {
+                final Insert insert = (data.getTablename().getKeyspacename() == null) ? insertInto(data.getTablename().getTablename()) 
+                                                                                      : insertInto(data.getTablename().getKeyspacename(), data.getTablename().getTablename());
+                
+                for (String name : data.getValuesToMutate().keySet()) {
+                    insert.value(name, bindMarker());  
+                }
+                
+                if (data.getIfNotExits() != null) {
+                    insert.ifNotExists();
+                    if (executionSpec.getSerialConsistencyLevel() != null) {
+                        insert.setSerialConsistencyLevel(executionSpec.getSerialConsistencyLevel());
+                    }
+                }
         
-        final ListenableFuture<PreparedStatement> preparedStatementFuture = dbSession.prepareAsync(insert);
-        return dbSession.bindAsync(preparedStatementFuture, values.toArray());
+                if (executionSpec.getTtl() != null) {
+                    insert.using(ttl(bindMarker()));  
+                }
+                
+                return insert;
+            }
+        };
+        
+        return dbSession.bindAsync(shape.build(), statementBuilder, values.toArray());
     }
     
     
     
     
-    private static ListenableFuture<Statement> toUpdateStatementAsync(WriteQueryData data, ExecutionSpec executionSpec, UDTValueMapper udtValueMapper, DBSession dbSession) {
-        
-        final com.datastax.driver.core.querybuilder.Update update = (data.getTablename().getKeyspacename() == null) ? update(data.getTablename().getTablename()) 
-                                                                                                                    : update(data.getTablename().getKeyspacename(), data.getTablename().getTablename());
-        
-        for (Clause onlyIfCondition : data.getOnlyIfConditions()) {
-            update.onlyIf(onlyIfCondition);
-        }
-
+    private static ListenableFuture<Statement> toUpdateStatementAsync(final WriteQueryData data, final ExecutionSpec executionSpec, final UDTValueMapper udtValueMapper, DBSession dbSession) {
         
         // key-based update
         if (data.getWhereConditions().isEmpty()) {
             final List<Object> values = Lists.newArrayList();
+            final TableDescriptor descriptor = udtValueMapper.getMetadataCatalog().getTableDescriptor(data.getTablename());
+            final StatementShape.Builder shape = StatementShape.newShape("UPDATE", data.getTablename())
+                                                               .add(executionSpec.getTtl() != null);
             
             if (executionSpec.getTtl() != null) {
-                update.using(QueryBuilder.ttl(bindMarker())); 
                 values.add((Integer) executionSpec.getTtl()); 
             }
             
             for (Entry<String, Optional<Object>> entry : data.getValuesToMutate().entrySet()) {
-                final boolean isPrimaryKey = udtValueMapper.getMetadataCatalog().isPrimaryKey(data.getTablename(), entry.getKey());
-            	if (!isPrimaryKey) {
-            		update.with(set(entry.getKey(), bindMarker())); 
+                if (!descriptor.isPrimaryKey(entry.getKey())) {
+                    shape.add("SET", entry.getKey());
                     values.add(toStatementValue(udtValueMapper, data.getTablename(), entry.getKey(), entry.getValue().orNull()));
-            	}
+                }
             }
 
             for (Entry<String, ImmutableSet<Object>> entry : data.getSetValuesToAdd().entrySet()) {
-                update.with(addAll(entry.getKey(), bindMarker())); 
+                shape.add("ADD_ALL", entry.getKey());
                 values.add(toStatementValue(udtValueMapper, data.getTablename(), entry.getKey(), entry.getValue()));
             }
             for(Entry<String, ImmutableSet<Object>> entry : data.getSetValuesToRemove().entrySet()) {
-                update.with(removeAll(entry.getKey(), bindMarker())); 
+                shape.add("REMOVE_ALL", entry.getKey());
                 values.add(toStatementValue(udtValueMapper, data.getTablename(), entry.getKey(), entry.getValue()));
             }
 
             for (Entry<String, ImmutableList<Object>> entry : data.getListValuesToPrepend().entrySet()) {
-                update.with(prependAll(entry.getKey(), bindMarker())); 
+                shape.add("PREPEND_ALL", entry.getKey());
                 values.add(toStatementValue(udtValueMapper, data.getTablename(), entry.getKey(), entry.getValue()));
             } 
             for (Entry<String, ImmutableList<Object>> entry : data.getListValuesToAppend().entrySet()) {
-                update.with(appendAll(entry.getKey(), bindMarker())); 
+                shape.add("APPEND_ALL", entry.getKey());
                 values.add(toStatementValue(udtValueMapper, data.getTablename(), entry.getKey(), entry.getValue()));
             } 
             for (Entry<String, ImmutableList<Object>> entry : data.getListValuesToRemove().entrySet()) {
-                update.with(discardAll(entry.getKey(), bindMarker())); 
+                shape.add("DISCARD_ALL", entry.getKey());
                 values.add(toStatementValue(udtValueMapper, data.getTablename(), entry.getKey(), entry.getValue()));
             } 
 
             for(Entry<String, ImmutableMap<Object, Optional<Object>>> entry : data.getMapValuesToMutate().entrySet()) {
-                update.with(putAll(entry.getKey(), bindMarker())); 
+                shape.add("PUT_ALL", entry.getKey());
                 
                 /**
                  * Mike Wislocki - change 1/26/16
@@ -754,17 +764,67 @@ class WriteQueryDataImpl implements WriteQueryData {
             
             
             for(Entry<String, Object> entry : data.getKeys().entrySet()) {
-                update.where(eq(entry.getKey(), bindMarker())); 
+                shape.add("=", entry.getKey());
                 values.add(toStatementValue(udtValueMapper, data.getTablename(), entry.getKey(), entry.getValue())); 
             }
             
-   
             
-            final ListenableFuture<PreparedStatement> preparedStatementFuture = dbSession.prepareAsync(update);
-            return dbSession.bindAsync(preparedStatementFuture, values.toArray());
+            final Supplier<com.datastax.driver.core.querybuilder.Update> statementBuilder = new Supplier<com.datastax.driver.core.querybuilder.Update>() {
+                
+                @Override
+                public com.datastax.driver.core.querybuilder.Update get() {
+                    final com.datastax.driver.core.querybuilder.Update update = newUpdate(data);
+                    
+                    if (executionSpec.getTtl() != null) {
+                        update.using(QueryBuilder.ttl(bindMarker())); 
+                    }
+                    
+                    for (String name : data.getValuesToMutate().keySet()) {
+                        if (!descriptor.isPrimaryKey(name)) {
+                            update.with(set(name, bindMarker())); 
+                        }
+                    }
+                    
+                    for (String name : data.getSetValuesToAdd().keySet()) {
+                        update.with(addAll(name, bindMarker())); 
+                    }
+                    for (String name : data.getSetValuesToRemove().keySet()) {
+                        update.with(removeAll(name, bindMarker())); 
+                    }
+                    
+                    for (String name : data.getListValuesToPrepend().keySet()) {
+                        update.with(prependAll(name, bindMarker())); 
+                    } 
+                    for (String name : data.getListValuesToAppend().keySet()) {
+                        update.with(appendAll(name, bindMarker())); 
+                    } 
+                    for (String name : data.getListValuesToRemove().keySet()) {
+                        update.with(discardAll(name, bindMarker())); 
+                    } 
+                    
+                    for (String name : data.getMapValuesToMutate().keySet()) {
+                        update.with(putAll(name, bindMarker())); 
+                    }
+                    
+                    for (String name : data.getKeys().keySet()) {
+                        update.where(eq(name, bindMarker())); 
+                    }
+                    
+                    return update;
+                }
+            };
+            
+            // only-if conditions carry literal values which are not part of the shape 
+            if (data.getOnlyIfConditions().isEmpty()) {
+                return dbSession.bindAsync(shape.build(), statementBuilder, values.toArray());
+            } else {
+                return dbSession.bindAsync(dbSession.prepareAsync(data.getTablename(), statementBuilder.get()), values.toArray());
+            }
             
         // where condition-based update
         } else {
+            final com.datastax.driver.core.querybuilder.Update update = newUpdate(data);
+            
             for (Entry<String, Optional<Object>> entry : data.getValuesToMutate().entrySet()) {
                 update.with(set(entry.getKey(), toStatementValue(udtValueMapper, data.getTablename(), entry.getKey(), entry.getValue().orNull())));
             }
@@ -798,8 +858,20 @@ class WriteQueryDataImpl implements WriteQueryData {
                 update.where(whereCondition);
             }
                         
-            return Futures.<Statement>immediateFuture(update);
+            return dbSession.prepareAndBindAsync(data.getTablename(), update);
+        }
+    }
+    
+    
+    private static com.datastax.driver.core.querybuilder.Update newUpdate(WriteQueryData data) {
+        final com.datastax.driver.core.querybuilder.Update update = (data.getTablename().getKeyspacename() == null) ? update(data.getTablename().getTablename()) 
+                                                                                                                    : update(data.getTablename().getKeyspacename(), data.getTablename().getTablename());
+        
+        for (Clause onlyIfCondition : data.getOnlyIfConditions()) {
+            update.onlyIf(onlyIfCondition);
         }
+        
+        return update;
     }
     
     
@@ -36,7 +36,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 /**
  * ConstraintsInterceptor
  */
-public class ConstraintsInterceptor implements WriteQueryRequestInterceptor {
+public class ConstraintsInterceptor implements WriteQueryRequestInterceptor, WriteQueryRequestInterceptor.Sync {
     
     private final ImmutableSet<String> notNullColumns;
     private final ImmutableSet<String> immutableColumns;
@@ -94,10 +94,15 @@ public class ConstraintsInterceptor implements WriteQueryRequestInterceptor {
     
     @Override
     public ListenableFuture<WriteQueryData> onWriteRequestAsync(WriteQueryData queryData) throws ConstraintException {
+        return Futures.immediateFuture(onWriteRequest(queryData));
+    }
+    
+    @Override
+    public WriteQueryData onWriteRequest(WriteQueryData queryData) throws ConstraintException {
         checkNotNullColumn(queryData);
         checkImmutableColumn(queryData);
         
-        return Futures.immediateFuture(queryData);
+        return queryData;
     }
  
     
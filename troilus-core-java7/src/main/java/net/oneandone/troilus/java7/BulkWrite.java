@@ -0,0 +1,75 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus.java7;
+
+import net.oneandone.troilus.BulkWriteErrorPolicy;
+import net.oneandone.troilus.BulkWriteSummary;
+import net.oneandone.troilus.Result;
+
+import org.reactivestreams.Publisher;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+
+
+/**
+ * Bulk write, which subscribes the source of mutations and writes them with a bounded
+ * number of in-flight statements. The source is requested according to the free write budget
+ */
+public interface BulkWrite {
+
+    /**
+     * @param maxInFlightWrites  the max number of in-flight statements
+     * @return a cloned query instance with the modified behavior
+     */
+    BulkWrite withMaxInFlight(int maxInFlightWrites);
+
+    /**
+     * coalesces mutations of the same partition, which are waiting for a write slot, into unlogged
+     * batches. The mutations of a batch share the write time. For this reason the same row should not
+     * be mutated more than once within a bulk write using batching
+     *
+     * @param maxBatchSize  the max number of mutations of a batch. 1 deactivates batching
+     * @return a cloned query instance with the modified behavior
+     */
+    BulkWrite withPartitionBatching(int maxBatchSize);
+
+    /**
+     * @param errorPolicy  the error policy
+     * @return a cloned query instance with the modified behavior
+     */
+    BulkWrite withErrorPolicy(BulkWriteErrorPolicy errorPolicy);
+
+    /**
+     * performs the bulk write in an async way
+     * @return the summary future
+     */
+    ListenableFuture<BulkWriteSummary> executeAsync();
+
+    /**
+     * performs the bulk write in a sync way
+     * @return the summary
+     */
+    BulkWriteSummary execute();
+
+    /**
+     * performs the bulk write driven by the demand of the subscriber. A result is emitted for each
+     * written mutation. Coalesced mutations share the result of their batch
+     *
+     * @return the result publisher, which supports a single subscription
+     */
+    Publisher<Result> executeRx();
+}
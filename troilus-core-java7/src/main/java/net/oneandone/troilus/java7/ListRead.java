@@ -15,6 +15,8 @@
  */
 package net.oneandone.troilus.java7;
 
+import net.oneandone.troilus.ScanProgress;
+
 import com.datastax.driver.core.PagingState;
 
 
@@ -49,6 +51,39 @@ public interface ListRead<T, R> extends SingleRead<T, R> {
      */
     ListRead<T, R> withAllowFiltering();
     
+    /**
+     * splits the read into parts, which are read concurrently. A where-based read is split into 
+     * token subranges, which is intended for full table scans. A key-based read is split into a 
+     * read per partition, if multiple values of a partition key column are requested
+     * 
+     * @param parallelism  the max number of concurrently read parts
+     * @return a cloned query instance, which reads the parts concurrently
+     * @throws IllegalArgumentException if the read is a count 
+     */
+    ListRead<T, R> withParallelism(int parallelism);
+    
+    /**
+     * @param parallelism    the max number of concurrently read parts
+     * @param preserveOrder  true, if the records have to be returned in the order of the parts. In 
+     *                       this case the records of a key-based read are returned in the order of 
+     *                       the requested partition key values and the records of a scan in token order 
+     * @return a cloned query instance, which reads the parts concurrently
+     * @throws IllegalArgumentException if the read is a count 
+     */
+    ListRead<T, R> withParallelism(int parallelism, boolean preserveOrder);
+    
+    /**
+     * scans the table by token subranges. This is supported by where-based reads only. Key-based 
+     * reads are split by partition with {@link ListRead#withParallelism(int)} or 
+     * {@link ListRead#withParallelism(int, boolean)} instead
+     * 
+     * @param parallelism   the max number of concurrently read subranges
+     * @param scanProgress  the progress, which will be updated by the scan. Subranges completed by a former scan are skipped
+     * @return a cloned query instance, which scans the table by token ranges
+     * @throws IllegalArgumentException if the read is a key-based one or a count 
+     */
+    ListRead<T, R> withParallelism(int parallelism, ScanProgress scanProgress);
+    
     /**
      * @return a cloned query instance which allows paging
      */
@@ -60,6 +60,12 @@ public interface Mutation<Q, R> extends Query<R> {
      * @return a cloned query instance with the modified behavior
      */
     Q withRetryPolicy(RetryPolicy policy);
+
+    /**
+     * @param timeoutMillis  the deadline in millis. If exceeded, the query fails and its pending stages will be cancelled
+     * @return a cloned query instance with the modified behavior
+     */
+    Q withTimeout(long timeoutMillis);
     
     /**
      * @return the statement future
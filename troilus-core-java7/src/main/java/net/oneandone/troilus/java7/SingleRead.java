@@ -49,4 +49,18 @@ public interface SingleRead<T, R> extends Query<T> {
      * @return a cloned query instance with the modified behavior
      */
     SingleRead<T, R> withConsistency(ConsistencyLevel consistencyLevel);
+    
+    /**
+     * @param timeoutMillis  the deadline in millis. If exceeded, the query fails and its pending stages will be cancelled
+     * @return a cloned query instance with the modified behavior
+     */
+    SingleRead<T, R> withTimeout(long timeoutMillis);
+    
+    /**
+     * @param percentile        the latency percentile of the table such as 95. If the read has not been completed 
+     *                          within this latency, a duplicate read will be sent and the first result will be used
+     * @param maxExtraRequests  the max number of duplicate reads 
+     * @return a cloned query instance with the modified behavior
+     */
+    SingleRead<T, R> withHedging(double percentile, int maxExtraRequests);
 }
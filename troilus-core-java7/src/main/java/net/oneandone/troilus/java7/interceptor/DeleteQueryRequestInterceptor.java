@@ -40,5 +40,21 @@ public interface DeleteQueryRequestInterceptor extends QueryInterceptor {
      * @return the (modified) request data
      */
     ListenableFuture<DeleteQueryData> onDeleteRequestAsync(DeleteQueryData queryData);
+    
+    
+    /**
+     * Synchronous variant of the interceptor, which will be executed before performing a delete query. 
+     * It is executed by the calling thread without any future allocation and should be 
+     * used for pure CPU work such as validation.
+     * If an interceptor implements both variants, the synchronous one will be used 
+     */
+    interface Sync extends QueryInterceptor {
+        
+        /**
+         * @param queryData   the request data
+         * @return the (modified) request data
+         */
+        DeleteQueryData onDeleteRequest(DeleteQueryData queryData);
+    }
 }
  
\ No newline at end of file
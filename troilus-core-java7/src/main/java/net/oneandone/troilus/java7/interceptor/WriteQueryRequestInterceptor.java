@@ -37,4 +37,20 @@ public interface WriteQueryRequestInterceptor extends QueryInterceptor {
      * @return the (modified) request data
      */
     ListenableFuture<WriteQueryData> onWriteRequestAsync(WriteQueryData data); 
+    
+    
+    /**
+     * Synchronous variant of the interceptor, which will be executed before performing a write query. 
+     * It is executed by the calling thread without any future allocation and should be 
+     * used for pure CPU work such as validation.
+     * If an interceptor implements both variants, the synchronous one will be used 
+     */
+    interface Sync extends QueryInterceptor {
+        
+        /**
+         * @param data the request data
+         * @return the (modified) request data
+         */
+        WriteQueryData onWriteRequest(WriteQueryData data);
+    }
 }
@@ -45,15 +45,37 @@ abstract class AbstractQueryAdapter<Q> extends AbstractQuery<Q> {
         return super.withTtl((int) ttl.getSeconds());
     }
     
+    public Q withTimeout(Duration timeout) {
+        return super.withTimeout(timeout.toMillis());
+    }
+    
     public Result execute() {
         return CompletableFutures.getUninterruptibly(executeAsync());
     }
     
     public CompletableFuture<Result> executeAsync() {
-        return CompletableFutures.toCompletableFuture(query.executeAsync());
+        
+        // native path: the result is mapped straight off the driver's result set future
+        if (query instanceof MutationQuery) {
+            final MutationQuery<?> mutation = (MutationQuery<?>) query;
+            try {
+                return CompletableFutures.toCompletableFuture(mutation.executeResultSetAsync(), mutation::toResult, getExecutor());
+            } catch (RuntimeException rt) {
+                return CompletableFutures.failedFuture(rt);
+            }
+        }
+        
+        return CompletableFutures.toCompletableFuture(query.executeAsync(), getExecutor());
     }  
     
+    /**
+     * @return the underlying query
+     */
+    net.oneandone.troilus.java7.Mutation<?, Result> getQuery() {
+        return query;
+    }
+    
     public CompletableFuture<Statement> getStatementAsync(DBSession dbSession) {
-       return CompletableFutures.toCompletableFuture(query.getStatementAsync(dbSession));
+       return CompletableFutures.toCompletableFuture(query.getStatementAsync(dbSession), getExecutor());
     }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.reactivestreams.Publisher;
+
+
+
+/**
+ * Java8 adapter of a BulkWriteQuery
+ */
+class BulkWriteQueryAdapter implements BulkWrite {
+    
+    private final Context ctx;
+    private final BulkWriteQuery query;
+    
+    
+    /**
+     * @param ctx    the context
+     * @param query  the underlying query
+     */
+    BulkWriteQueryAdapter(Context ctx, BulkWriteQuery query) {
+        this.ctx = ctx;
+        this.query = query;
+    }
+    
+    
+    @Override
+    public BulkWrite withMaxInFlight(int maxInFlightWrites) {
+        return new BulkWriteQueryAdapter(ctx, query.withMaxInFlight(maxInFlightWrites));
+    }
+    
+    @Override
+    public BulkWrite withPartitionBatching(int maxBatchSize) {
+        return new BulkWriteQueryAdapter(ctx, query.withPartitionBatching(maxBatchSize));
+    }
+    
+    @Override
+    public BulkWrite withErrorPolicy(BulkWriteErrorPolicy errorPolicy) {
+        return new BulkWriteQueryAdapter(ctx, query.withErrorPolicy(errorPolicy));
+    }
+    
+    @Override
+    public BulkWriteSummary execute() {
+        return CompletableFutures.getUninterruptibly(executeAsync());
+    }
+    
+    @Override
+    public CompletableFuture<BulkWriteSummary> executeAsync() {
+        return CompletableFutures.toCompletableFuture(query.executeAsync(), ctx.getTaskExecutor());
+    }
+    
+    @Override
+    public Publisher<Result> executeRx() {
+        return query.executeRx();
+    }
+}
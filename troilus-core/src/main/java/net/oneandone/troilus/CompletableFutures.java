@@ -21,10 +21,14 @@ package net.oneandone.troilus;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 import com.google.common.util.concurrent.AbstractFuture;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 
 
@@ -41,24 +45,56 @@ class CompletableFutures {
     }
     
     
+    public static <T> CompletableFuture<T> failedFuture(Throwable throwable) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+    
+    
     public static <T> CompletableFuture<T> toCompletableFuture(ListenableFuture<T> future) {
-        return new ListenableToCompletableFutureAdapter<>(future);
+        return toCompletableFuture(future, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * @param future    the future to map
+     * @param executor  the executor to complete the CompletableFuture, so that dependent stages are not executed by a database I/O thread  
+     * @return the CompletableFuture
+     */
+    public static <T> CompletableFuture<T> toCompletableFuture(ListenableFuture<T> future, Executor executor) {
+        return toCompletableFuture(future, Function.identity(), executor);
+    }
+    
+    /**
+     * @param future    the future to map such as the driver's result set future
+     * @param mapper    the mapper of the result, which will be executed once by the completing listener
+     * @param executor  the executor to complete the CompletableFuture, if the future is pending. 
+     *                  A future which is already completed will be mapped without any thread hop  
+     * @return the CompletableFuture
+     */
+    public static <S, T> CompletableFuture<T> toCompletableFuture(ListenableFuture<S> future, Function<? super S, ? extends T> mapper, Executor executor) {
+        return new ListenableToCompletableFutureAdapter<>(future, mapper, executor);
     }
     
     
     /**
      * Adapter which maps a ListenableFuture into a CompletableFuture  
      */
-    private static class ListenableToCompletableFutureAdapter<T> extends CompletableFuture<T> {
+    private static class ListenableToCompletableFutureAdapter<S, T> extends CompletableFuture<T> {
+        
+        private final ListenableFuture<S> future;
         
         /**
-         * @param rsFuture the underlying ResultSetFuture
+         * @param future    the underlying future
+         * @param mapper    the result mapper
+         * @param executor  the executor to complete a pending future
          */
-        public ListenableToCompletableFutureAdapter(ListenableFuture<T> future) {
+        public ListenableToCompletableFutureAdapter(ListenableFuture<S> future, Function<? super S, ? extends T> mapper, Executor executor) {
+            this.future = future;
             
             Runnable resultHandler = () -> { 
                 try {
-                    complete(future.get());
+                    complete(mapper.apply(future.get()));
                     
                 } catch (ExecutionException ee) {
                     completeExceptionally((ee.getCause() == null) ? ee : ee.getCause());
@@ -68,7 +104,26 @@ class CompletableFutures {
                 }
             };
             
-            future.addListener(resultHandler, ForkJoinPool.commonPool());
+            if (future.isDone()) {
+                resultHandler.run();
+            } else {
+                Runnable dispatcher = () -> {
+                    try {
+                        executor.execute(resultHandler);
+                    } catch (RejectedExecutionException ree) {
+                        // the result handler will never run
+                        completeExceptionally(ree);
+                    }
+                };
+                future.addListener(dispatcher, MoreExecutors.directExecutor());
+            }
+        }
+        
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            // the pending query stages are cancelled as well 
+            future.cancel(mayInterruptIfRunning);
+            return super.cancel(mayInterruptIfRunning);
         }
     }   
     
@@ -85,10 +140,13 @@ class CompletableFutures {
      */
     private static class CompletableToListenableFutureAdapter<T> extends AbstractFuture<T> {
         
+        private final CompletableFuture<T> future;
+        
         /**
          * @param rsFuture the underlying ResultSetFuture
          */
         public CompletableToListenableFutureAdapter(CompletableFuture<T> future) {
+            this.future = future;
             future.whenComplete((result, throwable) -> {
                                                           if (throwable == null) {
                                                               set(result);
@@ -100,5 +158,15 @@ class CompletableFutures {
                                                           }
                                                        });
         }
+        
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (super.cancel(mayInterruptIfRunning)) {
+                future.cancel(mayInterruptIfRunning);
+                return true;
+            } else {
+                return false;
+            }
+        }
     }   
 }
\ No newline at end of file
@@ -87,6 +87,11 @@ import com.google.common.util.concurrent.ListenableFuture;
              return (net.oneandone.troilus.java7.CounterMutation) mutation.withSerialConsistency(consistencyLevel);
          }
          
+         @Override
+         public net.oneandone.troilus.java7.CounterMutation withTimeout(long timeoutMillis) {
+             return (net.oneandone.troilus.java7.CounterMutation) mutation.withTimeout(Duration.ofMillis(timeoutMillis));
+         }
+         
          @Override
          public net.oneandone.troilus.java7.CounterMutation withTracking() {
              return (net.oneandone.troilus.java7.CounterMutation) mutation.withTracking();
@@ -158,6 +163,11 @@ import com.google.common.util.concurrent.ListenableFuture;
                  return (CounterMutation) mutation.withSerialConsistency(consistencyLevel);
              }
              
+             @Override
+             public CounterMutation withTimeout(Duration timeout) {
+                 return (CounterMutation) mutation.withTimeout(timeout.toMillis());
+             }
+             
              @Override
              public CounterMutation withTracking() {
                  return (CounterMutation) mutation.withTracking();
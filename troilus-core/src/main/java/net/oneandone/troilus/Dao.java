@@ -16,11 +16,15 @@
 package net.oneandone.troilus;
 
 
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
 import net.oneandone.troilus.ColumnName;
 import net.oneandone.troilus.interceptor.QueryInterceptor;
 
+import org.reactivestreams.Publisher;
+
 import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.policies.RetryPolicy;
 import com.datastax.driver.core.querybuilder.Clause;
@@ -62,12 +66,52 @@ public interface Dao {
      */
     Dao withRetryPolicy(RetryPolicy policy);
 
+    /**
+     * @param timeout  the deadline of the queries. If exceeded, the query fails and its pending stages will be cancelled
+     * @return a cloned Dao instance with the modified behavior
+     */
+    Dao withTimeout(Duration timeout);
+
+    /**
+     * @param limiter  the adaptive limiter of the in-flight requests, which may be shared by several Dao instances
+     * @return a cloned Dao instance with the modified behavior
+     */
+    Dao withConcurrencyLimiter(ConcurrencyLimiter limiter);
+
+    /**
+     * @param bulkhead  the bulkhead which limits the in-flight statements and page fetches of this Dao and 
+     *                  optionally provides a dedicated executor
+     * @return a cloned Dao instance with the modified behavior
+     */
+    Dao withBulkhead(Bulkhead bulkhead);
+
+    /**
+     * @param retryBudget  the retry budget, which may be shared by several Dao instances. Retries 
+     *                     exceeding the budget are suppressed
+     * @return a cloned Dao instance with the modified behavior
+     */
+    Dao withRetryBudget(RetryBudget retryBudget);
+
+    /**
+     * @param circuitBreaker  the circuit breaker, which fails fast if the read or write operations of this Dao keep failing
+     * @return a cloned Dao instance with the modified behavior
+     */
+    Dao withCircuitBreaker(CircuitBreaker circuitBreaker);
+
     /**
      * @param queryInterceptor   the interceptor
      * @return a cloned Dao instance with the modified behavior
      */
     Dao withInterceptor(QueryInterceptor queryInterceptor);
     
+    /**
+     * @param executor  the executor to run interceptors and other asynchronous stages. 
+     *                  By default the executor of the session is used. {@link com.google.common.util.concurrent.MoreExecutors#directExecutor()} 
+     *                  runs the stages within the completing thread, which is suitable for cheap, non-blocking interceptors only
+     * @return a cloned Dao instance with the modified behavior
+     */
+    Dao withExecutor(Executor executor);
+    
     
    
     
@@ -88,6 +132,18 @@ public interface Dao {
      */
     Insertion writeEntity(Object entity);
 
+    /**
+     * @param mutations the mutations to write
+     * @return a bulk write
+     */
+    BulkWrite writeAll(Publisher<? extends Batchable<?>> mutations);
+
+    /**
+     * @param entities the entities to write
+     * @return a bulk write
+     */
+    BulkWrite writeAllEntities(Publisher<?> entities);
+
     /**
      * @param composedKeyParts the composed key 
      * @return the write query 
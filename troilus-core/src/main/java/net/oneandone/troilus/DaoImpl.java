@@ -16,12 +16,14 @@
 package net.oneandone.troilus;
 
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import net.oneandone.troilus.interceptor.CascadeOnDeleteInterceptor;
@@ -36,6 +38,7 @@ import net.oneandone.troilus.interceptor.WriteQueryData;
 import net.oneandone.troilus.interceptor.WriteQueryRequestInterceptor;
 import net.oneandone.troilus.java7.Batchable;
 
+import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
@@ -81,6 +84,26 @@ public class DaoImpl implements Dao {
     }
 
  
+    /**
+     * @param session     the troilus session which has an assigned keyspace
+     * @param tablename   the table name
+     * @return a new dao, which shares the statement cache and metadata of the troilus session
+     */
+    public static DaoImpl of(TroilusSession session, String tablename) {
+        return new DaoImpl(new Context(session), Tablename.newTablename(session.getSession(), tablename));
+    }
+
+    /**
+     * @param session      the troilus session
+     * @param tablename    the table name
+     * @param keyspacename the keyspacename
+     * @return a new dao, which shares the statement cache and metadata of the troilus session
+     */
+    public static DaoImpl of(TroilusSession session, String keyspacename, String tablename) {
+        return new DaoImpl(new Context(session), Tablename.newTablename(keyspacename, tablename));
+    }
+
+    
     private DaoImpl(Context ctx, Tablename tablename) {
         this.ctx = ctx;
         this.tablename = tablename;
@@ -111,25 +134,64 @@ public class DaoImpl implements Dao {
     public Dao withRetryPolicy(RetryPolicy policy) {
         return new DaoImpl(ctx.withRetryPolicy(policy), this.tablename);
     }
+    
+    @Override
+    public Dao withTimeout(Duration timeout) {
+        return new DaoImpl(ctx.withTimeout(timeout.toMillis()), this.tablename);
+    }
+    
+    @Override
+    public Dao withConcurrencyLimiter(ConcurrencyLimiter limiter) {
+        return new DaoImpl(ctx.withConcurrencyLimiter(limiter), this.tablename);
+    }
+    
+    @Override
+    public Dao withBulkhead(Bulkhead bulkhead) {
+        return new DaoImpl(ctx.withBulkhead(bulkhead), this.tablename);
+    }
+    
+    @Override
+    public Dao withRetryBudget(RetryBudget retryBudget) {
+        return new DaoImpl(ctx.withRetryBudget(retryBudget), this.tablename);
+    }
+    
+    @Override
+    public Dao withCircuitBreaker(CircuitBreaker circuitBreaker) {
+        return new DaoImpl(ctx.withCircuitBreaker(circuitBreaker), this.tablename);
+    }
+    
+    @Override
+    public Dao withExecutor(Executor executor) {
+        return new DaoImpl(ctx.withTaskExecutor(executor), this.tablename);
+    }
 
     
     @Override
     public Dao withInterceptor(QueryInterceptor queryInterceptor) {
         Context context = ctx.withInterceptor(queryInterceptor);
         
-        if (ReadQueryRequestInterceptor.class.isAssignableFrom(queryInterceptor.getClass())) {
+        // sync interceptors will be preferred
+        if (ReadQueryRequestInterceptor.Sync.class.isAssignableFrom(queryInterceptor.getClass())) {
+            context = context.withInterceptor(new ListReadQueryRequestSyncInterceptorAdapter((ReadQueryRequestInterceptor.Sync) queryInterceptor));
+        } else if (ReadQueryRequestInterceptor.class.isAssignableFrom(queryInterceptor.getClass())) {
             context = context.withInterceptor(new ListReadQueryRequestInterceptorAdapter((ReadQueryRequestInterceptor) queryInterceptor));
         }
 
-        if (ReadQueryResponseInterceptor.class.isAssignableFrom(queryInterceptor.getClass())) {
+        if (ReadQueryResponseInterceptor.Sync.class.isAssignableFrom(queryInterceptor.getClass())) {
+            context = context.withInterceptor(new ListReadQueryResponseSyncInterceptorAdapter((ReadQueryResponseInterceptor.Sync) queryInterceptor));
+        } else if (ReadQueryResponseInterceptor.class.isAssignableFrom(queryInterceptor.getClass())) {
             context = context.withInterceptor(new ListReadQueryResponseInterceptorAdapter((ReadQueryResponseInterceptor) queryInterceptor));
         } 
 
-        if (WriteQueryRequestInterceptor.class.isAssignableFrom(queryInterceptor.getClass())) {
+        if (WriteQueryRequestInterceptor.Sync.class.isAssignableFrom(queryInterceptor.getClass())) {
+            context = context.withInterceptor(new WriteQueryRequestSyncInterceptorAdapter((WriteQueryRequestInterceptor.Sync) queryInterceptor));
+        } else if (WriteQueryRequestInterceptor.class.isAssignableFrom(queryInterceptor.getClass())) {
             context = context.withInterceptor(new WriteQueryRequestInterceptorAdapter((WriteQueryRequestInterceptor) queryInterceptor));
         } 
 
-        if (DeleteQueryRequestInterceptor.class.isAssignableFrom(queryInterceptor.getClass())) {
+        if (DeleteQueryRequestInterceptor.Sync.class.isAssignableFrom(queryInterceptor.getClass())) {
+            context = context.withInterceptor(new DeleteQueryRequestSyncInterceptorAdapter((DeleteQueryRequestInterceptor.Sync) queryInterceptor));
+        } else if (DeleteQueryRequestInterceptor.class.isAssignableFrom(queryInterceptor.getClass())) {
             context = context.withInterceptor(new DeleteQueryRequestInterceptorAdapter((DeleteQueryRequestInterceptor) queryInterceptor));
         } 
 
@@ -151,6 +213,16 @@ public class DaoImpl implements Dao {
         return new InsertQueryAdapter(ctx, new InsertQuery(ctx, new WriteQueryDataImpl(tablename).valuesToMutate(values)));
     }
     
+    @Override
+    public BulkWrite writeAll(Publisher<? extends net.oneandone.troilus.Batchable<?>> mutations) {
+        return new BulkWriteQueryAdapter(ctx, new BulkWriteQuery(ctx, mutations, mutation -> Mutations.toJava7Mutation((net.oneandone.troilus.Batchable<?>) mutation)));
+    }
+    
+    @Override
+    public BulkWrite writeAllEntities(Publisher<?> entities) {
+        return new BulkWriteQueryAdapter(ctx, new BulkWriteQuery(ctx, entities, entity -> new InsertQuery(ctx, new WriteQueryDataImpl(tablename).valuesToMutate(ctx.getBeanMapper().toValues(entity, ctx.getCatalog().getColumnNames(tablename))))));
+    }
+    
     @Override
     public UpdateWithUnitAndCounter writeWhere(Clause... clauses) {
         return new UpdateQueryAdapter(ctx, new UpdateQuery(ctx, new WriteQueryDataImpl(tablename).whereConditions((ImmutableList.copyOf(clauses)))));
@@ -1207,6 +1279,86 @@ public class DaoImpl implements Dao {
     }
     
     
+    private static final class ListReadQueryRequestSyncInterceptorAdapter implements net.oneandone.troilus.java7.interceptor.ReadQueryRequestInterceptor.Sync {
+        
+        private ReadQueryRequestInterceptor.Sync interceptor;
+        
+        public ListReadQueryRequestSyncInterceptorAdapter(ReadQueryRequestInterceptor.Sync interceptor) {
+            this.interceptor = interceptor;
+        }
+        
+        @Override
+        public net.oneandone.troilus.java7.interceptor.ReadQueryData onReadRequest(net.oneandone.troilus.java7.interceptor.ReadQueryData data) {
+            return ListReadQueryDataAdapter.convert(interceptor.onReadRequest(new ListReadQueryDataAdapter(data)));
+        }
+        
+        @Override
+        public String toString() {
+            return "ListReadQuerySyncPreInterceptor (with " + interceptor + ")";
+        }
+    }
+    
+    
+    private static final class ListReadQueryResponseSyncInterceptorAdapter implements net.oneandone.troilus.java7.interceptor.ReadQueryResponseInterceptor.Sync {
+        
+        private ReadQueryResponseInterceptor.Sync interceptor;
+        
+        public ListReadQueryResponseSyncInterceptorAdapter(ReadQueryResponseInterceptor.Sync interceptor) {
+            this.interceptor = interceptor;
+        }
+        
+        @Override
+        public net.oneandone.troilus.java7.ResultList<net.oneandone.troilus.java7.Record> onReadResponse(net.oneandone.troilus.java7.interceptor.ReadQueryData data, net.oneandone.troilus.java7.ResultList<net.oneandone.troilus.java7.Record> recordList) {
+            return RecordListAdapter.convertToJava7(interceptor.onReadResponse(new ListReadQueryDataAdapter(data), RecordListAdapter.convertFromJava7(recordList)));
+        }
+        
+        @Override
+        public String toString() {
+            return "ListReadQuerySyncPostInterceptor (with " + interceptor + ")";
+        }
+    }
+    
+    
+    private static final class WriteQueryRequestSyncInterceptorAdapter implements net.oneandone.troilus.java7.interceptor.WriteQueryRequestInterceptor.Sync {
+         
+        private WriteQueryRequestInterceptor.Sync interceptor;
+        
+        public WriteQueryRequestSyncInterceptorAdapter(WriteQueryRequestInterceptor.Sync interceptor) {
+            this.interceptor = interceptor;
+        }
+        
+        @Override
+        public net.oneandone.troilus.java7.interceptor.WriteQueryData onWriteRequest(net.oneandone.troilus.java7.interceptor.WriteQueryData data) {
+            return WriteQueryDataAdapter.convert(interceptor.onWriteRequest(new WriteQueryDataAdapter(data)));
+        }
+        
+        @Override
+        public String toString() {
+            return "WriteQuerySyncPreInterceptorAdapter (with " + interceptor + ")";
+        }
+    }
+    
+    
+    private static final class DeleteQueryRequestSyncInterceptorAdapter implements net.oneandone.troilus.java7.interceptor.DeleteQueryRequestInterceptor.Sync {
+         
+        private DeleteQueryRequestInterceptor.Sync interceptor;
+        
+        public DeleteQueryRequestSyncInterceptorAdapter(DeleteQueryRequestInterceptor.Sync interceptor) {
+            this.interceptor = interceptor;
+        }
+        
+        @Override
+        public DeleteQueryData onDeleteRequest(DeleteQueryData queryData) {
+            return interceptor.onDeleteRequest(queryData);
+        }
+        
+        @Override
+        public String toString() {
+            return "DeleteQuerySyncPreInterceptorAdapter (with " + interceptor + ")";
+        }
+    }
+    
+    
     private static final class CascadeOnWriteInterceptorAdapter implements net.oneandone.troilus.java7.interceptor.CascadeOnWriteInterceptor {
         private CascadeOnWriteInterceptor interceptor;
         
@@ -16,6 +16,7 @@
 package net.oneandone.troilus;
 
 
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 
 
@@ -63,6 +64,11 @@ class ListReadQueryAdapter extends AbstractQuery<ListReadQueryAdapter> implement
         return new ListReadQueryAdapter(newContext, query.newQuery(newContext));
     }
 
+    @Override
+    public ListReadQueryAdapter withTimeout(Duration timeout) {
+        return withTimeout(timeout.toMillis());
+    }
+
     private ListReadQueryAdapter newQuery(ListReadQuery query) {
         return new ListReadQueryAdapter(getContext(), query.newQuery(getContext()));
     }
@@ -126,6 +132,21 @@ class ListReadQueryAdapter extends AbstractQuery<ListReadQueryAdapter> implement
         return newQuery(query.withDistinct());
     }
     
+    @Override
+    public ListReadQueryAdapter withParallelism(int parallelism) {
+        return newQuery(query.withParallelism(parallelism));
+    }
+    
+    @Override
+    public ListReadQueryAdapter withParallelism(int parallelism, boolean preserveOrder) {
+        return newQuery(query.withParallelism(parallelism, preserveOrder));
+    }
+    
+    @Override
+    public ListReadQueryAdapter withParallelism(int parallelism, ScanProgress scanProgress) {
+        return newQuery(query.withParallelism(parallelism, scanProgress));
+    }
+    
 	@Override
 	public ListRead<ResultList<Record>, Record> withPagingState(
 			PagingState pagingState) {
@@ -149,7 +170,20 @@ class ListReadQueryAdapter extends AbstractQuery<ListReadQueryAdapter> implement
     
     @Override
     public CompletableFuture<ResultList<Record>> executeAsync() {
-        return CompletableFutures.toCompletableFuture(query.executeAsync())
+        
+        // native path: without interceptors the record list is mapped straight off the driver's result set future
+        if (query.isInterceptorFree()) {
+            try {
+                final Long deadlineNanos = query.newDeadlineNanos();
+                return CompletableFutures.toCompletableFuture(query.executeResultSetAsync(deadlineNanos), 
+                                                              resultSet -> DaoImpl.RecordListAdapter.convertFromJava7(query.toRecordList(resultSet, deadlineNanos)), 
+                                                              getExecutor());
+            } catch (RuntimeException rt) {
+                return CompletableFutures.failedFuture(rt);
+            }
+        }
+        
+        return CompletableFutures.toCompletableFuture(query.executeAsync(), getExecutor())
                                  .thenApply(recordList -> DaoImpl.RecordListAdapter.convertFromJava7(recordList));
     }        
     
@@ -183,6 +217,11 @@ class ListReadQueryAdapter extends AbstractQuery<ListReadQueryAdapter> implement
             return new ListEntityReadQueryAdapter<>(newContext, query.newQuery(newContext));
         }
 
+        @Override
+        public ListEntityReadQueryAdapter<E> withTimeout(Duration timeout) {
+            return withTimeout(timeout.toMillis());
+        }
+
         @Override
         public ListRead<ResultList<E>, E> withDistinct() {
             return new ListEntityReadQueryAdapter<>(getContext(), query.withDistinct());
@@ -202,6 +241,21 @@ class ListReadQueryAdapter extends AbstractQuery<ListReadQueryAdapter> implement
         public ListRead<ResultList<E>, E> withLimit(int limit) {
             return new ListEntityReadQueryAdapter<>(getContext(), query.withLimit(limit));
         }
+        
+        @Override
+        public ListRead<ResultList<E>, E> withParallelism(int parallelism) {
+            return new ListEntityReadQueryAdapter<>(getContext(), query.withParallelism(parallelism));
+        }
+        
+        @Override
+        public ListRead<ResultList<E>, E> withParallelism(int parallelism, boolean preserveOrder) {
+            return new ListEntityReadQueryAdapter<>(getContext(), query.withParallelism(parallelism, preserveOrder));
+        }
+        
+        @Override
+        public ListRead<ResultList<E>, E> withParallelism(int parallelism, ScanProgress scanProgress) {
+            return new ListEntityReadQueryAdapter<>(getContext(), query.withParallelism(parallelism, scanProgress));
+        }
 
         @Override
         public ResultList<E> execute() {
@@ -210,7 +264,7 @@ class ListReadQueryAdapter extends AbstractQuery<ListReadQueryAdapter> implement
 
         @Override
         public CompletableFuture<ResultList<E>> executeAsync() {
-            return CompletableFutures.toCompletableFuture(query.executeAsync())
+            return CompletableFutures.toCompletableFuture(query.executeAsync(), getExecutor())
                                      .thenApply(entityList -> new DaoImpl.EntityListAdapter<>(entityList));
         }
         
@@ -249,6 +303,11 @@ class ListReadQueryAdapter extends AbstractQuery<ListReadQueryAdapter> implement
         protected CountReadQueryAdapter newQuery(Context newContext) {
             return new CountReadQueryAdapter(newContext, query.newQuery(newContext));
         }
+
+        @Override
+        public CountReadQueryAdapter withTimeout(Duration timeout) {
+            return withTimeout(timeout.toMillis());
+        }
         
         @Override
         public ListRead<Count, Count> withLimit(int limit) {
@@ -283,12 +342,27 @@ class ListReadQueryAdapter extends AbstractQuery<ListReadQueryAdapter> implement
         
         @Override
         public CompletableFuture<Count> executeAsync() {
-            return CompletableFutures.toCompletableFuture(query.executeAsync());
+            return CompletableFutures.toCompletableFuture(query.executeAsync(), getExecutor());
         }    
         
         @Override
 		public ListRead<Count, Count> withPagingState(PagingState pagingState) {
 			throw new IllegalArgumentException("Count readers cannot be configured with paging state.");
+		}
+		
+		@Override
+		public ListRead<Count, Count> withParallelism(int parallelism) {
+		    throw new IllegalArgumentException("Count readers cannot be configured with parallelism.");
+		}
+		
+		@Override
+		public ListRead<Count, Count> withParallelism(int parallelism, boolean preserveOrder) {
+		    throw new IllegalArgumentException("Count readers cannot be configured with parallelism.");
+		}
+		
+		@Override
+		public ListRead<Count, Count> withParallelism(int parallelism, ScanProgress scanProgress) {
+		    throw new IllegalArgumentException("Count readers cannot be configured with parallelism.");
 		}      
     }  
 }
\ No newline at end of file
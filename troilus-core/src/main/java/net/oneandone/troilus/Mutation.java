@@ -15,6 +15,7 @@
  */
 package net.oneandone.troilus;
 
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 
 
@@ -59,6 +60,12 @@ public interface Mutation<Q, R> extends Query<R> {
      * @return a cloned query instance with the modified behavior
      */
     Q withRetryPolicy(RetryPolicy policy);
+
+    /**
+     * @param timeout  the deadline. If exceeded, the query fails and its pending stages will be cancelled
+     * @return a cloned query instance with the modified behavior
+     */
+    Q withTimeout(Duration timeout);
     
     /**
      * @return the statement future
@@ -15,6 +15,8 @@
  */
 package net.oneandone.troilus;
 
+import java.time.Duration;
+
 import net.oneandone.troilus.java7.BatchMutation;
 
 import com.datastax.driver.core.ConsistencyLevel;
@@ -31,11 +33,14 @@ class Mutations {
     
     /**
      * @param batchable the batchable to map or null
-     * @return the mapped batchable or null if mutation is null
+     * @return the mapped batchable or null if mutation is null. A mutation query adapter is mapped 
+     *         to its underlying query, so that its result will be validated by the query itself
      */
     public static net.oneandone.troilus.java7.Batchable<?> toJava7Mutation(Batchable<?> mutation) {
         if (mutation == null) {
             return null;
+        } else if ((mutation instanceof AbstractQueryAdapter) && (((AbstractQueryAdapter<?>) mutation).getQuery() instanceof net.oneandone.troilus.java7.Batchable)) {
+            return (net.oneandone.troilus.java7.Batchable<?>) ((AbstractQueryAdapter<?>) mutation).getQuery();
         } else {
             return new MutationToJava7MutationAdapter(mutation);
         }
@@ -69,6 +74,11 @@ class Mutations {
             return mutation.withSerialConsistency(consistencyLevel);
         }
         
+        @Override
+        public Object withTimeout(long timeoutMillis) {
+            return mutation.withTimeout(Duration.ofMillis(timeoutMillis));
+        }
+        
         @Override
         public Object withTracking() {
             return mutation.withTracking();
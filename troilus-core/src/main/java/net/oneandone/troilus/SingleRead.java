@@ -15,6 +15,7 @@
  */
 package net.oneandone.troilus;
 
+import java.time.Duration;
 
 import org.reactivestreams.Publisher;
 
@@ -50,4 +51,18 @@ public interface SingleRead<T, R> extends Query<T> {
      * @return a cloned query instance with the modified behavior
      */
     SingleRead<T, R> withConsistency(ConsistencyLevel consistencyLevel);
+    
+    /**
+     * @param timeout  the deadline. If exceeded, the query fails and its pending stages will be cancelled
+     * @return a cloned query instance with the modified behavior
+     */
+    SingleRead<T, R> withTimeout(Duration timeout);
+    
+    /**
+     * @param percentile        the latency percentile of the table such as 95. If the read has not been completed 
+     *                          within this latency, a duplicate read will be sent and the first result will be used
+     * @param maxExtraRequests  the max number of duplicate reads 
+     * @return a cloned query instance with the modified behavior
+     */
+    SingleRead<T, R> withHedging(double percentile, int maxExtraRequests);
 }
\ No newline at end of file
@@ -15,6 +15,7 @@
  */
 package net.oneandone.troilus;
 
+import java.time.Duration;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
@@ -53,6 +54,11 @@ class SingleReadQueryAdapter extends AbstractQuery<SingleReadQueryAdapter> imple
     protected SingleReadQueryAdapter newQuery(Context newContext) {
         return new SingleReadQueryAdapter(newContext, query.newQuery(newContext));
     }
+
+    @Override
+    public SingleReadQueryAdapter withTimeout(Duration timeout) {
+        return withTimeout(timeout.toMillis());
+    }
     
     private SingleReadQueryAdapter newQuery(SingleReadQuery query) {
         return new SingleReadQueryAdapter(getContext(), query.newQuery(getContext()));
@@ -110,7 +116,7 @@ class SingleReadQueryAdapter extends AbstractQuery<SingleReadQueryAdapter> imple
     
     @Override
     public CompletableFuture<Optional<Record>> executeAsync() {
-        return CompletableFutures.toCompletableFuture(query.executeAsync())
+        return CompletableFutures.toCompletableFuture(query.executeAsync(), getExecutor())
                             .thenApply(record -> (record == null) ? Optional.empty() : Optional.of(RecordAdapter.convertFromJava7(record))); 
     }
     
@@ -144,6 +150,11 @@ class SingleReadQueryAdapter extends AbstractQuery<SingleReadQueryAdapter> imple
         protected SingleEntityReadQueryAdapter<E> newQuery(Context newContext) {
             return new SingleEntityReadQueryAdapter<>(newContext, query.newQuery(newContext)); 
         }
+
+        @Override
+        public SingleEntityReadQueryAdapter<E> withTimeout(Duration timeout) {
+            return withTimeout(timeout.toMillis());
+        }
         
         @Override
         public Optional<E> execute() {
@@ -152,7 +163,7 @@ class SingleReadQueryAdapter extends AbstractQuery<SingleReadQueryAdapter> imple
 
         @Override
         public CompletableFuture<Optional<E>> executeAsync() {
-            return CompletableFutures.toCompletableFuture(query.executeAsync())
+            return CompletableFutures.toCompletableFuture(query.executeAsync(), getExecutor())
                             .thenApply(entity -> Optional.ofNullable(entity));
         }   
         
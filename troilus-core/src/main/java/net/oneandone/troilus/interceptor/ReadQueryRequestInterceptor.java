@@ -36,5 +36,21 @@ public interface ReadQueryRequestInterceptor extends QueryInterceptor {
      * @return  the (modified) request data
      */
     CompletableFuture<ReadQueryData> onReadRequestAsync(ReadQueryData queryData);
+    
+    
+    /**
+     * Synchronous variant of the interceptor, which will be executed before performing a list read query. 
+     * It is executed by the calling thread without any future allocation and should be 
+     * used for pure CPU work such as validation.
+     * If an interceptor implements both variants, the synchronous one will be used 
+     */
+    interface Sync extends QueryInterceptor {
+        
+        /**
+         * @param queryData   the request data
+         * @return the (modified) request data
+         */
+        ReadQueryData onReadRequest(ReadQueryData queryData);
+    }
 }
  
\ No newline at end of file
@@ -38,5 +38,22 @@ public interface ReadQueryResponseInterceptor extends QueryInterceptor {
      * @return the (modified) response
      */
     CompletableFuture<ResultList<Record>> onReadResponseAsync(ReadQueryData queryData, ResultList<Record> recordList);
+    
+    
+    /**
+     * Synchronous variant of the interceptor, which will be executed after performing a list read query. 
+     * It is executed by the calling thread without any future allocation and should be 
+     * used for pure CPU work such as validation.
+     * If an interceptor implements both variants, the synchronous one will be used 
+     */
+    interface Sync extends QueryInterceptor {
+        
+        /**
+         * @param queryData    the request data
+         * @param recordList   the response
+         * @return the (modified) response
+         */
+        ResultList<Record> onReadResponse(ReadQueryData queryData, ResultList<Record> recordList);
+    }
 }
  
\ No newline at end of file
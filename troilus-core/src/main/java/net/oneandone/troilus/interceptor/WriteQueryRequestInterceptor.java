@@ -35,4 +35,20 @@ public interface WriteQueryRequestInterceptor extends QueryInterceptor {
      * @return the (modified) data to write
      */
     CompletableFuture<WriteQueryData> onWriteRequestAsync(WriteQueryData queryData);
+    
+    
+    /**
+     * Synchronous variant of the interceptor, which will be executed before performing a write query. 
+     * It is executed by the calling thread without any future allocation and should be 
+     * used for pure CPU work such as validation.
+     * If an interceptor implements both variants, the synchronous one will be used 
+     */
+    interface Sync extends QueryInterceptor {
+        
+        /**
+         * @param queryData the data to write
+         * @return the (modified) data to write
+         */
+        WriteQueryData onWriteRequest(WriteQueryData queryData);
+    }
 }
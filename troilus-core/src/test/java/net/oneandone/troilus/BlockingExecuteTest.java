@@ -0,0 +1,95 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+
+
+public class BlockingExecuteTest {
+
+
+    @Test
+    public void testExecuteMapsOnCallingThread() throws Exception {
+        final AtomicInteger numTasks = new AtomicInteger();
+        Executor countingExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                numTasks.incrementAndGet();
+                command.run();
+            }
+        };
+
+        final ResultSet resultSet = mock(ResultSet.class);
+        final DBSession dbSession = mock(DBSession.class);
+        when(dbSession.executeAsync(any(Statement.class), any(), any())).thenReturn(Futures.immediateFuture(resultSet));
+        when(dbSession.withDeadline(any(), any(), any())).thenAnswer(invocation -> invocation.getArguments()[1]);
+
+        final Context ctx = mock(Context.class);
+        when(ctx.getDefaultDbSession()).thenReturn(dbSession);
+        when(ctx.getExecutionSpec()).thenReturn(mock(ExecutionSpec.class));
+        when(ctx.getTaskExecutor()).thenReturn(countingExecutor);
+
+        final TestMutationQuery query = new TestMutationQuery(ctx);
+        final Result result = query.execute();
+
+        // the result set is mapped by the calling thread, without a hop to the task executor 
+        Assert.assertNotNull(result);
+        Assert.assertSame(Thread.currentThread(), query.mappingThread.get());
+        Assert.assertEquals(0, numTasks.get());
+    }
+
+
+
+    private static final class TestMutationQuery extends MutationQuery<TestMutationQuery> {
+        private final AtomicReference<Thread> mappingThread = new AtomicReference<>();
+
+        TestMutationQuery(Context ctx) {
+            super(ctx);
+        }
+
+        @Override
+        protected TestMutationQuery newQuery(Context newContext) {
+            return new TestMutationQuery(newContext);
+        }
+
+        @Override
+        public ListenableFuture<Statement> getStatementAsync(DBSession dbSession) {
+            return Futures.immediateFuture(mock(Statement.class));
+        }
+
+        @Override
+        protected Result toResult(ResultSet resultSet) {
+            mappingThread.set(Thread.currentThread());
+            return super.toResult(resultSet);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.oneandone.troilus.java7.BatchMutation;
+import net.oneandone.troilus.java7.Batchable;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.ExecutionInfo;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.policies.RetryPolicy;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+public class BulkWriteSubscriptionTest {
+    
+    private final ScheduledExecutorService scheduler = MoreExecutors.getExitingScheduledExecutorService(new ScheduledThreadPoolExecutor(2));
+    private final Map<Statement, Integer> statementNums = Maps.newConcurrentMap();
+    
+
+    @Test
+    public void testBoundedInFlightWrites() throws Exception {
+        final AtomicInteger numInFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        
+        final SettableFuture<BulkWriteSummary> summaryFuture = SettableFuture.create();
+        new BulkWriteSubscription(null, null, new MutationPublisher(100, -1, numInFlight, maxInFlight), mutation -> (Batchable<?>) mutation, 4, 1, BulkWriteErrorPolicy.FAIL_FAST, new DiscardingSubscriber(), summaryFuture, ForkJoinPool.commonPool());
+        
+        final BulkWriteSummary summary = summaryFuture.get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(100, summary.getNumWritten());
+        Assert.assertEquals(100, summary.getNumStatements());
+        Assert.assertEquals(0, summary.getNumFailed());
+        Assert.assertTrue(maxInFlight.get() <= 4);
+    }
+    
+    
+    @Test
+    public void testFailFast() throws Exception {
+        final MutationPublisher publisher = new MutationPublisher(100, 10, new AtomicInteger(), new AtomicInteger());
+        
+        final SettableFuture<BulkWriteSummary> summaryFuture = SettableFuture.create();
+        new BulkWriteSubscription(null, null, publisher, mutation -> (Batchable<?>) mutation, 4, 1, BulkWriteErrorPolicy.FAIL_FAST, new DiscardingSubscriber(), summaryFuture, ForkJoinPool.commonPool());
+        
+        try {
+            summaryFuture.get(10, TimeUnit.SECONDS);
+            Assert.fail("ExecutionException expected");
+        } catch (ExecutionException expected) { 
+            Assert.assertEquals("write 10 failed", expected.getCause().getMessage());
+        }
+        Assert.assertTrue(publisher.isCancelled.get());
+    }
+    
+    
+    @Test
+    public void testCollectErrors() throws Exception {
+        final SettableFuture<BulkWriteSummary> summaryFuture = SettableFuture.create();
+        new BulkWriteSubscription(null, null, new MutationPublisher(100, 10, new AtomicInteger(), new AtomicInteger()), mutation -> (Batchable<?>) mutation, 4, 1, BulkWriteErrorPolicy.COLLECT, new DiscardingSubscriber(), summaryFuture, ForkJoinPool.commonPool());
+        
+        final BulkWriteSummary summary = summaryFuture.get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(99, summary.getNumWritten());
+        Assert.assertEquals(1, summary.getNumFailed());
+        Assert.assertEquals("write 10 failed", summary.getErrors().get(0).getMessage());
+    }
+    
+    
+    @Test
+    public void testResultsFollowDemand() throws Exception {
+        final AtomicInteger numResults = new AtomicInteger();
+        final AtomicInteger numInFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final MutationPublisher publisher = new MutationPublisher(100, -1, numInFlight, maxInFlight);
+        
+        final Subscriber<Result> subscriber = new Subscriber<Result>() {
+            
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(5);
+            }
+            
+            @Override
+            public void onNext(Result result) {
+                numResults.incrementAndGet();
+            }
+            
+            @Override
+            public void onError(Throwable t) {
+            }
+            
+            @Override
+            public void onComplete() {
+            }
+        };
+        new BulkWriteSubscription(null, null, publisher, mutation -> (Batchable<?>) mutation, 4, 1, BulkWriteErrorPolicy.FAIL_FAST, subscriber, SettableFuture.create(), ForkJoinPool.commonPool());
+        
+        Thread.sleep(500);
+        
+        // the source is not requested beyond the window, if the results are not consumed
+        Assert.assertEquals(5, numResults.get());
+        Assert.assertTrue(publisher.numEmitted.get() <= 5 + 4);
+    }
+    
+    
+    
+    @Test
+    public void testPartitionBatching() throws Exception {
+        final DBSession dbSession = mock(DBSession.class);
+        when(dbSession.getProtocolVersion()).thenReturn(ProtocolVersion.V4);
+        when(dbSession.getCodecRegistry()).thenReturn(CodecRegistry.DEFAULT_INSTANCE);
+        
+        final List<ImmutableList<Statement>> writtenStatements = Lists.newCopyOnWriteArrayList();
+        final BulkWriteSubscription.Writer writer = new BulkWriteSubscription.Writer() {
+            
+            @Override
+            public ListenableFuture<Result> writeAsync(ImmutableList<Batchable<?>> mutations, ImmutableList<Statement> statements) {
+                Assert.assertEquals(mutations.size(), statements.size());
+                writtenStatements.add(statements);
+                
+                final SettableFuture<Result> future = SettableFuture.create();
+                scheduler.schedule(() -> future.set(new TestResult()), 5, TimeUnit.MILLISECONDS);
+                return future;
+            }
+        };
+        
+        final SettableFuture<BulkWriteSummary> summaryFuture = SettableFuture.create();
+        new BulkWriteSubscription(dbSession, writer, new MutationPublisher(100, -1, new AtomicInteger(), new AtomicInteger()), mutation -> (Batchable<?>) mutation, 1, 10, BulkWriteErrorPolicy.FAIL_FAST, new DiscardingSubscriber(), summaryFuture, ForkJoinPool.commonPool());
+        
+        final BulkWriteSummary summary = summaryFuture.get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(100, summary.getNumWritten());
+        Assert.assertEquals(writtenStatements.size(), summary.getNumStatements());
+        
+        // the mutations waiting for the single write slot are coalesced  
+        Assert.assertTrue(summary.getNumStatements() < 100);
+        
+        final Map<ByteBuffer, Integer> lastWritten = Maps.newHashMap();
+        for (ImmutableList<Statement> statements : writtenStatements) {
+            Assert.assertTrue(statements.size() <= 10);
+            
+            final ByteBuffer partition = statements.get(0).getRoutingKey(ProtocolVersion.V4, CodecRegistry.DEFAULT_INSTANCE);
+            for (Statement statement : statements) {
+                // a batch contains mutations of the same partition only
+                Assert.assertEquals(partition, statement.getRoutingKey(ProtocolVersion.V4, CodecRegistry.DEFAULT_INSTANCE));
+                
+                // the mutations of a partition are written in the order of receipt 
+                final int num = statementNums.get(statement);
+                final Integer last = lastWritten.put(partition, num);
+                Assert.assertTrue((last == null) || (last < num));
+            }
+        }
+    }
+    
+    
+    
+    private static final class DiscardingSubscriber implements Subscriber<Result> {
+        
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+        
+        @Override
+        public void onNext(Result result) {
+        }
+        
+        @Override
+        public void onError(Throwable t) {
+        }
+        
+        @Override
+        public void onComplete() {
+        }
+    }
+    
+    
+    private final class MutationPublisher implements Publisher<TestMutation> {
+        private final int numMutations;
+        private final int failingMutation;
+        private final AtomicInteger numInFlight;
+        private final AtomicInteger maxInFlight;
+        
+        final AtomicInteger numEmitted = new AtomicInteger();
+        final AtomicBoolean isCancelled = new AtomicBoolean();
+        
+        MutationPublisher(int numMutations, int failingMutation, AtomicInteger numInFlight, AtomicInteger maxInFlight) {
+            this.numMutations = numMutations;
+            this.failingMutation = failingMutation;
+            this.numInFlight = numInFlight;
+            this.maxInFlight = maxInFlight;
+        }
+        
+        @Override
+        public void subscribe(Subscriber<? super TestMutation> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                
+                @Override
+                public synchronized void request(long n) {
+                    for (long i = 0; (i < n) && (numEmitted.get() < numMutations) && !isCancelled.get(); i++) {
+                        final int num = numEmitted.incrementAndGet();
+                        subscriber.onNext(new TestMutation(num, num == failingMutation, numInFlight, maxInFlight));
+                        if (num == numMutations) {
+                            subscriber.onComplete();
+                        }
+                    }
+                }
+                
+                @Override
+                public void cancel() {
+                    isCancelled.set(true);
+                }
+            });
+        }
+    }
+    
+    
+    private final class TestMutation implements Batchable<TestMutation> {
+        private final int num;
+        private final boolean isFailing;
+        private final AtomicInteger numInFlight;
+        private final AtomicInteger maxInFlight;
+        
+        TestMutation(int num, boolean isFailing, AtomicInteger numInFlight, AtomicInteger maxInFlight) {
+            this.num = num;
+            this.isFailing = isFailing;
+            this.numInFlight = numInFlight;
+            this.maxInFlight = maxInFlight;
+        }
+        
+        @Override
+        public ListenableFuture<Result> executeAsync() {
+            maxInFlight.accumulateAndGet(numInFlight.incrementAndGet(), Math::max);
+            
+            final SettableFuture<Result> future = SettableFuture.create();
+            scheduler.schedule(() -> {
+                                        numInFlight.decrementAndGet();
+                                        if (isFailing) {
+                                            future.setException(new RuntimeException("write " + num + " failed"));
+                                        } else {
+                                            future.set(new TestResult());
+                                        }
+                                     }, 
+                               5, 
+                               TimeUnit.MILLISECONDS);
+            return future;
+        }
+        
+        @Override
+        public Result execute() {
+            return ListenableFutures.getUninterruptibly(executeAsync());
+        }
+        
+        @Override
+        public ListenableFuture<Statement> getStatementAsync(DBSession dbSession) {
+            // the mutations are spread over 3 partitions
+            final Statement statement = mock(Statement.class);
+            when(statement.getKeyspace()).thenReturn("ks");
+            when(statement.getRoutingKey(ProtocolVersion.V4, CodecRegistry.DEFAULT_INSTANCE)).thenReturn(ByteBuffer.wrap(new byte[] { (byte) (num % 3) }));
+            statementNums.put(statement, num);
+            return Futures.immediateFuture(statement);
+        }
+        
+        @Override
+        public BatchMutation combinedWith(Batchable<?> other) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public TestMutation withConsistency(ConsistencyLevel consistencyLevel) {
+            return this;
+        }
+        
+        @Override
+        public TestMutation withSerialConsistency(ConsistencyLevel consistencyLevel) {
+            return this;
+        }
+        
+        @Override
+        public TestMutation withTracking() {
+            return this;
+        }
+        
+        @Override
+        public TestMutation withoutTracking() {
+            return this;
+        }
+        
+        @Override
+        public TestMutation withRetryPolicy(RetryPolicy policy) {
+            return this;
+        }
+        
+        @Override
+        public TestMutation withTimeout(long timeoutMillis) {
+            return this;
+        }
+    }
+    
+    
+    private static final class TestResult implements Result {
+        
+        @Override
+        public ExecutionInfo getExecutionInfo() {
+            return null;
+        }
+        
+        @Override
+        public ImmutableList<ExecutionInfo> getAllExecutionInfo() {
+            return ImmutableList.of();
+        }
+        
+        @Override
+        public boolean wasApplied() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+public class BulkheadTest {
+
+
+    @Test
+    public void testSaturatedBulkhead() throws Exception {
+        Bulkhead bulkhead = Bulkhead.newBulkhead("hotel", 1, 1);
+
+        SettableFuture<String> pendingStatement = SettableFuture.create();
+        bulkhead.executeStatementAsync(supply(pendingStatement));
+        Assert.assertEquals(1, bulkhead.getNumInFlightStatements());
+
+        assertRejected(bulkhead.executeStatementAsync(supply(SettableFuture.<String>create())));
+        Assert.assertEquals(1, bulkhead.getNumRejectedStatements());
+
+        // pages are limited independently
+        SettableFuture<String> pendingPage = SettableFuture.create();
+        bulkhead.executePageFetchAsync(supply(pendingPage));
+        Assert.assertEquals(1, bulkhead.getNumInFlightPages());
+
+        pendingStatement.set("statement");
+        pendingPage.set("page");
+        Assert.assertEquals(0, bulkhead.getNumInFlightStatements());
+        Assert.assertEquals(0, bulkhead.getNumInFlightPages());
+
+        SettableFuture<String> nextStatement = SettableFuture.create();
+        ListenableFuture<String> future = bulkhead.executeStatementAsync(supply(nextStatement));
+        nextStatement.set("next");
+        Assert.assertEquals("next", future.get());
+    }
+
+
+    @Test
+    public void testQueuedPageFetch() throws Exception {
+        Bulkhead bulkhead = Bulkhead.newBulkhead("hotel", 1, 1, 1, null);
+
+        SettableFuture<String> pendingPage1 = SettableFuture.create();
+        ListenableFuture<String> future1 = bulkhead.executePageFetchAsync(supply(pendingPage1));
+
+        // waits for a free place instead of breaking the stream
+        SettableFuture<String> pendingPage2 = SettableFuture.create();
+        ListenableFuture<String> future2 = bulkhead.executePageFetchAsync(supply(pendingPage2));
+        Assert.assertEquals(1, bulkhead.getNumQueuedPages());
+        Assert.assertFalse(future2.isDone());
+
+        // the queue is full
+        assertRejected(bulkhead.executePageFetchAsync(supply(SettableFuture.<String>create())));
+        Assert.assertEquals(1, bulkhead.getNumRejectedPages());
+
+        pendingPage1.set("page1");
+        Assert.assertEquals("page1", future1.get());
+        Assert.assertEquals(0, bulkhead.getNumQueuedPages());
+        Assert.assertEquals(1, bulkhead.getNumInFlightPages());
+
+        pendingPage2.set("page2");
+        Assert.assertEquals("page2", future2.get());
+        Assert.assertEquals(0, bulkhead.getNumInFlightPages());
+    }
+
+
+    @Test
+    public void testCancelledQueuedPageFetch() throws Exception {
+        Bulkhead bulkhead = Bulkhead.newBulkhead("hotel", 1, 1, 1, null);
+
+        SettableFuture<String> pendingPage1 = SettableFuture.create();
+        bulkhead.executePageFetchAsync(supply(pendingPage1));
+
+        ListenableFuture<String> future2 = bulkhead.executePageFetchAsync(supply(SettableFuture.<String>create()));
+        future2.cancel(false);
+        Assert.assertEquals(0, bulkhead.getNumQueuedPages());
+
+        pendingPage1.set("page1");
+        Assert.assertEquals(0, bulkhead.getNumInFlightPages());
+    }
+
+
+    private static void assertRejected(ListenableFuture<String> future) throws InterruptedException {
+        try {
+            future.get();
+            Assert.fail("ExecutionException expected");
+        } catch (ExecutionException expected) {
+            Assert.assertTrue(expected.getCause() instanceof BulkheadFullException);
+        }
+    }
+
+
+    private static Supplier<ListenableFuture<String>> supply(final ListenableFuture<String> future) {
+        return new Supplier<ListenableFuture<String>>() {
+            @Override
+            public ListenableFuture<String> get() {
+                return future;
+            }
+        };
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.net.InetSocketAddress;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.datastax.driver.core.exceptions.NoHostAvailableException;
+import com.google.common.collect.ImmutableMap;
+
+
+
+public class CircuitBreakerTest {
+
+
+    @Test
+    public void testOpenAndClose() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.newCircuitBreaker(0.5, 4, 60 * 1000, 100);
+
+        // invalid queries do not count
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(breaker.tryAcquirePermission("write"));
+            breaker.onFailure("write", new InvalidQueryException("invalid"));
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("write"));
+
+        for (int i = 0; i < 2; i++) {
+            Assert.assertTrue(breaker.tryAcquirePermission("write"));
+            breaker.onSuccess("write");
+            Assert.assertTrue(breaker.tryAcquirePermission("write"));
+            breaker.onFailure("write", newNoHostAvailableException());
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState("write"));
+        Assert.assertFalse(breaker.tryAcquirePermission("write"));
+        Assert.assertEquals(1, breaker.getNumRejected());
+
+        // circuits are independent
+        Assert.assertTrue(breaker.tryAcquirePermission("read"));
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("read"));
+
+        // after the open duration a single trial is permitted
+        Thread.sleep(150);
+        Assert.assertTrue(breaker.tryAcquirePermission("write"));
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState("write"));
+        Assert.assertFalse(breaker.tryAcquirePermission("write"));
+
+        breaker.onFailure("write", newNoHostAvailableException());
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState("write"));
+
+        Thread.sleep(150);
+        Assert.assertTrue(breaker.tryAcquirePermission("write"));
+        breaker.onSuccess("write");
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("write"));
+        Assert.assertTrue(breaker.tryAcquirePermission("write"));
+    }
+
+
+    private static NoHostAvailableException newNoHostAvailableException() {
+        return new NoHostAvailableException(ImmutableMap.<InetSocketAddress, Throwable>of());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+public class CompletableFuturesTest {
+
+    private static final Executor FAILING_EXECUTOR = command -> { throw new AssertionError("unexpected thread hop"); };
+
+
+    @Test
+    public void testCompletedFutureIsMappedWithoutHop() throws Exception {
+        CompletableFuture<Integer> future = CompletableFutures.toCompletableFuture(Futures.immediateFuture("troilus"), String::length, FAILING_EXECUTOR);
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(Integer.valueOf(7), future.get());
+    }
+
+
+    @Test
+    public void testPendingFutureIsMappedByExecutor() throws Exception {
+        SettableFuture<String> pending = SettableFuture.create();
+        CompletableFuture<Integer> future = CompletableFutures.toCompletableFuture(pending, String::length, command -> command.run());
+        Assert.assertFalse(future.isDone());
+
+        pending.set("cassandra");
+        Assert.assertEquals(Integer.valueOf(9), future.get());
+    }
+
+
+    @Test
+    public void testMapperException() throws Exception {
+        CompletableFuture<Integer> future = CompletableFutures.toCompletableFuture(Futures.immediateFuture("troilus"),
+                                                                                   value -> { throw new IllegalStateException("invalid"); },
+                                                                                   FAILING_EXECUTOR);
+        try {
+            future.get();
+            Assert.fail("ExecutionException expected");
+        } catch (ExecutionException expected) {
+            Assert.assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+    }
+}
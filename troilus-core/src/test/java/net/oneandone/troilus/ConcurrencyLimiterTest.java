@@ -0,0 +1,148 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+public class ConcurrencyLimiterTest {
+
+
+    @Test
+    public void testRejectsIfLimitIsReached() throws Exception {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.newAimdLimiter(1, 1, 60000);
+
+        SettableFuture<String> pending = SettableFuture.create();
+        ListenableFuture<String> future1 = limiter.executeAsync(supply(pending));
+        Assert.assertEquals(1, limiter.getNumInFlight());
+
+        ListenableFuture<String> future2 = limiter.executeAsync(supply(SettableFuture.<String>create()));
+        try {
+            future2.get();
+            Assert.fail("ExecutionException expected");
+        } catch (ExecutionException expected) {
+            Assert.assertTrue(expected.getCause() instanceof ConcurrencyLimitExceededException);
+        }
+        Assert.assertEquals(1, limiter.getNumRejected());
+
+        pending.set("troilus");
+        Assert.assertEquals("troilus", future1.get());
+        Assert.assertEquals(0, limiter.getNumInFlight());
+    }
+
+
+    @Test
+    public void testQueuedRequestIsAdmitted() throws Exception {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.newAimdLimiter(1, 1, 60000, 1, 60000);
+
+        SettableFuture<String> pending1 = SettableFuture.create();
+        SettableFuture<String> pending2 = SettableFuture.create();
+
+        ListenableFuture<String> future1 = limiter.executeAsync(supply(pending1));
+        ListenableFuture<String> future2 = limiter.executeAsync(supply(pending2));
+        Assert.assertEquals(1, limiter.getNumQueued());
+        Assert.assertFalse(future2.isDone());
+
+        pending1.set("first");
+        Assert.assertEquals("first", future1.get());
+        Assert.assertEquals(0, limiter.getNumQueued());
+        Assert.assertEquals(1, limiter.getNumInFlight());
+
+        pending2.set("second");
+        Assert.assertEquals("second", future2.get());
+        Assert.assertEquals(0, limiter.getNumRejected());
+    }
+
+
+    @Test(timeout = 5000)
+    public void testQueuedRequestExpires() throws Exception {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.newAimdLimiter(1, 1, 60000, 1, 20);
+
+        limiter.executeAsync(supply(SettableFuture.<String>create()));
+        ListenableFuture<String> future = limiter.executeAsync(supply(SettableFuture.<String>create()));
+        try {
+            future.get();
+            Assert.fail("ExecutionException expected");
+        } catch (ExecutionException expected) {
+            Assert.assertTrue(expected.getCause() instanceof ConcurrencyLimitExceededException);
+        }
+        Assert.assertEquals(1, limiter.getNumRejected());
+        Assert.assertEquals(0, limiter.getNumQueued());
+    }
+
+
+    @Test
+    public void testCancelledQueuedRequestIsRemoved() throws Exception {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.newAimdLimiter(1, 1, 60000, 1, 60000);
+
+        SettableFuture<String> pending1 = SettableFuture.create();
+        limiter.executeAsync(supply(pending1));
+        ListenableFuture<String> future2 = limiter.executeAsync(supply(SettableFuture.<String>create()));
+        Assert.assertEquals(1, limiter.getNumQueued());
+
+        // the place of the cancelled request is free again
+        future2.cancel(false);
+        Assert.assertEquals(0, limiter.getNumQueued());
+
+        SettableFuture<String> pending3 = SettableFuture.create();
+        ListenableFuture<String> future3 = limiter.executeAsync(supply(pending3));
+        Assert.assertEquals(1, limiter.getNumQueued());
+        Assert.assertEquals(0, limiter.getNumRejected());
+
+        pending1.set("first");
+        pending3.set("third");
+        Assert.assertEquals("third", future3.get());
+    }
+
+
+    @Test
+    public void testLimitAdjustment() throws Exception {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.newAimdLimiter(2, 10, 60000);
+
+        SettableFuture<String> fast = SettableFuture.create();
+        limiter.executeAsync(supply(fast));
+        fast.set("fast");
+        Assert.assertEquals(3, limiter.getLimit());
+
+
+        ConcurrencyLimiter slowLimiter = ConcurrencyLimiter.newAimdLimiter(10, 10, 1);
+
+        SettableFuture<String> slow = SettableFuture.create();
+        slowLimiter.executeAsync(supply(slow));
+        Thread.sleep(20);
+        slow.set("slow");
+        Assert.assertEquals(9, slowLimiter.getLimit());
+    }
+
+
+    private static Supplier<ListenableFuture<String>> supply(final ListenableFuture<String> future) {
+        return new Supplier<ListenableFuture<String>>() {
+            @Override
+            public ListenableFuture<String> get() {
+                return future;
+            }
+        };
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.querybuilder.BuiltStatement;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+public class DBSessionTest {
+    
+    private static final Tablename TABLENAME = Tablename.newTablename("ks", "tbl");
+    private static final Tablename OTHER_TABLENAME = Tablename.newTablename("ks", "other");
+
+
+    @Test
+    public void testSingleFlightPreparation() throws Exception {
+        final SettableFuture<PreparedStatement> preparation = SettableFuture.create();
+
+        Session session = mock(Session.class);
+        when(session.prepareAsync(any(RegularStatement.class))).thenReturn(preparation);
+
+        DBSession dbSession = new DBSession(session, null, null);
+
+        ListenableFuture<PreparedStatement> future1 = dbSession.prepareAsync(TABLENAME, newStatement());
+        ListenableFuture<PreparedStatement> future2 = dbSession.prepareAsync(TABLENAME, newStatement());
+        ListenableFuture<PreparedStatement> future3 = dbSession.prepareAsync(TABLENAME, newStatement());
+        Assert.assertEquals(2, dbSession.getNumAvoidedPreparations());
+        verify(session, times(1)).prepareAsync(any(RegularStatement.class));
+
+        PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        preparation.set(preparedStatement);
+        Assert.assertSame(preparedStatement, future1.get());
+        Assert.assertSame(preparedStatement, future2.get());
+        Assert.assertSame(preparedStatement, future3.get());
+
+        // cached
+        Assert.assertSame(preparedStatement, dbSession.prepareAsync(TABLENAME, newStatement()).get());
+        verify(session, times(1)).prepareAsync(any(RegularStatement.class));
+    }
+
+
+    @Test
+    public void testFailedPreparationIsNotShared() throws Exception {
+        final SettableFuture<PreparedStatement> failedPreparation = SettableFuture.create();
+        final SettableFuture<PreparedStatement> preparation = SettableFuture.create();
+
+        Session session = mock(Session.class);
+        when(session.prepareAsync(any(RegularStatement.class))).thenReturn(failedPreparation, preparation);
+
+        DBSession dbSession = new DBSession(session, null, null);
+
+        ListenableFuture<PreparedStatement> future1 = dbSession.prepareAsync(TABLENAME, newStatement());
+        failedPreparation.setException(new RuntimeException("prepare failed"));
+        Assert.assertTrue(future1.isDone());
+
+        ListenableFuture<PreparedStatement> future2 = dbSession.prepareAsync(TABLENAME, newStatement());
+        PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        preparation.set(preparedStatement);
+        Assert.assertSame(preparedStatement, future2.get());
+
+        Assert.assertEquals(0, dbSession.getNumAvoidedPreparations());
+        verify(session, times(2)).prepareAsync(any(RegularStatement.class));
+    }
+
+
+    @Test
+    public void testTableScopedInvalidation() throws Exception {
+        Session session = mock(Session.class);
+        when(session.prepareAsync(any(RegularStatement.class))).thenReturn(Futures.immediateFuture(mock(PreparedStatement.class)));
+
+        DBSession dbSession = new DBSession(session, null, null);
+
+        dbSession.prepareAsync(TABLENAME, newStatement()).get();
+        dbSession.prepareAsync(OTHER_TABLENAME, newStatement(OTHER_TABLENAME)).get();
+        verify(session, times(2)).prepareAsync(any(RegularStatement.class));
+
+        dbSession.invalidate("KS", "tbl");
+        
+        dbSession.prepareAsync(OTHER_TABLENAME, newStatement(OTHER_TABLENAME)).get();
+        verify(session, times(2)).prepareAsync(any(RegularStatement.class));
+
+        dbSession.prepareAsync(TABLENAME, newStatement()).get();
+        verify(session, times(3)).prepareAsync(any(RegularStatement.class));
+    }
+
+
+    private static BuiltStatement newStatement() {
+        return newStatement(TABLENAME);
+    }
+    
+    private static BuiltStatement newStatement(Tablename tablename) {
+        return select().all().from(tablename.getKeyspacename(), tablename.getTablename()).where(eq("id", bindMarker()));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+public class HedgingPolicyTest {
+
+
+    @Test
+    public void testPercentile() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertNull(histogram.getPercentileMillis(95));
+
+        for (int i = 0; i < 90; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(2));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        Assert.assertEquals(2, (long) histogram.getPercentileMillis(50));
+        Assert.assertEquals(10, (long) histogram.getPercentileMillis(95));
+    }
+
+
+    @Test
+    public void testHedgedRequest() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+
+        final List<SettableFuture<String>> attempts = Lists.newCopyOnWriteArrayList();
+        Supplier<ListenableFuture<String>> request = new Supplier<ListenableFuture<String>>() {
+            @Override
+            public ListenableFuture<String> get() {
+                SettableFuture<String> attempt = SettableFuture.create();
+                attempts.add(attempt);
+                return attempt;
+            }
+        };
+
+        final AtomicInteger numExecuted = new AtomicInteger();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                numExecuted.incrementAndGet();
+                MoreExecutors.directExecutor().execute(command);
+            }
+        };
+
+        ListenableFuture<String> future = new HedgingPolicy(95, 1).executeAsync(histogram, request, executor);
+        Assert.assertEquals(1, attempts.size());
+        Assert.assertEquals(0, numExecuted.get());
+
+        // the slow primary request is hedged
+        while (attempts.size() < 2) {
+            Thread.sleep(5);
+        }
+        attempts.get(1).set("hedged");
+
+        // the hedged request has been sent by the executor, not by the timer thread
+        Assert.assertEquals(1, numExecuted.get());
+
+        Assert.assertEquals("hedged", future.get());
+        Assert.assertTrue(attempts.get(0).isCancelled());
+
+        // max extra requests is 1
+        Thread.sleep(50);
+        Assert.assertEquals(2, attempts.size());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+public class InstrumentedExecutorTest {
+
+
+    @Test(timeout = 5000)
+    public void testRejectedTaskIsNotRunBySubmittingThread() throws Exception {
+        InstrumentedExecutor executor = InstrumentedExecutor.newBoundedExecutor(1, 1);
+
+        final CountDownLatch blockingTaskStarted = new CountDownLatch(1);
+        final CountDownLatch releaseBlockingTask = new CountDownLatch(1);
+
+        // occupies the single thread
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                blockingTaskStarted.countDown();
+                try {
+                    releaseBlockingTask.await();
+                } catch (InterruptedException ignore) { }
+            }
+        });
+        blockingTaskStarted.await();
+        Assert.assertEquals(1, executor.getNumActiveThreads());
+
+        // fills the queue
+        executor.execute(new Runnable() {
+            @Override
+            public void run() { }
+        });
+        Assert.assertEquals(1, executor.getQueueDepth());
+
+        // will be rejected
+        final AtomicBoolean isExecuted = new AtomicBoolean();
+        Runnable rejectedTask = new Runnable() {
+            @Override
+            public void run() {
+                isExecuted.set(true);
+            }
+        };
+        try {
+            executor.execute(rejectedTask);
+            Assert.fail("RejectedExecutionException expected");
+        } catch (RejectedExecutionException expected) { }
+        Assert.assertFalse(isExecuted.get());
+        Assert.assertEquals(1, executor.getNumRejected());
+
+        releaseBlockingTask.countDown();
+        executor.shutdown();
+
+        // will be rejected after shutdown
+        try {
+            executor.execute(rejectedTask);
+            Assert.fail("RejectedExecutionException expected");
+        } catch (RejectedExecutionException expected) { }
+        Assert.assertFalse(isExecuted.get());
+        Assert.assertEquals(2, executor.getNumRejected());
+    }
+
+
+    @Test(timeout = 5000)
+    public void testRejectionFailsStage() throws Exception {
+        InstrumentedExecutor executor = InstrumentedExecutor.newBoundedExecutor(1, 1);
+        executor.shutdown();
+
+        SettableFuture<String> pending = SettableFuture.create();
+        CompletableFuture<String> stage = CompletableFutures.toCompletableFuture(pending, executor);
+        pending.set("result");
+
+        try {
+            stage.get();
+            Assert.fail("RejectedExecutionException expected");
+        } catch (ExecutionException expected) {
+            Assert.assertTrue(expected.getCause() instanceof RejectedExecutionException);
+        }
+        Assert.assertEquals(1, executor.getNumRejected());
+    }
+}
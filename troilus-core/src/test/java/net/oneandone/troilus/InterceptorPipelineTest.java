@@ -0,0 +1,140 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+public class InterceptorPipelineTest {
+
+
+    @Test
+    public void testCompletedStagesRunInline() throws Exception {
+        CountingExecutor executor = new CountingExecutor();
+        InterceptorPipeline<Void, String> pipeline = new InterceptorPipeline<>(ImmutableList.of(append("a"), append("b"), append("c")));
+
+        ListenableFuture<String> result = pipeline.executeAsync(null, "", executor);
+        Assert.assertTrue(result.isDone());
+        Assert.assertEquals("abc", result.get());
+        Assert.assertEquals(0, executor.numExecutions.get());
+    }
+
+
+    @Test
+    public void testPendingStageContinuesByExecutor() throws Exception {
+        CountingExecutor executor = new CountingExecutor();
+        final SettableFuture<String> pending = SettableFuture.create();
+
+        InterceptorPipeline.Stage<Void, String> pendingStage = new InterceptorPipeline.Stage<Void, String>() {
+            @Override
+            ListenableFuture<String> apply(Void context, String value) {
+                return pending;
+            }
+        };
+        InterceptorPipeline<Void, String> pipeline = new InterceptorPipeline<>(ImmutableList.of(append("a"), pendingStage, append("c")));
+
+        ListenableFuture<String> result = pipeline.executeAsync(null, "", executor);
+        Assert.assertFalse(result.isDone());
+
+        pending.set("b");
+        Assert.assertEquals("bc", result.get());
+        Assert.assertEquals(1, executor.numExecutions.get());
+    }
+
+
+    @Test
+    public void testSyncStagesAfterPendingStage() throws Exception {
+        CountingExecutor executor = new CountingExecutor();
+        final SettableFuture<String> pending = SettableFuture.create();
+
+        InterceptorPipeline.Stage<Void, String> pendingStage = new InterceptorPipeline.Stage<Void, String>() {
+            @Override
+            ListenableFuture<String> apply(Void context, String value) {
+                return pending;
+            }
+        };
+        InterceptorPipeline<Void, String> pipeline = new InterceptorPipeline<>(ImmutableList.of(appendSync("a"), pendingStage, appendSync("c"), appendSync("d")));
+
+        ListenableFuture<String> result = pipeline.executeAsync(null, "", executor);
+        Assert.assertFalse(result.isDone());
+
+        pending.set("b");
+        Assert.assertEquals("bcd", result.get());
+        Assert.assertEquals(1, executor.numExecutions.get());
+    }
+
+
+    @Test
+    public void testFailedStage() throws Exception {
+        InterceptorPipeline.Stage<Void, String> failingStage = new InterceptorPipeline.Stage<Void, String>() {
+            @Override
+            ListenableFuture<String> apply(Void context, String value) {
+                throw new IllegalStateException("rejected");
+            }
+        };
+        InterceptorPipeline<Void, String> pipeline = new InterceptorPipeline<>(ImmutableList.of(append("a"), failingStage, append("c")));
+
+        try {
+            pipeline.executeAsync(null, "", new CountingExecutor()).get();
+            Assert.fail("ExecutionException expected");
+        } catch (ExecutionException expected) {
+            Assert.assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+    }
+
+
+    private static InterceptorPipeline.Stage<Void, String> append(final String suffix) {
+        return new InterceptorPipeline.Stage<Void, String>() {
+            @Override
+            ListenableFuture<String> apply(Void context, String value) {
+                return Futures.immediateFuture(value + suffix);
+            }
+        };
+    }
+
+
+    private static InterceptorPipeline.Stage<Void, String> appendSync(final String suffix) {
+        return new InterceptorPipeline.SyncStage<Void, String>() {
+            @Override
+            String applySync(Void context, String value) {
+                return value + suffix;
+            }
+        };
+    }
+
+
+    private static final class CountingExecutor implements Executor {
+        private final AtomicInteger numExecutions = new AtomicInteger();
+
+        @Override
+        public void execute(Runnable command) {
+            numExecutions.incrementAndGet();
+            command.run();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+public class ListReadQueryPagingTest {
+
+
+    @Test(timeout = 5000)
+    public void testFetchSizeIsAppliedWithoutBlocking() throws Exception {
+        ReadQueryDataImpl queryData = new ReadQueryDataImpl(Tablename.newTablename("ks", "tbl")).fetchSize(17);
+
+        // statement is not available so far, e.g. the preparation is still in progress
+        SettableFuture<Statement> statementFuture = SettableFuture.create();
+
+        ListenableFuture<Statement> pagedStatementFuture = ListReadQuery.withPaging(statementFuture, queryData);
+        Assert.assertFalse(pagedStatementFuture.isDone());
+
+        statementFuture.set(new SimpleStatement("SELECT * FROM ks.tbl"));
+        Assert.assertTrue(pagedStatementFuture.isDone());
+        Assert.assertEquals(17, pagedStatementFuture.get().getFetchSize());
+    }
+
+
+    @Test
+    public void testWithoutPaging() throws Exception {
+        ReadQueryDataImpl queryData = new ReadQueryDataImpl(Tablename.newTablename("ks", "tbl"));
+
+        SettableFuture<Statement> statementFuture = SettableFuture.create();
+        Assert.assertSame(statementFuture, ListReadQuery.withPaging(statementFuture, queryData));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+
+
+public class ListenableFuturesTest {
+
+    
+    @Test(timeout = 5000)
+    public void testDeadlineExceeded() throws Exception {
+        final AtomicInteger numExpired = new AtomicInteger();
+        final SettableFuture<String> pending = SettableFuture.create();
+        
+        ListenableFuture<String> future = ListenableFutures.withDeadline(pending, 50, new Runnable() {
+            @Override
+            public void run() {
+                numExpired.incrementAndGet();
+            }
+        });
+        
+        try {
+            future.get();
+            Assert.fail("ExecutionException expected");
+        } catch (ExecutionException expected) {
+            Assert.assertTrue(expected.getCause() instanceof DeadlineExceededException);
+        }
+        Assert.assertTrue(pending.isCancelled());
+        Assert.assertEquals(1, numExpired.get());
+    }
+
+    
+    @Test(timeout = 5000)
+    public void testCompletedWithinDeadline() throws Exception {
+        final AtomicInteger numExpired = new AtomicInteger();
+        final SettableFuture<String> pending = SettableFuture.create();
+        
+        ListenableFuture<String> future = ListenableFutures.withDeadline(pending, 60000, new Runnable() {
+            @Override
+            public void run() {
+                numExpired.incrementAndGet();
+            }
+        });
+        
+        pending.set("troilus");
+        Assert.assertEquals("troilus", future.get());
+        Assert.assertEquals(0, numExpired.get());
+    }
+
+    
+    @Test
+    public void testCancellationIsPropagatedUpstream() throws Exception {
+        final SettableFuture<String> pending = SettableFuture.create();
+        final SettableFuture<Integer> pendingInner = SettableFuture.create();
+        
+        ListenableFuture<Integer> future = ListenableFutures.transform(pending, new Function<String, ListenableFuture<Integer>>() {
+            @Override
+            public ListenableFuture<Integer> apply(String value) {
+                return pendingInner;
+            }
+        });
+        
+        pending.set("troilus");
+        Assert.assertTrue(future.cancel(true));
+        Assert.assertTrue(pendingInner.isCancelled());
+        
+        
+        final SettableFuture<String> pendingUpstream = SettableFuture.create();
+        ListenableFuture<Integer> future2 = ListenableFutures.transform(pendingUpstream, new Function<String, ListenableFuture<Integer>>() {
+            @Override
+            public ListenableFuture<Integer> apply(String value) {
+                return Futures.immediateFuture(value.length());
+            }
+        });
+        
+        Assert.assertTrue(future2.cancel(true));
+        Assert.assertTrue(pendingUpstream.isCancelled());
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.datastax.driver.core.ResultSet;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+
+
+public class ResultListSubscriptionTest {
+
+
+    @Test
+    public void testBatchedDrain() throws Exception {
+        final AtomicInteger numTasks = new AtomicInteger();
+        Executor countingExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                numTasks.incrementAndGet();
+                ForkJoinPool.commonPool().execute(command);
+            }
+        };
+
+        final AtomicInteger numElements = new AtomicInteger();
+        final CountDownLatch completed = new CountDownLatch(1);
+        Subscriber<Record> subscriber = new Subscriber<Record>() {
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Record record) {
+                numElements.incrementAndGet();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        };
+
+        new ResultListPublisher<Record>(Futures.immediateFuture(new SimpleResultList(1000, 0)), countingExecutor).subscribe(subscriber);
+
+        Assert.assertTrue(completed.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1000, numElements.get());
+
+        // a few tasks per fetched page instead of a task per element
+        Assert.assertTrue(numTasks.get() < 100);
+    }
+
+
+    @Test
+    public void testDemandDrivenPageSizing() throws Exception {
+        final TestIterator iterator = new TestIterator(1000);
+
+        final AtomicInteger numElements = new AtomicInteger();
+        final CountDownLatch completed = new CountDownLatch(1);
+        Subscriber<Integer> subscriber = new Subscriber<Integer>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(10);
+            }
+
+            @Override
+            public void onNext(Integer element) {
+                if ((numElements.incrementAndGet() % 10) == 0) {
+                    subscription.request(10);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        };
+
+        new ResultListSubscription<Integer>(subscriber, iterator, ForkJoinPool.commonPool());
+
+        Assert.assertTrue(completed.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1000, numElements.get());
+
+        // small demand leads to min sized pages
+        for (int fetchSize : iterator.fetchSizes) {
+            Assert.assertEquals(ResultListSubscription.MIN_FETCH_SIZE, fetchSize);
+        }
+    }
+
+
+    @Test
+    public void testReadAhead() throws Exception {
+        final TestIterator iterator = new TestIterator(10000);
+
+        final CountDownLatch completed = new CountDownLatch(1);
+        Subscriber<Integer> subscriber = new Subscriber<Integer>() {
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Integer element) {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        };
+
+        new ResultListSubscription<Integer>(subscriber, iterator, ForkJoinPool.commonPool());
+
+        Assert.assertTrue(completed.await(10, TimeUnit.SECONDS));
+
+        // the first page is fetched with the max fetch size, the subsequent pages are fetched in advance
+        Assert.assertEquals(ImmutableList.of(ResultListSubscription.MAX_FETCH_SIZE), iterator.fetchSizes);
+        Assert.assertTrue(iterator.numReadAheads.get() > 0);
+    }
+
+
+    @Test
+    public void testRejectingExecutor() throws Exception {
+        Executor rejectingExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException("rejected");
+            }
+        };
+
+        final List<String> signals = Lists.newCopyOnWriteArrayList();
+        Subscriber<Integer> subscriber = new Subscriber<Integer>() {
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                signals.add("onSubscribe");
+                subscription.request(10);
+            }
+
+            @Override
+            public void onNext(Integer element) {
+                signals.add("onNext");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                signals.add("onError " + t.getMessage());
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("onComplete");
+            }
+        };
+
+        final ResultListSubscription<Integer> subscription = new ResultListSubscription<Integer>(subscriber, new TestIterator(1000), rejectingExecutor);
+
+        // the error is signalled after onSubscribe and terminates the subscription
+        Assert.assertEquals(ImmutableList.of("onSubscribe", "onError rejected"), signals);
+
+        // further requests are ignored, instead of getting stuck 
+        subscription.request(10);
+        subscription.request(10);
+        Assert.assertEquals(2, signals.size());
+    }
+
+
+
+    private static final class TestIterator implements PageSizingIterator<Integer> {
+        private final List<Integer> fetchSizes = Lists.newCopyOnWriteArrayList();
+        private final AtomicInteger numReadAheads = new AtomicInteger();
+        private final AtomicInteger numAvailable = new AtomicInteger();
+        private final AtomicInteger numRemaining;
+
+        TestIterator(int numElements) {
+            this.numRemaining = new AtomicInteger(numElements);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return (numAvailable.get() > 0) || (numRemaining.get() > 0);
+        }
+
+        @Override
+        public Integer next() {
+            return numAvailable.decrementAndGet();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getAvailableWithoutFetching() {
+            return numAvailable.get();
+        }
+
+        @Override
+        public boolean isFullyFetched() {
+            return numRemaining.get() == 0;
+        }
+
+        @Override
+        public ListenableFuture<ResultSet> fetchMoreResultsAsync() {
+            numReadAheads.incrementAndGet();
+            return fetch(1000);
+        }
+
+        @Override
+        public ListenableFuture<ResultSet> fetchMoreResultsAsync(int fetchSize) {
+            fetchSizes.add(fetchSize);
+            return fetch(fetchSize);
+        }
+
+        private ListenableFuture<ResultSet> fetch(int fetchSize) {
+            final int size = Math.min(fetchSize, numRemaining.get());
+            numRemaining.addAndGet(-size);
+            numAvailable.addAndGet(size);
+            return Futures.immediateFuture(null);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+
+public class RetryBudgetTest {
+
+
+    @Test
+    public void testExhaustedBudget() throws Exception {
+        RetryBudget budget = RetryBudget.newRetryBudget(0.5, 2);
+
+        Assert.assertTrue(budget.tryAcquireRetry());
+        Assert.assertTrue(budget.tryAcquireRetry());
+        Assert.assertFalse(budget.tryAcquireRetry());
+        Assert.assertEquals(2, budget.getNumRetries());
+        Assert.assertEquals(1, budget.getNumSuppressedRetries());
+
+        // two successful requests earn one retry
+        budget.onSuccess();
+        Assert.assertFalse(budget.tryAcquireRetry());
+        budget.onSuccess();
+        Assert.assertTrue(budget.tryAcquireRetry());
+
+        // the balance is capped
+        for (int i = 0; i < 100; i++) {
+            budget.onSuccess();
+        }
+        Assert.assertEquals(2.0, budget.getBalance(), 0.001);
+    }
+}
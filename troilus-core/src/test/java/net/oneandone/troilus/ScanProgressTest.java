@@ -0,0 +1,66 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+
+
+public class ScanProgressTest {
+
+
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        ImmutableSet<String> ranges = ImmutableSet.of("-9223372036854775808:-3074457345618258603", 
+                                                      "-3074457345618258603:3074457345618258602", 
+                                                      "3074457345618258602:-9223372036854775808");
+        
+        ScanProgress progress = ScanProgress.newScanProgress();
+        progress.onStarted(ranges);
+        Assert.assertEquals(3, progress.getNumRanges());
+        Assert.assertEquals(0, progress.getNumCompletedRanges());
+        
+        progress.onRecord();
+        progress.onRecord();
+        progress.onRangeCompleted("-3074457345618258603:3074457345618258602");
+        progress.onRangeCompleted("-3074457345618258603:3074457345618258602");
+        Assert.assertEquals(1, progress.getNumCompletedRanges());
+        Assert.assertEquals(2, progress.getNumRecords());
+        Assert.assertFalse(progress.isCompleted());
+
+        
+        // the restored progress skips the completed range 
+        ScanProgress restored = ScanProgress.fromCheckpoint(progress.toCheckpoint());
+        restored.onStarted(ranges);
+        Assert.assertEquals(1, restored.getNumCompletedRanges());
+        Assert.assertTrue(restored.isCompleted("-3074457345618258603:3074457345618258602"));
+        Assert.assertFalse(restored.isCompleted("3074457345618258602:-9223372036854775808"));
+        
+        restored.onRangeCompleted("-9223372036854775808:-3074457345618258603");
+        restored.onRangeCompleted("3074457345618258602:-9223372036854775808");
+        Assert.assertTrue(restored.isCompleted());
+        
+        
+        // ranges of a changed ring are not completed
+        ScanProgress changed = ScanProgress.fromCheckpoint(restored.toCheckpoint());
+        changed.onStarted(ImmutableSet.of("-9223372036854775808:0", "0:-9223372036854775808"));
+        Assert.assertEquals(0, changed.getNumCompletedRanges());
+    }
+}
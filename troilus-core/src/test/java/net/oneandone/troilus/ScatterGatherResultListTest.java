@@ -0,0 +1,199 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.troilus;
+
+
+import static org.mockito.Mockito.mock;
+
+import java.util.Iterator;
+import java.util.List;
+
+import net.oneandone.troilus.java7.FetchingIterator;
+import net.oneandone.troilus.java7.Record;
+import net.oneandone.troilus.java7.ResultList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datastax.driver.core.ExecutionInfo;
+import com.datastax.driver.core.ResultSet;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+
+
+public class ScatterGatherResultListTest {
+
+    
+    @Test
+    public void testSplitByPartition() throws Exception {
+        ImmutableMap<String, ImmutableList<Object>> keys = ImmutableMap.of("tenant", ImmutableList.<Object>of("t1"),
+                                                                           "id", ImmutableList.<Object>of(3, 1, 3, 2),
+                                                                           "version", ImmutableList.<Object>of(1, 2));
+        
+        ImmutableList<ImmutableMap<String, ImmutableList<Object>>> partitionKeys = ListReadQuery.splitByPartition(keys, ImmutableList.of("tenant", "id"));
+        Assert.assertEquals(3, partitionKeys.size());
+        
+        // the partitions are ordered by the requested values and the clustering key IN condition is kept
+        Assert.assertEquals(ImmutableList.of(3), partitionKeys.get(0).get("id"));
+        Assert.assertEquals(ImmutableList.of(1), partitionKeys.get(1).get("id"));
+        Assert.assertEquals(ImmutableList.of(2), partitionKeys.get(2).get("id"));
+        Assert.assertEquals(ImmutableList.of("t1"), partitionKeys.get(2).get("tenant"));
+        Assert.assertEquals(ImmutableList.of(1, 2), partitionKeys.get(2).get("version"));
+    }
+    
+    
+    @Test
+    public void testOrderedMerge() throws Exception {
+        ImmutableList<Record> first = newRecords(3);
+        ImmutableList<Record> second = newRecords(2);
+        ImmutableList<Record> third = newRecords(4);
+        
+        List<Record> records = Lists.newArrayList(new ScatterGatherResultList(ImmutableList.of(newPart(first), newPart(second), newPart(third)), 2, true, null, null));
+        Assert.assertEquals(ImmutableList.builder().addAll(first).addAll(second).addAll(third).build(), records);
+    }
+    
+    
+    @Test
+    public void testMergeWithLimit() throws Exception {
+        ImmutableList<Record> first = newRecords(3);
+        ImmutableList<Record> second = newRecords(3);
+        
+        List<Record> records = Lists.newArrayList(new ScatterGatherResultList(ImmutableList.of(newPart(first), newPart(second)), 2, false, null, null));
+        Assert.assertEquals(6, records.size());
+        Assert.assertTrue(records.containsAll(first) && records.containsAll(second));
+        
+        // the records of the concurrently read parts are interleaved
+        Assert.assertEquals(second.get(0), records.get(1));
+        
+        records = Lists.newArrayList(new ScatterGatherResultList(ImmutableList.of(newPart(first), newPart(second)), 2, false, 4, null));
+        Assert.assertEquals(4, records.size());
+    }
+    
+    
+    
+    @Test
+    public void testSkipCompletedParts() throws Exception {
+        ImmutableList<Record> first = newRecords(3);
+        ImmutableList<Record> second = newRecords(2);
+        
+        ScanProgress progress = ScanProgress.newScanProgress();
+        List<Record> records = Lists.newArrayList(new ScatterGatherResultList(ImmutableList.of(newPart("1", first), newPart("2", second)), 1, false, null, progress));
+        Assert.assertEquals(5, records.size());
+        Assert.assertTrue(progress.isCompleted());
+        Assert.assertEquals(5, progress.getNumRecords());
+        
+        // the part completed before is not read again 
+        ScanProgress restored = ScanProgress.fromCheckpoint("1");
+        records = Lists.newArrayList(new ScatterGatherResultList(ImmutableList.of(newPart("1", first), newPart("2", second)), 1, false, null, restored));
+        Assert.assertEquals(second, records);
+        Assert.assertTrue(restored.isCompleted());
+    }
+    
+    
+    
+    private static ImmutableList<Record> newRecords(int num) {
+        final List<Record> records = Lists.newArrayList();
+        for (int i = 0; i < num; i++) {
+            records.add(mock(Record.class));
+        }
+        return ImmutableList.copyOf(records);
+    }
+    
+    
+    private static ScatterGatherResultList.Part newPart(ImmutableList<Record> records) {
+        return newPart(null, records);
+    }
+    
+    private static ScatterGatherResultList.Part newPart(String name, final ImmutableList<Record> records) {
+        return new ScatterGatherResultList.Part(name, new Supplier<ListenableFuture<ResultList<Record>>>() {
+            
+            @Override
+            public ListenableFuture<ResultList<Record>> get() {
+                return Futures.<ResultList<Record>>immediateFuture(new FetchedResultList(records));
+            }
+        });
+    }
+    
+    
+    
+    private static final class FetchedResultList implements ResultList<Record> {
+        private final ImmutableList<Record> records;
+        
+        FetchedResultList(ImmutableList<Record> records) {
+            this.records = records;
+        }
+        
+        @Override
+        public ExecutionInfo getExecutionInfo() {
+            return null;
+        }
+        
+        @Override
+        public ImmutableList<ExecutionInfo> getAllExecutionInfo() {
+            return ImmutableList.of();
+        }
+        
+        @Override
+        public boolean wasApplied() {
+            return true;
+        }
+        
+        @Override
+        public FetchingIterator<Record> iterator() {
+            final Iterator<Record> it = records.iterator();
+            
+            return new FetchingIterator<Record>() {
+                private int available = records.size();
+                
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+                
+                @Override
+                public Record next() {
+                    available--;
+                    return it.next();
+                }
+                
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+                
+                @Override
+                public int getAvailableWithoutFetching() {
+                    return available;
+                }
+                
+                @Override
+                public boolean isFullyFetched() {
+                    return true;
+                }
+                
+                @Override
+                public ListenableFuture<ResultSet> fetchMoreResultsAsync() {
+                    return Futures.immediateFuture(null);
+                }
+            };
+        }
+    }
+}
@@ -25,6 +25,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 
 import net.oneandone.troilus.java7.FetchingIterator;
 
@@ -62,7 +63,7 @@ public class SimpleResultList implements net.oneandone.troilus.java7.ResultList<
     }
 
     public static ResultListPublisher<Record> newResultListPublisher(long elements, int fetchDelayMillis) {
-        return new ResultListPublisher<Record>(Futures.immediateFuture(new SimpleResultList(elements, fetchDelayMillis)));
+        return new ResultListPublisher<Record>(Futures.immediateFuture(new SimpleResultList(elements, fetchDelayMillis)), ForkJoinPool.commonPool());
     }
     
     @Override
@@ -162,15 +163,19 @@ public class SimpleResultList implements net.oneandone.troilus.java7.ResultList<
         private void loadNextChunk() {
             System.out.println("got next chunk");
             if (remainingChunks.size() > 0) {
-                currentChunk = remainingChunks.remove(0);
-            } else {
-                currentChunk = null;
+                Chunk nextChunk = remainingChunks.remove(0);
+                
+                // like the driver, the fetched page is appended to the buffered elements 
+                if ((currentChunk != null) && currentChunk.hasNext()) {
+                    nextChunk = new Chunk(nextChunk.id, currentChunk.getAvailable() + nextChunk.elements);
+                }
+                currentChunk = nextChunk;
             }
         }
         
         @Override
         public boolean isFullyFetched() {
-            return (currentChunk == null) && remainingChunks.isEmpty();
+            return remainingChunks.isEmpty();
         }
         
         @Override